@@ -1,8 +1,11 @@
 package com.assessment.data;
 
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.Map.Entry;
 import java.util.regex.*;
 
@@ -44,9 +47,32 @@ public class AdjacencyMatrix {
 		
 	/**
 	 * <p>Connections table.</p>
-	 * <p>This two dimensional array contains the fare prices (in euros) between airports. 
+	 * <p>This two dimensional array contains the fare prices (in euros) between airports; it is <code><b>null</b></code> unless
+	 * fares are stored as <code><b>FareStorage.DENSE</b></code>. Built on first use.</p>
 	 */
-	int[][] connectionsTable;
+	volatile int[][] connectionsTable;
+	
+	/**
+	 * Fares, when they are not stored in <b><code>this.connectionsTable</code></b>. Built on first use.
+	 */
+	volatile FareTable fareTable;
+	
+	/**
+	 * How fares are stored.
+	 */
+	FareStorage fareStorage;
+	
+	/**
+	 * <p>Parsed connection records, kept to build the other structures on first use.</p>
+	 */
+	String[][] connectionRecords;
+	
+	/**
+	 * <p>Fares of the direct flights, as <b><code>{offsets, targets, fares}</code></b>: the flights leaving airport <i>x</i> span 
+	 * <b><code>offsets[x]..offsets[x+1]-1</code></b>, sorted by arrival airport. Built on first use, it lets price questions skip the 
+	 * fare table and the directed graph.</p>
+	 */
+	volatile int[][] linkFares;
 	
 	/**
 	 *  This map indexes <b><code>this.connectionsTable</code></b>'s row/columns by airport codes.
@@ -54,14 +80,52 @@ public class AdjacencyMatrix {
 	Map<String, Integer> connectionsIndex;
 	
 	/**
-	 *  This map indexes airport codes to <b><code>this.connectionsTable</code></b>'s row/columns.
+	 *  This map indexes airport codes to <b><code>this.connectionsTable</code></b>'s row/columns. Built on first use.
+	 */
+	volatile Map<Integer, String> connectionsReverseIndex;
+	
+	/**
+	 * Directed graph used to keep track of source and destination ends. Built on first use.
+	 */
+	volatile DirectedGraph directedGraph;
+	
+	/**
+	 * <p>Offsets into <b><code>this.successors</code></b>; the airports reachable with a direct flight from airport <i>x</i> are 
+	 * <b><code>successors[successorOffsets[x]..successorOffsets[x+1]-1]</code></b>. Built on first use, after 
+	 * <b><code>this.successors</code></b>.</p>
+	 */
+	volatile int[] successorOffsets;
+	
+	/**
+	 * Directed links (by row/column offset) grouped by departure airport, in input order. Self links are left out.
 	 */
-	Map<Integer, String> connectionsReverseIndex;
+	int[] successors;
 	
 	/**
-	 * Directed graph used to keep track of source and destination ends. 
+	 * <p>Offsets into <b><code>this.predecessors</code></b>; same layout as <b><code>this.successorOffsets</code></b>. Built on 
+	 * first use, after <b><code>this.predecessors</code></b>.</p>
 	 */
-	DirectedGraph directedGraph;
+	volatile int[] predecessorOffsets;
+	
+	/**
+	 * Directed links (by row/column offset) grouped by arrival airport, in input order. Self links are left out.
+	 */
+	int[] predecessors;
+	
+	/**
+	 * Optional landmark distances used to speed up cheapest connection searches (see <b><code>preprocessLandmarks</code></b>).
+	 */
+	Landmarks landmarks;
+	
+	/**
+	 * Optional contraction hierarchies index used to answer cheapest connection queries (see <b><code>setContractionHierarchy</code></b>).
+	 */
+	ContractionHierarchy contractionHierarchy;
+	
+	/**
+	 * Transitive closure of the network, built on first use (see <b><code>getReachabilityIndex</code></b>).
+	 */
+	volatile ReachabilityIndex reachabilityIndex;
 	
 	/**
 	 * <p>Parses the string representing the connections table. Airport codes are regarded as case insensitive.</p>
@@ -70,6 +134,20 @@ public class AdjacencyMatrix {
 	 * @throws java.text.ParseException If <b><code>connections</code></b> is not a valid connections table.
 	 */
 	public AdjacencyMatrix(String connections) throws ParseException {
+		this(connections, FareStorage.DENSE);
+	}
+	
+	/**
+	 * <p>Parses the string representing the connections table, storing fares as requested.</p>
+	 * <p>Only the airport codes index is built here; the fare table, the directed graph, the adjacency lists and the other 
+	 * structures are built, once and thread safely, by the first question needing them.</p>
+	 * 
+	 * @param connections A string representing a price list; this string is the first line in the input stream.
+	 * @param fareStorage How fares are stored; <b><code>FareStorage.OFF_HEAP</code></b> keeps very large networks out of the heap and 
+	 * <b><code>FareStorage.COMPRESSED</code></b> packs them in the least memory.
+	 * @throws java.text.ParseException If <b><code>connections</code></b> is not a valid connections table.
+	 */
+	public AdjacencyMatrix(String connections, FareStorage fareStorage) throws ParseException {
 		String trimmed = StringIO.removeSpaces(connections);
 		Matcher matcher = CONNECTIONS_TABLE_PATTERN.matcher(trimmed);
 		
@@ -77,12 +155,146 @@ public class AdjacencyMatrix {
 			throw new ParseException("Invalid connections table '"+connections+"\'", 0);
 		}
 		
-		String[][] connectionRecords = extractConnectionRecords(trimmed);
+		this.connectionRecords = extractConnectionRecords(trimmed);
+		this.fareStorage = fareStorage;
+		
+		for(String[] record: connectionRecords) {
+			if(Integer.parseInt(record[2]) == 0)
+				throw new ParseException("Distance between airports must be greather than zero.", 0);
+		}
 		
 		this.connectionsIndex = createConnectionsIndex(connectionRecords);
-		this.connectionsReverseIndex = createConnectionsReverseIndex(this.connectionsIndex);
-		this.connectionsTable = createConnectionsTable(connectionRecords, this.connectionsIndex);
-		this.directedGraph = createDirectedGraph(connectionRecords);
+	}
+	
+	/**
+	 * <p>Creates the fare table requested by <b><code>this.fareStorage</code></b>, unless another thread already did.</p>
+	 */
+	private synchronized void createFares() {
+		if(connectionsTable != null || fareTable != null) {
+			return;
+		}
+		
+		if(fareStorage == FareStorage.DENSE) {
+			this.connectionsTable = createConnectionsTable(connectionRecords, this.connectionsIndex);
+		} else {
+			int[][] fareLists = createFareLists(connectionRecords);
+			
+			this.fareTable = fareStorage == FareStorage.OFF_HEAP 
+				? new OffHeapFareTable(fareLists[0], fareLists[1], fareLists[2]) 
+				: new CompressedFareTable(fareLists[0], fareLists[1], fareLists[2]);
+		}
+	}
+	
+	/**
+	 * @return The directed links, without repetitions nor self links, in input order: <b><code>{sources, targets}</code></b>.
+	 */
+	private int[][] createLinks() {
+		int size = connectionsIndex.size();
+		int[] sources = new int[connectionRecords.length];
+		int[] targets = new int[connectionRecords.length];
+		Set<Long> links = new HashSet<Long>();
+		int count = 0;
+		
+		for(String[] record: connectionRecords) {
+			int x = connectionsIndex.get(record[0]);
+			int y = connectionsIndex.get(record[1]);
+			
+			if(x != y && links.add((long)x * size + y)) {
+				sources[count] = x;
+				targets[count] = y;
+				count++;
+			}
+		}
+		
+		return new int[][] {Arrays.copyOf(sources, count), Arrays.copyOf(targets, count)};
+	}
+	
+	/**
+	 * <p>Creates the compact, offset based adjacency list of <b><code>successors</code></b> used by the searches that work on 
+	 * row/column offsets rather than airport codes, unless another thread already did.</p>
+	 * 
+	 * @return <b><code>this.successorOffsets</code></b>.
+	 */
+	private synchronized int[] createSuccessors() {
+		if(successorOffsets == null) {
+			int[][] links = createLinks();
+			int[] offsets = new int[connectionsIndex.size() + 1];
+			
+			this.successors = new int[links[0].length];
+			fillAdjacencyList(links[0], links[1], links[0].length, offsets, this.successors);
+			this.successorOffsets = offsets;
+		}
+		return successorOffsets;
+	}
+	
+	/**
+	 * <p>Creates the reverse adjacency list (<b><code>predecessors</code></b>), unless another thread already did.</p>
+	 * 
+	 * @return <b><code>this.predecessorOffsets</code></b>.
+	 */
+	private synchronized int[] createPredecessors() {
+		if(predecessorOffsets == null) {
+			int[][] links = createLinks();
+			int[] offsets = new int[connectionsIndex.size() + 1];
+			
+			this.predecessors = new int[links[1].length];
+			fillAdjacencyList(links[1], links[0], links[1].length, offsets, this.predecessors);
+			this.predecessorOffsets = offsets;
+		}
+		return predecessorOffsets;
+	}
+	
+	/**
+	 * @return <b><code>this.successorOffsets</code></b>, built if needed; <b><code>this.successors</code></b> is ready too.
+	 */
+	int[] successorOffsets() {
+		int[] offsets = successorOffsets;
+		
+		return offsets != null ? offsets : createSuccessors();
+	}
+	
+	/**
+	 * @return <b><code>this.successors</code></b>, built if needed.
+	 */
+	int[] successors() {
+		successorOffsets();
+		return successors;
+	}
+	
+	/**
+	 * @return <b><code>this.predecessorOffsets</code></b>, built if needed; <b><code>this.predecessors</code></b> is ready too.
+	 */
+	int[] predecessorOffsets() {
+		int[] offsets = predecessorOffsets;
+		
+		return offsets != null ? offsets : createPredecessors();
+	}
+	
+	/**
+	 * <p>Groups links by their first end (counting sort), keeping the input order within each group.</p>
+	 * 
+	 * @param from First end of each link.
+	 * @param to Second end of each link.
+	 * @param count How many links are stored in <b><code>from</code></b> and <b><code>to</code></b>.
+	 * @param offsets Receives the group offsets; its length is the number of airports plus one.
+	 * @param adjacent Receives the second end of each link, grouped by first end.
+	 */
+	private static void fillAdjacencyList(int[] from, int[] to, int count, int[] offsets, int[] adjacent) {
+		int[] next = new int[offsets.length];
+		
+		for(int i = 0; i < count; i++) {
+			offsets[from[i] + 1]++;
+		}
+		
+		for(int i = 1; i < offsets.length; i++) {
+			offsets[i] += offsets[i - 1];
+		}
+		
+		System.arraycopy(offsets, 0, next, 0, offsets.length);
+		
+		for(int i = 0; i < count; i++) {
+			adjacent[next[from[i]]++] = to[i];
+		}
 	}
 	
 	/**
@@ -92,7 +304,7 @@ public class AdjacencyMatrix {
 	 * @return A new instance of <code><b>com.assessment.data.DirectedGraph</b></code>.
 	 */
 	private DirectedGraph createDirectedGraph(String[][] connectionRecords) {
-		DirectedGraph graph = new DirectedGraph();
+		DirectedGraph graph = new DirectedGraph(this);
 		
 		for(String[] record: connectionRecords) {
 			String sourceCode = record[0];
@@ -176,9 +388,8 @@ public class AdjacencyMatrix {
 	 * @param connectionRecords A two dimensional array whose elements are sub arrays that represent connection records. This parameter is value returned by <b><code>createConnectionsIndex</code></b>.
 	 * @param connectionsIndex  A map that indexes <b><code>this.connectionsTable</code></b>'s row/columns by airport codes.
 	 * @return A two dimensional array contains the fare prices (in euros) between airports. 
-	 * @throws ParseException Distance between airports is not greater than zero.
 	 */
-	private int[][] createConnectionsTable(String[][] connectionRecords, Map<String, Integer> connectionsIndex) throws ParseException {
+	private int[][] createConnectionsTable(String[][] connectionRecords, Map<String, Integer> connectionsIndex) {
 		int size = connectionsIndex.size();
 		int [][] connectionsTable = new int[size][size];
 
@@ -190,9 +401,6 @@ public class AdjacencyMatrix {
 			int x = connectionsIndex.get(firstCode);
 			int y = connectionsIndex.get(secondCode);
 			
-			if(price == 0)
-				throw new ParseException("Distance between airports must be greather than zero.", 0);
-			
 			connectionsTable[x][y] = price;
 			connectionsTable[y][x] = price;
 		}
@@ -200,15 +408,167 @@ public class AdjacencyMatrix {
 		return connectionsTable;
 	}
 	
+	/**
+	 * <p>Creates the symmetric fare lists backing the fare tables that are not dense: for each airport, the airports it shares a 
+	 * direct flight with, sorted by row/column offset, and their fares. As in the dense table, the last record given for a pair 
+	 * of airports sets its fare.</p>
+	 * 
+	 * @param connectionRecords A two dimensional array whose elements are sub arrays that represent connection records.
+	 * @return <b><code>{offsets, targets, fares}</code></b>; row <i>x</i> spans <b><code>offsets[x]..offsets[x+1]-1</code></b>.
+	 */
+	private int[][] createFareLists(String[][] connectionRecords) {
+		int size = connectionsIndex.size();
+		int[] rows = new int[connectionRecords.length * 2];
+		int[] columns = new int[connectionRecords.length * 2];
+		int[] records = new int[connectionRecords.length * 2];
+		int[] rowOffsets = new int[size + 1];
+		int[] rowColumns = new int[rows.length];
+		int[] rowRecords = new int[rows.length];
+		int count = 0;
+		
+		for(int i = 0; i < connectionRecords.length; i++) {
+			int x = connectionsIndex.get(connectionRecords[i][0]);
+			int y = connectionsIndex.get(connectionRecords[i][1]);
+			
+			rows[count] = x;
+			columns[count] = y;
+			records[count++] = i;
+			
+			if(x != y) {
+				rows[count] = y;
+				columns[count] = x;
+				records[count++] = i;
+			}
+		}
+		
+		fillAdjacencyList(rows, columns, count, rowOffsets, rowColumns);
+		fillAdjacencyList(rows, records, count, new int[size + 1], rowRecords);
+		
+		int[] offsets = new int[size + 1];
+		int[] targets = new int[count];
+		int[] fares = new int[count];
+		int filled = 0;
+		
+		for(int x = 0; x < size; x++) {
+			long[] keys = new long[rowOffsets[x + 1] - rowOffsets[x]];
+			
+			for(int i = 0; i < keys.length; i++) {
+				keys[i] = ((long)rowColumns[rowOffsets[x] + i] << 32) | rowRecords[rowOffsets[x] + i];
+			}
+			
+			Arrays.sort(keys);
+			offsets[x] = filled;
+			
+			for(int i = 0; i < keys.length; i++) {
+				if(i + 1 < keys.length && (keys[i + 1] >>> 32) == (keys[i] >>> 32)) {
+					continue; // A later record sets the fare of this pair.
+				}
+				
+				targets[filled] = (int)(keys[i] >>> 32);
+				fares[filled++] = Integer.parseInt(connectionRecords[(int)keys[i]][2]);
+			}
+		}
+		
+		offsets[size] = filled;
+		
+		return new int[][] {offsets, Arrays.copyOf(targets, filled), Arrays.copyOf(fares, filled)};
+	}
+	
 	/**
 	 * <p>Looks for the price between airports <code><b>x</b></code> and <code><b>y</b></code>.</p>
 	 * 
 	 * @param x Row number.
 	 * @param y Column number. 
-	 * @return <b><code>this.connectionsTable[x][y]</code></b>
+	 * @return <b><code>this.connectionsTable[x][y]</code></b>, or the fare stored in <b><code>this.fareTable</code></b>.
 	 */
 	public int get(int x, int y) {
-		return connectionsTable[x][y];
+		int[][] table = connectionsTable;
+		
+		if(table != null) {
+			return table[x][y];
+		}
+		
+		FareTable fares = fareTable;
+		
+		if(fares == null) {
+			createFares();
+			return get(x, y);
+		}
+		
+		return fares.get(x, y);
+	}
+	
+	/**
+	 * <p>Looks for the fare of the direct flight from <code><b>a</b></code> to <code><b>b</b></code>, without building the fare 
+	 * table nor the directed graph.</p>
+	 * 
+	 * @param a Departure airport code.
+	 * @param b Arrival airport code.
+	 * @return The fare <b><code>get(a, b)</code></b> returns if a flight from <code><b>a</b></code> to <code><b>b</b></code> exists, 
+	 * otherwise 0 (also for unknown codes).
+	 */
+	public int getLinkFare(String a, String b) {
+		Integer x = connectionsIndex.get(a);
+		Integer y = connectionsIndex.get(b);
+		
+		if(x == null || y == null) {
+			return 0;
+		}
+		
+		int[][] fares = linkFares;
+		
+		if(fares == null) {
+			fares = createLinkFares();
+		}
+		
+		int position = Arrays.binarySearch(fares[1], fares[0][x], fares[0][x + 1], y);
+		
+		return position < 0 ? 0 : fares[2][position];
+	}
+	
+	/**
+	 * <p>Creates <b><code>this.linkFares</code></b>, unless another thread already did: the fare lists (see 
+	 * <b><code>createFareLists</code></b>) restricted to the directions that have a flight, so, as in the fare table, the last 
+	 * record given for a pair of airports sets the fare of both directions.</p>
+	 * 
+	 * @return <b><code>this.linkFares</code></b>.
+	 */
+	private synchronized int[][] createLinkFares() {
+		if(linkFares == null) {
+			int size = connectionsIndex.size();
+			int[][] lists = createFareLists(connectionRecords);
+			int[] linkOffsets = successorOffsets();
+			int[] offsets = new int[size + 1];
+			int[] targets = new int[lists[1].length];
+			int[] fares = new int[lists[1].length];
+			boolean[] linked = new boolean[size];
+			int filled = 0;
+			
+			for(int x = 0; x < size; x++) {
+				for(int i = linkOffsets[x]; i < linkOffsets[x + 1]; i++) {
+					linked[successors[i]] = true;
+				}
+				
+				offsets[x] = filled;
+				
+				for(int i = lists[0][x]; i < lists[0][x + 1]; i++) {
+					int y = lists[1][i];
+					
+					if(linked[y] || y == x) { // Self links are left out of the successors, but their records are in the lists.
+						targets[filled] = y;
+						fares[filled++] = lists[2][i];
+					}
+				}
+				
+				for(int i = linkOffsets[x]; i < linkOffsets[x + 1]; i++) {
+					linked[successors[i]] = false;
+				}
+			}
+			
+			offsets[size] = filled;
+			linkFares = new int[][] {offsets, Arrays.copyOf(targets, filled), Arrays.copyOf(fares, filled)};
+		}
+		return linkFares;
 	}
 	
 	/**
@@ -241,7 +601,7 @@ public class AdjacencyMatrix {
 	 * @return connectionsTable.length.
 	 */
 	public int length() {
-		return connectionsTable.length;
+		return connectionsIndex.size();
 	}
 	
 	/**
@@ -269,7 +629,18 @@ public class AdjacencyMatrix {
 	 * @return Returns the row/column offset for the given airport code.
 	 */
 	public String getCode(int index) {
-		String code = connectionsReverseIndex.get(index);
+		Map<Integer, String> reverseIndex = connectionsReverseIndex;
+		
+		if(reverseIndex == null) {
+			synchronized(this) {
+				if(connectionsReverseIndex == null) {
+					connectionsReverseIndex = createConnectionsReverseIndex(connectionsIndex);
+				}
+				reverseIndex = connectionsReverseIndex;
+			}
+		}
+		
+		String code = reverseIndex.get(index);
 		if(code == null) {
 			throw new ArrayIndexOutOfBoundsException(
 				String.format(
@@ -282,11 +653,126 @@ public class AdjacencyMatrix {
 		return code;
 	}
 	
+	/**
+	 * @param x Row/column offset of the departure airport.
+	 * @return How many airports can be reached from <b><code>x</code></b> with a direct flight.
+	 */
+	public int outDegree(int x) {
+		int[] offsets = successorOffsets();
+		
+		return offsets[x + 1] - offsets[x];
+	}
+	
+	/**
+	 * @param x Row/column offset of the departure airport.
+	 * @param i A number between 0 and <b><code>outDegree(x) - 1</code></b>.
+	 * @return Row/column offset of the <b><code>i</code></b>-th airport reachable from <b><code>x</code></b> with a direct flight.
+	 */
+	public int successor(int x, int i) {
+		int[] offsets = successorOffsets();
+		
+		return successors[offsets[x] + i];
+	}
+	
+	/**
+	 * @param y Row/column offset of the arrival airport.
+	 * @return How many airports have a direct flight to <b><code>y</code></b>.
+	 */
+	public int inDegree(int y) {
+		int[] offsets = predecessorOffsets();
+		
+		return offsets[y + 1] - offsets[y];
+	}
+	
+	/**
+	 * @param y Row/column offset of the arrival airport.
+	 * @param i A number between 0 and <b><code>inDegree(y) - 1</code></b>.
+	 * @return Row/column offset of the <b><code>i</code></b>-th airport having a direct flight to <b><code>y</code></b>.
+	 */
+	public int predecessor(int y, int i) {
+		int[] offsets = predecessorOffsets();
+		
+		return predecessors[offsets[y] + i];
+	}
+	
+	/**
+	 * <p>Computes the cheapest fares from (or to) one airport to (or from) every other airport with Dijkstra's algorithm.</p>
+	 * 
+	 * @param airport Row/column offset of the airport.
+	 * @param backward <b><code>true</code></b> to compute fares to <b><code>airport</code></b> instead of from it.
+	 * @return Fares by row/column offset; <b><code>Landmarks.UNREACHABLE</code></b> for airports without connection.
+	 */
+	public int[] cheapestFares(int airport, boolean backward) {
+		return Landmarks.distances(this, airport, backward);
+	}
+	
+	/**
+	 * <p>Selects <b><code>count</code></b> landmark airports and stores the fares from and to each of them, such that 
+	 * cheapest connection searches can use them as lower bounds (A* with landmarks).</p>
+	 * 
+	 * @param count How many landmarks are selected; 0 discards them.
+	 */
+	public void preprocessLandmarks(int count) {
+		this.landmarks = count > 0 ? Landmarks.select(this, count) : null;
+	}
+	
 	/**
 	 * 
-	 * @return The two dimensional array containing the fare prices (in euros) between airports. 
+	 * @return The landmarks computed by <b><code>preprocessLandmarks</code></b> or <code><b>null</b></code>.
+	 */
+	public Landmarks getLandmarks() {
+		return landmarks;
+	}
+	
+	/**
+	 * <p>Attaches a contraction hierarchies index to this matrix, such that cheapest connection queries use it.</p>
+	 * 
+	 * @param contractionHierarchy An index built from this network (possibly in another process); <code><b>null</b></code> detaches the current one.
+	 * @throws IllegalArgumentException If the index was built from a different network.
+	 */
+	public void setContractionHierarchy(ContractionHierarchy contractionHierarchy) {
+		if(contractionHierarchy != null && !contractionHierarchy.matches(this)) {
+			throw new IllegalArgumentException("The contraction hierarchies index was built from a different network");
+		}
+		this.contractionHierarchy = contractionHierarchy;
+	}
+	
+	/**
+	 * 
+	 * @return The index attached by <b><code>setContractionHierarchy</code></b> or <code><b>null</b></code>.
+	 */
+	public ContractionHierarchy getContractionHierarchy() {
+		return contractionHierarchy;
+	}
+	
+	/**
+	 * <p>Returns the transitive closure of the network, which is computed once, the first time it is needed.</p>
+	 * 
+	 * @return An index telling in O(1) whether two airports are connected at all.
+	 */
+	public ReachabilityIndex getReachabilityIndex() {
+		ReachabilityIndex index = reachabilityIndex;
+		
+		if(index == null) {
+			synchronized(this) {
+				if(reachabilityIndex == null) {
+					reachabilityIndex = new ReachabilityIndex(this);
+				}
+				index = reachabilityIndex;
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * 
+	 * @return The two dimensional array containing the fare prices (in euros) between airports, or <code><b>null</b></code> 
+	 * if fares are not stored as <code><b>FareStorage.DENSE</b></code>.
 	 */
 	public int[][] getConnectionsTable() {
+		if(connectionsTable == null && fareTable == null) {
+			createFares();
+		}
 		return connectionsTable;
 	}
 
@@ -295,7 +781,17 @@ public class AdjacencyMatrix {
 	 * @return com.assessment.data
 	 */
 	public DirectedGraph getDirectedGraph() {
-		return directedGraph;
+		DirectedGraph graph = directedGraph;
+		
+		if(graph == null) {
+			synchronized(this) {
+				if(directedGraph == null) {
+					directedGraph = createDirectedGraph(connectionRecords);
+				}
+				graph = directedGraph;
+			}
+		}
+		return graph;
 	}
 	
 	
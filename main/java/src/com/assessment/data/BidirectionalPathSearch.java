@@ -0,0 +1,234 @@
+package com.assessment.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Meet-in-the-middle enumeration of connections having an exact number of legs.</p>
+ * <p>Partial connections are expanded forward from the departure airport and backward (through the reverse adjacency index
+ * kept by <code><b>com.assessment.data.DirectedGraph</b></code>) from the arrival airport, each to about half of the requested
+ * length. Both frontiers are then joined on their shared midpoint airports, rejecting joins that would repeat a stop.
+ * With an average degree <i>d</i> and <i>n</i> legs the explored frontier drops from <i>d<sup>n</sup></i> to about
+ * <i>2&middot;d<sup>n/2</sup></i>.</p>
+ * <p>Connections follow the same rules as <code><b>DirectedGraph.depthFirst</b></code>: stops are never repeated and,
+ * when both ends are the same airport, the result are the roundtrips starting there.</p>
+ * @author rsolano
+ *
+ */
+public class BidirectionalPathSearch {
+
+	/**
+	 * The directed graph wherein paths are sought.
+	 */
+	DirectedGraph graph;
+
+	/**
+	 * How many partial connections were expanded by the searches of this instance.
+	 */
+	int expandedCount;
+
+	/**
+	 * @param graph The directed graph wherein paths are sought.
+	 */
+	public BidirectionalPathSearch(DirectedGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * <p>Finds all connections having exactly <code><b>legs</b></code> legs (<code><b>legs - 1</b></code> stops).</p>
+	 *
+	 * @param sourceCode Starting airport code.
+	 * @param destinationCode Ending airport code.
+	 * @param legs Number of flights in each connection.
+	 * @return A list whose elements are sublists. Each sublist represent a path from <code><b>sourceCode</b></code> to <code><b>destinationCode</b></code>.
+	 */
+	public List<LinkedList<String>> paths(String sourceCode, String destinationCode, int legs) {
+		List<LinkedList<String>> result = new ArrayList<LinkedList<String>>();
+
+		join(sourceCode, destinationCode, legs, result);
+		return result;
+	}
+
+	/**
+	 * <p>Counts all connections having exactly <code><b>legs</b></code> legs (<code><b>legs - 1</b></code> stops) without materializing them.</p>
+	 *
+	 * @param sourceCode Starting airport code.
+	 * @param destinationCode Ending airport code.
+	 * @param legs Number of flights in each connection.
+	 * @return How many connections comply with the aforementioned criteria.
+	 */
+	public int count(String sourceCode, String destinationCode, int legs) {
+		return join(sourceCode, destinationCode, legs, null);
+	}
+
+	/**
+	 * <p>Expands both frontiers and joins them on their midpoints.</p>
+	 *
+	 * @param sourceCode Starting airport code.
+	 * @param destinationCode Ending airport code.
+	 * @param legs Number of flights in each connection.
+	 * @param result Where joined connections are added; <code><b>null</b></code> if they only need to be counted.
+	 * @return How many connections were found.
+	 */
+	private int join(String sourceCode, String destinationCode, int legs, List<LinkedList<String>> result) {
+		boolean roundTrip = sourceCode.equals(destinationCode);
+
+		if(legs < 1 || (roundTrip && legs < 2)) {
+			return 0;
+		}
+
+		int forwardLegs = (legs + 1) / 2;
+		int backwardLegs = legs - forwardLegs;
+		Map<String, List<String[]>> forward = new HashMap<String, List<String[]>>();
+		List<String[]> backward = new ArrayList<String[]>();
+		String[] partial = new String[forwardLegs + 1];
+		Set<String> visited = new HashSet<String>();
+		int count = 0;
+
+		partial[0] = sourceCode;
+		visited.add(sourceCode);
+		expandForward(partial, 0, visited, destinationCode, forwardLegs == legs, forward);
+
+		if(forward.isEmpty()) {
+			return 0;
+		}
+
+		partial = new String[backwardLegs + 1];
+		visited.clear();
+		partial[0] = destinationCode;
+		visited.add(destinationCode);
+		expandBackward(partial, 0, visited, sourceCode, forward.keySet(), backward);
+
+		Set<String> inner = new HashSet<String>();
+
+		for(String[] arrival: backward) {
+			List<String[]> departures = forward.get(arrival[backwardLegs]);
+
+			if(departures == null) {
+				continue;
+			}
+
+			inner.clear();
+			for(int i = 1; i < backwardLegs; i++) {
+				inner.add(arrival[i]);
+			}
+
+			next: for(String[] departure: departures) {
+
+				for(int i = 1; i < forwardLegs; i++) {
+					if(inner.contains(departure[i])) {
+						continue next;
+					}
+				}
+
+				count++;
+
+				if(result != null) {
+					LinkedList<String> path = new LinkedList<String>();
+
+					for(String code: departure) {
+						path.add(code);
+					}
+					for(int i = backwardLegs - 1; i >= 0; i--) {
+						path.add(arrival[i]);
+					}
+					result.add(path);
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * <p>Recursive step that collects, grouped by their last airport, all partial connections leaving <code><b>partial[0]</b></code>.</p>
+	 *
+	 * @param partial The partial connection being built; its length is the number of forward legs plus one.
+	 * @param depth Index of the last airport in <code><b>partial</b></code>.
+	 * @param visited Airports in <code><b>partial[0..depth]</b></code>.
+	 * @param destinationCode Ending airport code, which may only close a complete connection.
+	 * @param complete <code><b>true</b></code> if the forward half is the whole connection.
+	 * @param forward The resulting partial connections, indexed by their last airport.
+	 */
+	private void expandForward(String[] partial, int depth, Set<String> visited, String destinationCode, boolean complete, Map<String, List<String[]>> forward) {
+		expandedCount++;
+
+		if(depth == partial.length - 1) {
+			List<String[]> group = forward.get(partial[depth]);
+
+			if(group == null) {
+				group = new ArrayList<String[]>();
+				forward.put(partial[depth], group);
+			}
+			group.add(partial.clone());
+			return;
+		}
+
+		boolean last = depth + 1 == partial.length - 1;
+
+		for(String node: graph.adjacent(partial[depth])) {
+
+			if(node.equals(destinationCode)) {
+
+				if(!(last && complete)) {
+					continue;
+				}
+
+			} else if(visited.contains(node) || (last && complete)) {
+				continue;
+			}
+
+			partial[depth + 1] = node;
+			visited.add(node);
+			expandForward(partial, depth + 1, visited, destinationCode, complete, forward);
+			visited.remove(node);
+		}
+	}
+
+	/**
+	 * <p>Recursive step that collects all partial connections arriving at <code><b>partial[0]</b></code>, walking links backwards.</p>
+	 *
+	 * @param partial The partial connection being built (in reverse order); its length is the number of backward legs plus one.
+	 * @param depth Index of the last airport in <code><b>partial</b></code>.
+	 * @param visited Airports in <code><b>partial[0..depth]</b></code>.
+	 * @param sourceCode Starting airport code, which is never part of the backward half.
+	 * @param midpoints Airports where the forward half ends; the backward half must end at one of them.
+	 * @param backward The resulting partial connections.
+	 */
+	private void expandBackward(String[] partial, int depth, Set<String> visited, String sourceCode, Set<String> midpoints, List<String[]> backward) {
+		expandedCount++;
+
+		if(depth == partial.length - 1) {
+
+			if(midpoints.contains(partial[depth])) {
+				backward.add(partial.clone());
+			}
+			return;
+		}
+
+		for(String node: graph.incoming(partial[depth])) {
+
+			if(visited.contains(node) || node.equals(sourceCode)) {
+				continue;
+			}
+
+			partial[depth + 1] = node;
+			visited.add(node);
+			expandBackward(partial, depth + 1, visited, sourceCode, midpoints, backward);
+			visited.remove(node);
+		}
+	}
+
+	/**
+	 *
+	 * @return How many partial connections were expanded by the searches of this instance.
+	 */
+	public int getExpandedCount() {
+		return expandedCount;
+	}
+}
@@ -0,0 +1,159 @@
+package com.assessment.data;
+
+import java.util.Arrays;
+
+/**
+ * <p>Cheapest connection between two airports taking at most a given number of flights (bounded Bellman-Ford).</p>
+ * <p>Round <i>k</i> computes the cheapest fare of every airport using at most <i>k</i> flights from the fares of round <i>k-1</i>,
+ * so only two rolling primitive fare arrays are kept, and the search takes O(K&middot;E) time. Each round records which airports
+ * it improved (and from where) so the connection can be rebuilt without keeping any path during the search. The search
+ * stops early when a round improves nothing.</p>
+ * <p>Instances are not thread safe, but can be reused for several searches on the same matrix.</p>
+ * @author rsolano
+ *
+ */
+public class BoundedPathSearch {
+
+	/**
+	 * Adjacency matrix whose weights are the flight fares.
+	 */
+	AdjacencyMatrix adjacencyMatrix;
+
+	/**
+	 * Cheapest fares using at most <i>k-1</i> flights.
+	 */
+	int[] previous;
+
+	/**
+	 * Cheapest fares using at most <i>k</i> flights.
+	 */
+	int[] current;
+
+	/**
+	 * How many flights were relaxed by the last search.
+	 */
+	long relaxedCount;
+
+	/**
+	 * @param adjacencyMatrix Adjacency matrix whose weights are the flight fares.
+	 */
+	public BoundedPathSearch(AdjacencyMatrix adjacencyMatrix) {
+		this.adjacencyMatrix = adjacencyMatrix;
+		this.previous = new int[adjacencyMatrix.length()];
+		this.current = new int[adjacencyMatrix.length()];
+	}
+
+	/**
+	 * <p>Finds the cheapest connection between two airports taking at most <code><b>maximumLegs</b></code> flights.</p>
+	 *
+	 * @param source Row/column offset of the departure airport.
+	 * @param target Row/column offset of the arrival airport; if it equals <code><b>source</b></code>, the cheapest roundtrip is sought.
+	 * @param maximumLegs Maximum number of flights (stops + 1); since fares are positive, the cheapest connection repeats no airport
+	 * and takes at most as many flights as there are airports, so larger limits search no further.
+	 * @return The cheapest connection or <code><b>null</b></code> if there is none.
+	 */
+	public PricedPath search(int source, int target, int maximumLegs) {
+		int size = adjacencyMatrix.length();
+		int maximumRounds = Math.min(maximumLegs, size);
+		int[][] parents = new int[Math.max(Math.min(maximumRounds, 8), 0) + 1][];
+		int rounds = 0;
+
+		relaxedCount = 0;
+		Arrays.fill(previous, Landmarks.UNREACHABLE);
+		previous[source] = 0;
+
+		for(int k = 1; k <= maximumRounds; k++) {
+			int[] improved = new int[size];
+			boolean changed = false;
+
+			System.arraycopy(previous, 0, current, 0, size);
+			Arrays.fill(improved, -1);
+
+			if(k == 1 && source == target) { // The source is left open, so that reaching it again closes the roundtrip.
+				current[source] = Landmarks.UNREACHABLE;
+			}
+
+			for(int u = 0; u < size; u++) {
+				if(previous[u] == Landmarks.UNREACHABLE) {
+					continue;
+				}
+
+				int degree = adjacencyMatrix.outDegree(u);
+
+				relaxedCount += degree;
+
+				for(int i = 0; i < degree; i++) {
+					int w = adjacencyMatrix.successor(u, i);
+					int candidate = previous[u] + adjacencyMatrix.get(u, w);
+
+					if(candidate < current[w]) {
+						current[w] = candidate;
+						improved[w] = u;
+						changed = true;
+					}
+				}
+			}
+
+			int[] swap = previous;
+
+			previous = current;
+			current = swap;
+			if(k == parents.length) {
+				parents = Arrays.copyOf(parents, Math.min(2 * k, maximumRounds) + 1);
+			}
+			parents[k] = improved;
+			rounds = k;
+
+			if(!changed) {
+				break;
+			}
+		}
+
+		if(rounds == 0 || previous[target] == Landmarks.UNREACHABLE) {
+			return null;
+		}
+
+		return path(source, target, parents, rounds, previous[target]);
+	}
+
+	/**
+	 *
+	 * @return How many flights were relaxed by the last search, at most K&middot;E.
+	 */
+	public long getRelaxedCount() {
+		return relaxedCount;
+	}
+
+	/**
+	 * <p>Rebuilds a connection walking the rounds backwards: an airport improved in round <i>k</i> was reached from the
+	 * recorded airport in round <i>k-1</i>; otherwise its fare comes from round <i>k-1</i>.</p>
+	 */
+	private PricedPath path(int source, int target, int[][] parents, int rounds, int price) {
+		int[] reversed = new int[rounds + 1];
+		int length = 0;
+		int v = target;
+
+		reversed[length++] = target;
+
+		for(int k = rounds; k >= 1; k--) {
+			int parent = parents[k][v];
+
+			if(parent != -1) {
+				v = parent;
+				reversed[length++] = v;
+
+				if(v == source && (source != target || k == 1)) {
+					break;
+				}
+			}
+		}
+
+		int[] path = new int[length];
+
+		for(int i = 0; i < length; i++) {
+			path[i] = reversed[length - 1 - i];
+		}
+
+		return new PricedPath(path, price);
+	}
+}
@@ -0,0 +1,378 @@
+package com.assessment.data;
+
+import java.util.Arrays;
+
+/**
+ * <p>A* search for the cheapest connection between two airports.</p>
+ * <p>When landmarks are available (see <code><b>AdjacencyMatrix.preprocessLandmarks</b></code>) they provide the lower bounds
+ * that guide the search; otherwise the search is a plain Dijkstra. When both ends are the same airport, the cheapest
+ * roundtrip is sought.</p>
+ * <p>Searches between sets of airports behave as if a virtual airport were linked at no fare to every departure airport and from every 
+ * arrival airport: one search finds the cheapest connection among all the pairs.</p>
+ * <p>Instances are not thread safe, but can be reused for several searches on the same matrix.</p>
+ * @author rsolano
+ *
+ */
+public class CheapestPathSearch {
+
+	/**
+	 * Adjacency matrix whose weights are the flight fares.
+	 */
+	AdjacencyMatrix adjacencyMatrix;
+
+	/**
+	 * Lower bounds; <code><b>null</b></code> if no landmarks are available.
+	 */
+	Landmarks landmarks;
+
+	/**
+	 * Cheapest known fare from the source, by row/column offset.
+	 */
+	int[] distances;
+
+	/**
+	 * Previous airport in the cheapest known connection, by row/column offset.
+	 */
+	int[] parents;
+
+	/**
+	 * Airports whose cheapest fare is final.
+	 */
+	boolean[] settled;
+
+	/**
+	 * Pending airports keyed by estimated total fare.
+	 */
+	LongHeap heap;
+
+	/**
+	 * Airports settled by the last search, in the order they were settled; the first <code><b>settledCount</b></code> are valid.
+	 */
+	int[] settledOrder;
+
+	/**
+	 * How many airports were settled by the last search.
+	 */
+	int settledCount;
+
+	/**
+	 * Departure airport of the last <code><b>searchAll</b></code>; -1 if the last search was another one.
+	 */
+	int treeSource = -1;
+
+	/**
+	 * Departure airports of the last search between sets of airports; <code><b>null</b></code> if the last search was another one.
+	 */
+	boolean[] origins;
+	
+	/**
+	 * @param adjacencyMatrix Adjacency matrix whose weights are the flight fares.
+	 */
+	public CheapestPathSearch(AdjacencyMatrix adjacencyMatrix) {
+		int size = adjacencyMatrix.length();
+
+		this.adjacencyMatrix = adjacencyMatrix;
+		this.landmarks = adjacencyMatrix.getLandmarks();
+		this.distances = new int[size];
+		this.parents = new int[size];
+		this.settled = new boolean[size];
+		this.settledOrder = new int[size];
+		this.heap = new LongHeap(size);
+	}
+
+	/**
+	 * <p>Finds the cheapest connection between two airports.</p>
+	 *
+	 * @param source Row/column offset of the departure airport.
+	 * @param target Row/column offset of the arrival airport; if it equals <code><b>source</b></code>, the cheapest roundtrip is sought.
+	 * @return The cheapest connection or <code><b>null</b></code> if there is none.
+	 */
+	public PricedPath search(int source, int target) {
+		treeSource = -1;
+		origins = null;
+		Arrays.fill(distances, Landmarks.UNREACHABLE);
+		Arrays.fill(settled, false);
+		heap.clear();
+		settledCount = 0;
+
+		if(source == target) { // The source is left open, so that reaching it again closes the roundtrip.
+			relax(source, 0, target);
+		} else {
+			distances[source] = 0;
+			heap.push(LongHeap.key(estimate(source, target), source));
+		}
+
+		while(!heap.isEmpty()) {
+			int v = LongHeap.value(heap.pop());
+
+			if(settled[v]) {
+				continue;
+			}
+
+			settled[v] = true;
+			settledOrder[settledCount++] = v;
+
+			if(v == target) {
+				return path(source, target);
+			}
+
+			relax(v, distances[v], target);
+		}
+
+		return null;
+	}
+
+	/**
+	 * <p>Finds the cheapest connection from any airport of <code><b>sources</b></code> to any airport of <code><b>targets</b></code> with one 
+	 * search, which starts from every departure airport at once (the virtual super-source) and stops at the first arrival airport settled 
+	 * (the virtual super-sink).</p>
+	 * <p>Departure airports are left open, as for roundtrips, so that an airport in both sets is only reached with at least one flight. 
+	 * When landmarks are available, the lower bound of an airport is the lowest one towards any arrival airport.</p>
+	 *
+	 * @param sources Row/column offsets of the departure airports.
+	 * @param targets Row/column offsets of the arrival airports.
+	 * @return The cheapest connection or <code><b>null</b></code> if there is none.
+	 */
+	public PricedPath search(int[] sources, int[] targets) {
+		boolean[] arrivals = new boolean[distances.length];
+		
+		treeSource = -1;
+		origins = new boolean[distances.length];
+		Arrays.fill(distances, Landmarks.UNREACHABLE);
+		Arrays.fill(settled, false);
+		heap.clear();
+		settledCount = 0;
+		
+		for(int target: targets) {
+			arrivals[target] = true;
+		}
+		
+		for(int source: sources) {
+			origins[source] = true;
+		}
+		
+		for(int source: sources) {
+			relax(source, 0, targets);
+		}
+		
+		while(!heap.isEmpty()) {
+			int v = LongHeap.value(heap.pop());
+			
+			if(settled[v]) {
+				continue;
+			}
+			
+			settled[v] = true;
+			settledOrder[settledCount++] = v;
+			
+			if(arrivals[v]) {
+				return path(v);
+			}
+			
+			relax(v, distances[v], targets);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * <p>Finds the cheapest connections from one airport to every other one (a shortest path tree), and the cheapest roundtrip, 
+	 * such that several questions from the same airport share one search; read them with <code><b>getPath</b></code>.</p>
+	 * <p>Landmarks are not used, and connections equal those of <code><b>search</b></code> without landmarks: settling the source 
+	 * first or leaving it open (for the roundtrip) expands the other airports in the same order.</p>
+	 *
+	 * @param source Row/column offset of the departure airport.
+	 */
+	public void searchAll(int source) {
+		searchAll(source, Landmarks.UNREACHABLE);
+	}
+	
+	/**
+	 * <p>Like <code><b>searchAll(int)</b></code>, but stops once the cheapest pending fare reaches <code><b>budget</b></code>: only 
+	 * the airports whose cheapest fare is below it are settled, so the cost depends on the region reachable within the budget.</p>
+	 *
+	 * @param source Row/column offset of the departure airport.
+	 * @param budget Exclusive upper limit of the fares.
+	 */
+	public void searchAll(int source, int budget) {
+		Arrays.fill(distances, Landmarks.UNREACHABLE);
+		Arrays.fill(settled, false);
+		heap.clear();
+		settledCount = 0;
+		treeSource = source;
+		origins = null;
+		
+		relax(source, 0, -1);
+		
+		while(!heap.isEmpty()) {
+			int v = LongHeap.value(heap.pop());
+			
+			if(settled[v]) {
+				continue;
+			}
+			
+			if(distances[v] >= budget) { // Keys are fares: every pending airport is over budget.
+				break;
+			}
+			
+			settled[v] = true;
+			settledOrder[settledCount++] = v;
+			relax(v, distances[v], -1);
+		}
+	}
+	
+	/**
+	 * @param target Row/column offset of the arrival airport; if it equals the source, the roundtrip's fare is returned.
+	 * @return The cheapest fare to <code><b>target</b></code> found by the last <code><b>searchAll</b></code>, or 
+	 * <code><b>Landmarks.UNREACHABLE</b></code> if there is none.
+	 */
+	public int getFare(int target) {
+		return treeSource == -1 || !settled[target] ? Landmarks.UNREACHABLE : distances[target];
+	}
+	
+	/**
+	 * @param target Row/column offset of the arrival airport; if it equals the source, the roundtrip is returned.
+	 * @return The cheapest connection to <code><b>target</b></code> found by the last <code><b>searchAll</b></code>, or
+	 * <code><b>null</b></code> if there is none.
+	 */
+	public PricedPath getPath(int target) {
+		return treeSource == -1 || !settled[target] ? null : path(treeSource, target);
+	}
+
+	/**
+	 * <p>Updates the fares of the airports reachable from <code><b>v</b></code> with a direct flight.</p>
+	 *
+	 * @param v Row/column offset of the airport being expanded.
+	 * @param distance Cheapest fare to <code><b>v</b></code>.
+	 * @param target Row/column offset of the arrival airport; -1 for none.
+	 */
+	private void relax(int v, int distance, int target) {
+		int degree = adjacencyMatrix.outDegree(v);
+
+		for(int i = 0; i < degree; i++) {
+			int w = adjacencyMatrix.successor(v, i);
+			int candidate = distance + adjacencyMatrix.get(v, w);
+
+			if(!settled[w] && candidate < distances[w]) {
+				distances[w] = candidate;
+				parents[w] = v;
+				heap.push(LongHeap.key(candidate + estimate(w, target), w));
+			}
+		}
+	}
+
+	/**
+	 * <p>Updates the fares of the airports reachable from <code><b>v</b></code> with a direct flight.</p>
+	 *
+	 * @param v Row/column offset of the airport being expanded.
+	 * @param distance Cheapest fare to <code><b>v</b></code>.
+	 * @param targets Row/column offsets of the arrival airports.
+	 */
+	private void relax(int v, int distance, int[] targets) {
+		int degree = adjacencyMatrix.outDegree(v);
+		
+		for(int i = 0; i < degree; i++) {
+			int w = adjacencyMatrix.successor(v, i);
+			int candidate = distance + adjacencyMatrix.get(v, w);
+			
+			if(!settled[w] && candidate < distances[w]) {
+				distances[w] = candidate;
+				parents[w] = v;
+				heap.push(LongHeap.key(candidate + estimate(w, targets), w));
+			}
+		}
+	}
+	
+	/**
+	 * @param v Row/column offset of an airport.
+	 * @param targets Row/column offsets of the arrival airports.
+	 * @return Lower bound of the fare from <code><b>v</b></code> to the closest of <code><b>targets</b></code>.
+	 */
+	private int estimate(int v, int[] targets) {
+		if(landmarks == null) {
+			return 0;
+		}
+		
+		int bound = Integer.MAX_VALUE;
+		
+		for(int target: targets) {
+			bound = Math.min(bound, landmarks.lowerBound(v, target));
+		}
+		return bound;
+	}
+	
+	/**
+	 * @param v Row/column offset of an airport.
+	 * @param target Row/column offset of the arrival airport.
+	 * @return Lower bound of the fare from <code><b>v</b></code> to <code><b>target</b></code>.
+	 */
+	private int estimate(int v, int target) {
+		return landmarks == null || target < 0 ? 0 : landmarks.lowerBound(v, target);
+	}
+
+	/**
+	 * <p>Follows the parents from <code><b>target</b></code> back to <code><b>source</b></code>.</p>
+	 *
+	 * @param source Row/column offset of the departure airport.
+	 * @param target Row/column offset of the arrival airport.
+	 * @return The connection found by the last search.
+	 */
+	private PricedPath path(int source, int target) {
+		int length = 2;
+
+		for(int v = parents[target]; v != source; v = parents[v]) {
+			length++;
+		}
+
+		int[] path = new int[length];
+
+		path[0] = source;
+		path[length - 1] = target;
+
+		for(int i = length - 2, v = parents[target]; i > 0; i--, v = parents[v]) {
+			path[i] = v;
+		}
+
+		return new PricedPath(path, distances[target]);
+	}
+
+	/**
+	 * <p>Follows the parents from <code><b>target</b></code> back to the first departure airport of the last search between sets of airports.</p>
+	 *
+	 * @param target Row/column offset of the arrival airport.
+	 * @return The connection found by the last search.
+	 */
+	private PricedPath path(int target) {
+		int length = 2;
+		
+		for(int v = parents[target]; !origins[v]; v = parents[v]) {
+			length++;
+		}
+		
+		int[] path = new int[length];
+		
+		path[length - 1] = target;
+		
+		for(int i = length - 2, v = parents[target]; i >= 0; i--, v = parents[v]) {
+			path[i] = v;
+		}
+		
+		return new PricedPath(path, distances[target]);
+	}
+	
+	/**
+	 *
+	 * @return How many airports were settled by the last search.
+	 */
+	public int getSettledCount() {
+		return settledCount;
+	}
+	
+	/**
+	 * @param i Position, below <code><b>getSettledCount()</b></code>.
+	 * @return Row/column offset of the <code><b>i</b></code>-th airport settled by the last search.
+	 */
+	public int getSettled(int i) {
+		return settledOrder[i];
+	}
+}
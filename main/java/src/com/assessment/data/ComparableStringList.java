@@ -6,8 +6,10 @@ import java.util.LinkedList;
 /**
  * <p>This class helps to compare linked list of strings.</p>
  * @author rsolano
+ * @deprecated Roundtrips are no longer deduplicated through hash sets of string lists, since each one is enumerated once.
  *
  */
+@Deprecated
 public class ComparableStringList extends LinkedList<String> implements Comparable<ComparableStringList>{
 
 	private static final long serialVersionUID = 1643523667638289070L;
@@ -0,0 +1,159 @@
+package com.assessment.data;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * <p>Read optimized fare table whose rows are compressed into one byte array.</p>
+ * <p>Each airport's row lists the airports it shares a direct flight with (in either direction), sorted by row/column offset,
+ * cut into blocks of <code><b>BLOCK_SIZE</b></code> entries. Within a block every entry is a varint fare, followed (but for the
+ * first entry, whose airport is kept in the block index) by the varint difference between its airport and the previous one.
+ * Lookups binary search the block index of the row and decode a single block.</p>
+ * <p>Fares and airport differences below 128 take one byte, so a flight usually takes two or three bytes instead of the eight of
+ * <code><b>OffHeapFareTable</b></code> or the square growth of the dense table.</p>
+ * @author rsolano
+ *
+ */
+public class CompressedFareTable implements FareTable {
+
+	/**
+	 * How many entries a block has (the last block of a row may have fewer).
+	 */
+	public static final int BLOCK_SIZE = 16;
+
+	/**
+	 * Encoded entries of every block.
+	 */
+	byte[] data;
+
+	/**
+	 * First block of each row; row <i>x</i> spans blocks <b><code>rowBlocks[x]..rowBlocks[x+1]-1</code></b>.
+	 */
+	int[] rowBlocks;
+
+	/**
+	 * Offset into <code><b>data</b></code> of each block, plus the length of <code><b>data</b></code>.
+	 */
+	int[] blockStarts;
+
+	/**
+	 * Row/column offset of the airport of each block's first entry.
+	 */
+	int[] blockTargets;
+
+	/**
+	 * <p>Compresses a fare table.</p>
+	 *
+	 * @param offsets Row offsets; its length is the number of airports plus one.
+	 * @param targets Row/column offsets of the airports of each row, sorted within each row.
+	 * @param fares Fare of each row entry.
+	 */
+	public CompressedFareTable(int[] offsets, int[] targets, int[] fares) {
+		int size = offsets.length - 1;
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(targets.length * 2);
+		int blocks = 0;
+
+		this.rowBlocks = new int[size + 1];
+		this.blockStarts = new int[targets.length + 1];
+		this.blockTargets = new int[targets.length];
+
+		for(int x = 0; x < size; x++) {
+			rowBlocks[x] = blocks;
+
+			for(int i = offsets[x]; i < offsets[x + 1]; i++) {
+				if((i - offsets[x]) % BLOCK_SIZE == 0) {
+					blockStarts[blocks] = buffer.size();
+					blockTargets[blocks++] = targets[i];
+				} else {
+					writeVarint(buffer, targets[i] - targets[i - 1]);
+				}
+				writeVarint(buffer, fares[i]);
+			}
+		}
+
+		rowBlocks[size] = blocks;
+		blockStarts[blocks] = buffer.size();
+
+		this.data = buffer.toByteArray();
+		this.blockStarts = Arrays.copyOf(blockStarts, blocks + 1);
+		this.blockTargets = Arrays.copyOf(blockTargets, blocks);
+	}
+
+	/**
+	 * Writes a non negative number, 7 bits per byte, least significant first; the high bit tells whether more bytes follow.
+	 */
+	private static void writeVarint(ByteArrayOutputStream buffer, int value) {
+		while((value & ~0x7F) != 0) {
+			buffer.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer.write(value);
+	}
+
+	@Override
+	public int length() {
+		return rowBlocks.length - 1;
+	}
+
+	@Override
+	public int get(int x, int y) {
+		int low = rowBlocks[x];
+		int high = rowBlocks[x + 1] - 1;
+		int block = -1;
+
+		while(low <= high) { // Last block whose first airport is not after y.
+			int middle = (low + high) >>> 1;
+
+			if(blockTargets[middle] <= y) {
+				block = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		if(block == -1) {
+			return 0;
+		}
+
+		byte[] data = this.data;
+		int position = blockStarts[block];
+		int end = blockStarts[block + 1];
+		int target = blockTargets[block];
+
+		while(true) {
+			int fare = 0;
+			int shift = 0;
+			byte b;
+
+			do {
+				b = data[position++];
+				fare |= (b & 0x7F) << shift;
+				shift += 7;
+			} while(b < 0);
+
+			if(target >= y || position == end) {
+				return target == y ? fare : 0;
+			}
+
+			int delta = 0;
+
+			shift = 0;
+			do {
+				b = data[position++];
+				delta |= (b & 0x7F) << shift;
+				shift += 7;
+			} while(b < 0);
+
+			target += delta;
+		}
+	}
+
+	/**
+	 *
+	 * @return How many bytes the encoded entries take.
+	 */
+	public int getEncodedSize() {
+		return data.length;
+	}
+}
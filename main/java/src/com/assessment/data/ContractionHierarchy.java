@@ -0,0 +1,847 @@
+package com.assessment.data;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * <p>Contraction hierarchies index for cheapest connection lookups.</p>
+ * <p>Airports are contracted one by one, least important first (edge difference plus contracted neighbors, updated lazily).
+ * Contracting an airport adds a shortcut <i>u&rarr;w</i> for each connection <i>u&rarr;v&rarr;w</i> that has no cheaper
+ * or equal witness avoiding <i>v</i>. Queries then run two upward searches, one from the departure airport over links
+ * towards more important airports and one from the arrival airport over reversed links from more important airports,
+ * and meet at the most important airport of the cheapest connection. Shortcuts remember the airport they bypass, so
+ * connections are unpacked back into their original flights.</p>
+ * <p>The index can be built once, saved (<code><b>save</b></code>) and loaded at startup (<code><b>load</b></code>); it is 
+ * stored as plain primitive arrays rather than with Java serialization, so loading a file never instantiates other classes. 
+ * Roundtrips are not handled by this index.</p>
+ * @author rsolano
+ *
+ */
+public class ContractionHierarchy {
+
+	/**
+	 * First word of a saved index: <code><b>"FCH"</b></code> followed by the version of the format.
+	 */
+	private static final int MAGIC = 0x46434801;
+
+	/**
+	 * Length of the first chunk read for an array, so that a corrupted length fails at the end of the file instead of allocating it.
+	 */
+	private static final int READ_CHUNK = 1 << 16;
+
+	/**
+	 * Maximum number of airports settled by a witness search; above it, the shortcut is added anyway.
+	 */
+	private static final int WITNESS_SETTLE_LIMIT = 64;
+
+	/**
+	 * Marks links that are original flights rather than shortcuts.
+	 */
+	private static final int NO_MIDDLE = -1;
+
+	/**
+	 * Fingerprint of the adjacency matrix this index was built from (see <code><b>fingerprint</b></code>).
+	 */
+	long fingerprint;
+
+	/**
+	 * Contraction order of each airport (row/column offset); higher means more important.
+	 */
+	int[] ranks;
+
+	/**
+	 * Offsets into the upward arrays, by departure airport.
+	 */
+	int[] upOffsets;
+
+	/**
+	 * Arrival airport of each upward link.
+	 */
+	int[] upTargets;
+
+	/**
+	 * Fare of each upward link.
+	 */
+	int[] upFares;
+
+	/**
+	 * Airport bypassed by each upward link, or <code><b>NO_MIDDLE</b></code>.
+	 */
+	int[] upMiddles;
+
+	/**
+	 * Offsets into the downward arrays, by arrival airport.
+	 */
+	int[] downOffsets;
+
+	/**
+	 * Departure airport of each downward link.
+	 */
+	int[] downSources;
+
+	/**
+	 * Fare of each downward link.
+	 */
+	int[] downFares;
+
+	/**
+	 * Airport bypassed by each downward link, or <code><b>NO_MIDDLE</b></code>.
+	 */
+	int[] downMiddles;
+
+	/**
+	 * Per thread search buffers; built on demand.
+	 */
+	private ThreadLocal<SearchState> searchState;
+
+	/**
+	 * <p>Creates an empty index, filled by <code><b>load</b></code>.</p>
+	 */
+	private ContractionHierarchy() {
+	}
+
+	/**
+	 * <p>Builds the index.</p>
+	 *
+	 * @param adjacencyMatrix Adjacency matrix whose weights are the flight fares.
+	 */
+	public ContractionHierarchy(AdjacencyMatrix adjacencyMatrix) {
+		int size = adjacencyMatrix.length();
+		List<Map<Integer, int[]>> outgoing = new ArrayList<Map<Integer, int[]>>(size);
+		List<Map<Integer, int[]>> incoming = new ArrayList<Map<Integer, int[]>>(size);
+
+		for(int v = 0; v < size; v++) {
+			outgoing.add(new HashMap<Integer, int[]>());
+			incoming.add(new HashMap<Integer, int[]>());
+		}
+
+		for(int v = 0; v < size; v++) {
+			for(int i = 0; i < adjacencyMatrix.outDegree(v); i++) {
+				int w = adjacencyMatrix.successor(v, i);
+				int[] link = {adjacencyMatrix.get(v, w), NO_MIDDLE};
+
+				outgoing.get(v).put(w, link);
+				incoming.get(w).put(v, link);
+			}
+		}
+
+		this.fingerprint = fingerprint(adjacencyMatrix);
+		this.ranks = contract(size, outgoing, incoming);
+		createSearchGraphs(size, outgoing);
+	}
+
+	/**
+	 * <p>Contracts all airports, adding the needed shortcuts to <code><b>outgoing</b></code> and <code><b>incoming</b></code>.</p>
+	 *
+	 * @param size Number of airports.
+	 * @param outgoing Links (fare and bypassed airport) by departure and arrival airport.
+	 * @param incoming Same links as <code><b>outgoing</b></code>, by arrival and departure airport.
+	 * @return Contraction order of each airport.
+	 */
+	private static int[] contract(int size, List<Map<Integer, int[]>> outgoing, List<Map<Integer, int[]>> incoming) {
+		int[] ranks = new int[size];
+		int[] contractedNeighbors = new int[size];
+		boolean[] contracted = new boolean[size];
+		LongHeap order = new LongHeap(size);
+		Witness witness = new Witness(size);
+
+		for(int v = 0; v < size; v++) {
+			order.push(LongHeap.key(priority(v, outgoing, incoming, contracted, contractedNeighbors, witness), v));
+		}
+
+		for(int rank = 0; rank < size; ) {
+			long key = order.pop();
+			int v = LongHeap.value(key);
+
+			if(contracted[v]) {
+				continue;
+			}
+
+			int current = priority(v, outgoing, incoming, contracted, contractedNeighbors, witness);
+
+			if(!order.isEmpty() && current > LongHeap.priority(key)) { // Lazy update: someone else may be cheaper now.
+				order.push(LongHeap.key(current, v));
+				continue;
+			}
+
+			shortcuts(v, outgoing, incoming, contracted, witness, true);
+			contracted[v] = true;
+			ranks[v] = rank++;
+
+			for(int u: incoming.get(v).keySet()) {
+				contractedNeighbors[u]++;
+			}
+			for(int w: outgoing.get(v).keySet()) {
+				contractedNeighbors[w]++;
+			}
+		}
+
+		return ranks;
+	}
+
+	/**
+	 * @return Contraction priority of <code><b>v</b></code>: edge difference plus contracted neighbors, shifted to be non negative.
+	 */
+	private static int priority(int v, List<Map<Integer, int[]>> outgoing, List<Map<Integer, int[]>> incoming, boolean[] contracted, int[] contractedNeighbors, Witness witness) {
+		int removed = 0;
+
+		for(int u: incoming.get(v).keySet()) {
+			if(!contracted[u]) removed++;
+		}
+		for(int w: outgoing.get(v).keySet()) {
+			if(!contracted[w]) removed++;
+		}
+
+		int added = shortcuts(v, outgoing, incoming, contracted, witness, false);
+
+		return Math.max(0, added - removed + contractedNeighbors[v] + (1 << 20));
+	}
+
+	/**
+	 * <p>Finds (and optionally adds) the shortcuts needed to contract <code><b>v</b></code>.</p>
+	 *
+	 * @param v Airport being contracted.
+	 * @param outgoing Links by departure and arrival airport.
+	 * @param incoming Links by arrival and departure airport.
+	 * @param contracted Airports already contracted.
+	 * @param witness Buffers for witness searches.
+	 * @param add <code><b>true</b></code> to add the shortcuts, <code><b>false</b></code> to only count them.
+	 * @return How many shortcuts are needed.
+	 */
+	private static int shortcuts(int v, List<Map<Integer, int[]>> outgoing, List<Map<Integer, int[]>> incoming, boolean[] contracted, Witness witness, boolean add) {
+		int count = 0;
+		int maxOut = 0;
+
+		for(Entry<Integer, int[]> out: outgoing.get(v).entrySet()) {
+			if(!contracted[out.getKey()]) {
+				maxOut = Math.max(maxOut, out.getValue()[0]);
+			}
+		}
+
+		for(Entry<Integer, int[]> in: incoming.get(v).entrySet()) {
+			int u = in.getKey();
+
+			if(contracted[u]) {
+				continue;
+			}
+
+			int toV = in.getValue()[0];
+
+			witness.search(u, v, toV + maxOut, outgoing, contracted);
+
+			for(Entry<Integer, int[]> out: outgoing.get(v).entrySet()) {
+				int w = out.getKey();
+				int fare = toV + out.getValue()[0];
+
+				if(w == u || contracted[w] || witness.distance(w) <= fare) {
+					continue;
+				}
+
+				count++;
+
+				if(add) {
+					int[] existing = outgoing.get(u).get(w);
+
+					if(existing == null || existing[0] > fare) {
+						int[] link = {fare, v};
+
+						outgoing.get(u).put(w, link);
+						incoming.get(w).put(u, link);
+					}
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * <p>Creates the upward and downward search graphs from all links (flights and shortcuts).</p>
+	 *
+	 * @param size Number of airports.
+	 * @param outgoing Links by departure and arrival airport.
+	 */
+	private void createSearchGraphs(int size, List<Map<Integer, int[]>> outgoing) {
+		int upCount = 0;
+		int downCount = 0;
+
+		this.upOffsets = new int[size + 1];
+		this.downOffsets = new int[size + 1];
+
+		for(int v = 0; v < size; v++) {
+			for(int w: outgoing.get(v).keySet()) {
+				if(ranks[w] > ranks[v]) {
+					upOffsets[v + 1]++;
+					upCount++;
+				} else {
+					downOffsets[w + 1]++;
+					downCount++;
+				}
+			}
+		}
+
+		for(int v = 0; v < size; v++) {
+			upOffsets[v + 1] += upOffsets[v];
+			downOffsets[v + 1] += downOffsets[v];
+		}
+
+		int[] upNext = Arrays.copyOf(upOffsets, size);
+		int[] downNext = Arrays.copyOf(downOffsets, size);
+
+		this.upTargets = new int[upCount];
+		this.upFares = new int[upCount];
+		this.upMiddles = new int[upCount];
+		this.downSources = new int[downCount];
+		this.downFares = new int[downCount];
+		this.downMiddles = new int[downCount];
+
+		for(int v = 0; v < size; v++) {
+			for(Entry<Integer, int[]> link: outgoing.get(v).entrySet()) {
+				int w = link.getKey();
+
+				if(ranks[w] > ranks[v]) {
+					int i = upNext[v]++;
+
+					upTargets[i] = w;
+					upFares[i] = link.getValue()[0];
+					upMiddles[i] = link.getValue()[1];
+				} else {
+					int i = downNext[w]++;
+
+					downSources[i] = v;
+					downFares[i] = link.getValue()[0];
+					downMiddles[i] = link.getValue()[1];
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Computes a fingerprint of the airports, flights and fares of a matrix, such that a saved index can be checked
+	 * against the network it is used with.</p>
+	 *
+	 * @param adjacencyMatrix Adjacency matrix whose weights are the flight fares.
+	 * @return A 64 bit hash.
+	 */
+	public static long fingerprint(AdjacencyMatrix adjacencyMatrix) {
+		long hash = 0xcbf29ce484222325L;
+
+		for(int v = 0; v < adjacencyMatrix.length(); v++) {
+			hash = (hash ^ adjacencyMatrix.getCode(v).hashCode()) * 0x100000001b3L;
+
+			for(int i = 0; i < adjacencyMatrix.outDegree(v); i++) {
+				int w = adjacencyMatrix.successor(v, i);
+
+				hash = (hash ^ w) * 0x100000001b3L;
+				hash = (hash ^ adjacencyMatrix.get(v, w)) * 0x100000001b3L;
+			}
+		}
+
+		return hash;
+	}
+
+	/**
+	 * @param adjacencyMatrix Adjacency matrix whose weights are the flight fares.
+	 * @return <code><b>true</b></code> if this index was built from an identical network.
+	 */
+	public boolean matches(AdjacencyMatrix adjacencyMatrix) {
+		return ranks.length == adjacencyMatrix.length() && fingerprint == fingerprint(adjacencyMatrix);
+	}
+
+	/**
+	 * <p>Finds the cheapest connection between two different airports.</p>
+	 *
+	 * @param source Row/column offset of the departure airport.
+	 * @param target Row/column offset of the arrival airport.
+	 * @return The cheapest connection or <code><b>null</b></code> if there is none.
+	 * @throws IllegalArgumentException If both ends are the same airport.
+	 */
+	public PricedPath search(int source, int target) {
+		if(source == target) {
+			throw new IllegalArgumentException("Roundtrips are not handled by contraction hierarchies");
+		}
+
+		SearchState state = state();
+		int best = Landmarks.UNREACHABLE;
+		int meeting = -1;
+
+		state.reset();
+		state.forward.start(source);
+		state.backward.start(target);
+
+		while(!state.forward.done(best) || !state.backward.done(best)) {
+			SearchDirection direction = state.forward.done(best) ? state.backward : (state.backward.done(best) ? state.forward : (state.forward.top() <= state.backward.top() ? state.forward : state.backward));
+			SearchDirection other = direction == state.forward ? state.backward : state.forward;
+			int v = direction.settle(this);
+
+			if(v >= 0 && other.distances[v] != Landmarks.UNREACHABLE && direction.distances[v] + other.distances[v] < best) {
+				best = direction.distances[v] + other.distances[v];
+				meeting = v;
+			}
+		}
+
+		if(meeting == -1) {
+			return null;
+		}
+
+		List<Integer> path = new ArrayList<Integer>();
+
+		for(int v = meeting; v != source; v = state.forward.parents[v]) {
+			unpack(state.forward.parents[v], v, path, true);
+		}
+		Collections.reverse(path);
+		path.add(0, source);
+
+		for(int v = meeting; v != target; v = state.backward.parents[v]) {
+			unpack(v, state.backward.parents[v], path, false);
+		}
+
+		int[] result = new int[path.size()];
+
+		for(int i = 0; i < result.length; i++) {
+			result[i] = path.get(i);
+		}
+
+		return new PricedPath(result, best);
+	}
+
+	/**
+	 * <p>Replaces a link by the original flights it stands for.</p>
+	 *
+	 * @param from Departure airport of the link.
+	 * @param to Arrival airport of the link.
+	 * @param path Receives the airports after <code><b>from</b></code>, up to <code><b>to</b></code>.
+	 * @param reversed <code><b>true</b></code> to append those airports in reverse order.
+	 */
+	private void unpack(int from, int to, List<Integer> path, boolean reversed) {
+		int middle = middle(from, to);
+
+		if(middle == NO_MIDDLE) {
+			path.add(to);
+		} else if(reversed) {
+			unpack(middle, to, path, true);
+			unpack(from, middle, path, true);
+		} else {
+			unpack(from, middle, path, false);
+			unpack(middle, to, path, false);
+		}
+	}
+
+	/**
+	 * @return The airport bypassed by the link <code><b>from&rarr;to</b></code>, or <code><b>NO_MIDDLE</b></code>.
+	 */
+	private int middle(int from, int to) {
+		if(ranks[to] > ranks[from]) {
+			for(int i = upOffsets[from]; i < upOffsets[from + 1]; i++) {
+				if(upTargets[i] == to) {
+					return upMiddles[i];
+				}
+			}
+		} else {
+			for(int i = downOffsets[to]; i < downOffsets[to + 1]; i++) {
+				if(downSources[i] == from) {
+					return downMiddles[i];
+				}
+			}
+		}
+
+		throw new IllegalStateException(String.format("No link exists between %d and %d", from, to));
+	}
+
+	/**
+	 * @return Search buffers of the calling thread.
+	 */
+	private synchronized SearchState state() {
+		if(searchState == null) {
+			searchState = new ThreadLocal<SearchState>();
+		}
+
+		SearchState state = searchState.get();
+
+		if(state == null) {
+			state = new SearchState(ranks.length);
+			searchState.set(state);
+		}
+		return state;
+	}
+
+	/**
+	 *
+	 * @return How many airports were settled by the last search of the calling thread.
+	 */
+	public int getSettledCount() {
+		SearchState state = state();
+		
+		return state.forward.settled + state.backward.settled;
+	}
+
+	/**
+	 * <p>Saves this index.</p>
+	 *
+	 * @param output Where the index is written; it isn't closed.
+	 * @throws IOException If <code><b>output</b></code> can't be written.
+	 */
+	public void save(OutputStream output) throws IOException {
+		DataOutputStream stream = new DataOutputStream(output);
+
+		stream.writeInt(MAGIC);
+		stream.writeLong(fingerprint);
+
+		for(int[] array: new int[][] {ranks, upOffsets, upTargets, upFares, upMiddles, downOffsets, downSources, downFares, downMiddles}) {
+			stream.writeInt(array.length);
+
+			for(int value: array) {
+				stream.writeInt(value);
+			}
+		}
+		stream.flush();
+	}
+
+	/**
+	 * <p>Loads an index saved with <code><b>save</b></code>.</p>
+	 *
+	 * @param input Where the index is read from; it isn't closed.
+	 * @return The loaded index.
+	 * @throws IOException If <code><b>input</b></code> can't be read or doesn't contain a consistent index.
+	 */
+	public static ContractionHierarchy load(InputStream input) throws IOException {
+		DataInputStream stream = new DataInputStream(input);
+		ContractionHierarchy index = new ContractionHierarchy();
+
+		if(stream.readInt() != MAGIC) {
+			throw new IOException("Invalid contraction hierarchies index");
+		}
+
+		index.fingerprint = stream.readLong();
+		index.ranks = read(stream);
+		index.upOffsets = read(stream);
+		index.upTargets = read(stream);
+		index.upFares = read(stream);
+		index.upMiddles = read(stream);
+		index.downOffsets = read(stream);
+		index.downSources = read(stream);
+		index.downFares = read(stream);
+		index.downMiddles = read(stream);
+
+		int size = index.ranks.length;
+
+		for(int rank: index.ranks) {
+			if(rank < 0 || rank >= size) {
+				throw new IOException("Invalid contraction hierarchies index");
+			}
+		}
+		validate(size, index.upOffsets, index.upTargets, index.upFares, index.upMiddles);
+		validate(size, index.downOffsets, index.downSources, index.downFares, index.downMiddles);
+
+		return index;
+	}
+
+	/**
+	 * @param stream Where the array is read from: its length and then its elements.
+	 * @return The array.
+	 * @throws IOException If the array can't be read.
+	 */
+	private static int[] read(DataInputStream stream) throws IOException {
+		int length = stream.readInt();
+
+		if(length < 0) {
+			throw new IOException("Invalid contraction hierarchies index");
+		}
+
+		int[] array = new int[Math.min(length, READ_CHUNK)];
+
+		for(int i = 0; i < length; i++) {
+			if(i == array.length) {
+				array = Arrays.copyOf(array, (int)Math.min(2L * i, length));
+			}
+			array[i] = stream.readInt();
+		}
+		return array;
+	}
+
+	/**
+	 * <p>Checks that loaded links can be searched without leaving their arrays.</p>
+	 *
+	 * @throws IOException If the offsets, airports or bypassed airports are out of range.
+	 */
+	private static void validate(int size, int[] offsets, int[] ends, int[] fares, int[] middles) throws IOException {
+		boolean valid = offsets.length == size + 1 && offsets[0] == 0 && offsets[size] == ends.length
+			&& fares.length == ends.length && middles.length == ends.length;
+
+		for(int v = 0; valid && v < size; v++) {
+			valid = offsets[v] <= offsets[v + 1];
+		}
+
+		for(int i = 0; valid && i < ends.length; i++) {
+			valid = ends[i] >= 0 && ends[i] < size && fares[i] > 0 && (middles[i] == NO_MIDDLE || (middles[i] >= 0 && middles[i] < size));
+		}
+
+		if(!valid) {
+			throw new IOException("Invalid contraction hierarchies index");
+		}
+	}
+
+	/**
+	 * <p>Bounded Dijkstra search used to look for witnesses while contracting.</p>
+	 */
+	private static class Witness {
+
+		/**
+		 * Cheapest known fares; valid only for airports in <code><b>touched</b></code>.
+		 */
+		int[] distances;
+
+		/**
+		 * Airports whose fare was set by the last search.
+		 */
+		int[] touched;
+
+		/**
+		 * How many airports are stored in <code><b>touched</b></code>.
+		 */
+		int touchedCount;
+
+		/**
+		 * Pending airports.
+		 */
+		LongHeap heap;
+
+		/**
+		 * @param size Number of airports.
+		 */
+		Witness(int size) {
+			this.distances = new int[size];
+			this.touched = new int[size];
+			this.heap = new LongHeap(16);
+			Arrays.fill(distances, Landmarks.UNREACHABLE);
+		}
+
+		/**
+		 * <p>Computes fares from <code><b>source</b></code> without going through <code><b>excluded</b></code> or contracted airports.</p>
+		 */
+		void search(int source, int excluded, int limit, List<Map<Integer, int[]>> outgoing, boolean[] contracted) {
+			int settled = 0;
+
+			for(int i = 0; i < touchedCount; i++) {
+				distances[touched[i]] = Landmarks.UNREACHABLE;
+			}
+			touchedCount = 0;
+			heap.clear();
+
+			update(source, 0);
+			heap.push(LongHeap.key(0, source));
+
+			while(!heap.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+				long key = heap.pop();
+				int v = LongHeap.value(key);
+				int distance = LongHeap.priority(key);
+
+				if(distance > distances[v]) {
+					continue;
+				}
+				if(distance > limit) {
+					break;
+				}
+				settled++;
+
+				for(Entry<Integer, int[]> link: outgoing.get(v).entrySet()) {
+					int w = link.getKey();
+					int candidate = distance + link.getValue()[0];
+
+					if(w != excluded && !contracted[w] && candidate < distances[w]) {
+						update(w, candidate);
+						heap.push(LongHeap.key(candidate, w));
+					}
+				}
+			}
+		}
+
+		/**
+		 * @return Fare found by the last search, or <code><b>Landmarks.UNREACHABLE</b></code>.
+		 */
+		int distance(int v) {
+			return distances[v];
+		}
+
+		/**
+		 * Sets a fare, remembering the airport so it can be reset.
+		 */
+		private void update(int v, int distance) {
+			if(distances[v] == Landmarks.UNREACHABLE) {
+				touched[touchedCount++] = v;
+			}
+			distances[v] = distance;
+		}
+	}
+
+	/**
+	 * <p>One side of a query: an upward Dijkstra search over either the upward or the (reversed) downward links.</p>
+	 */
+	private static class SearchDirection {
+
+		/**
+		 * <code><b>true</b></code> for the search from the departure airport.
+		 */
+		boolean forward;
+
+		/**
+		 * Cheapest known fares; valid only for airports in <code><b>touched</b></code>.
+		 */
+		int[] distances;
+
+		/**
+		 * Previous airport in the search tree.
+		 */
+		int[] parents;
+
+		/**
+		 * Airports whose fare was set by the last search.
+		 */
+		int[] touched;
+
+		/**
+		 * How many airports are stored in <code><b>touched</b></code>.
+		 */
+		int touchedCount;
+
+		/**
+		 * How many airports were settled by the last search.
+		 */
+		int settled;
+
+		/**
+		 * Pending airports.
+		 */
+		LongHeap heap = new LongHeap(16);
+
+		/**
+		 * @param size Number of airports.
+		 * @param forward <code><b>true</b></code> for the search from the departure airport.
+		 */
+		SearchDirection(int size, boolean forward) {
+			this.forward = forward;
+			this.distances = new int[size];
+			this.parents = new int[size];
+			this.touched = new int[size];
+			Arrays.fill(distances, Landmarks.UNREACHABLE);
+		}
+
+		/**
+		 * Forgets the last search.
+		 */
+		void reset() {
+			for(int i = 0; i < touchedCount; i++) {
+				distances[touched[i]] = Landmarks.UNREACHABLE;
+			}
+			touchedCount = 0;
+			settled = 0;
+			heap.clear();
+		}
+
+		/**
+		 * @param v Airport where the search starts.
+		 */
+		void start(int v) {
+			update(v, 0, v);
+		}
+
+		/**
+		 * @param best Cheapest connection found so far.
+		 * @return <code><b>true</b></code> if this side can't improve <code><b>best</b></code> anymore.
+		 */
+		boolean done(int best) {
+			return heap.isEmpty() || top() >= best;
+		}
+
+		/**
+		 * @return Fare of the next airport to be settled.
+		 */
+		int top() {
+			return LongHeap.priority(heap.peek());
+		}
+
+		/**
+		 * <p>Settles the next airport and relaxes its links.</p>
+		 *
+		 * @return The settled airport, or -1 if the popped entry was stale.
+		 */
+		int settle(ContractionHierarchy index) {
+			long key = heap.pop();
+			int v = LongHeap.value(key);
+			int distance = LongHeap.priority(key);
+
+			if(distance > distances[v]) {
+				return -1;
+			}
+			settled++;
+
+			if(forward) {
+				for(int i = index.upOffsets[v]; i < index.upOffsets[v + 1]; i++) {
+					update(index.upTargets[i], distance + index.upFares[i], v);
+				}
+			} else {
+				for(int i = index.downOffsets[v]; i < index.downOffsets[v + 1]; i++) {
+					update(index.downSources[i], distance + index.downFares[i], v);
+				}
+			}
+
+			return v;
+		}
+
+		/**
+		 * Lowers the fare of <code><b>v</b></code> if <code><b>distance</b></code> is cheaper.
+		 */
+		private void update(int v, int distance, int parent) {
+			if(distances[v] == Landmarks.UNREACHABLE) {
+				touched[touchedCount++] = v;
+			} else if(distance >= distances[v]) {
+				return;
+			}
+			distances[v] = distance;
+			parents[v] = parent;
+			heap.push(LongHeap.key(distance, v));
+		}
+	}
+
+	/**
+	 * <p>Buffers of both query directions.</p>
+	 */
+	private static class SearchState {
+
+		/**
+		 * Search from the departure airport.
+		 */
+		SearchDirection forward;
+
+		/**
+		 * Search from the arrival airport.
+		 */
+		SearchDirection backward;
+
+		/**
+		 * @param size Number of airports.
+		 */
+		SearchState(int size) {
+			this.forward = new SearchDirection(size, true);
+			this.backward = new SearchDirection(size, false);
+		}
+
+		/**
+		 * Forgets the last query.
+		 */
+		void reset() {
+			forward.reset();
+			backward.reset();
+		}
+	}
+}
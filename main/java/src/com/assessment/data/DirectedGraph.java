@@ -1,6 +1,6 @@
 package com.assessment.data;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -23,6 +23,42 @@ public class DirectedGraph {
 	 * <p>This map keeps track of adjacent nodes.</p>
 	 */
     private Map<String, LinkedHashSet<String>> map = new HashMap<String, LinkedHashSet<String>>();
+    
+	/**
+	 * <p>This map keeps track of incoming nodes (reverse adjacency); it mirrors <code><b>map</b></code>.</p>
+	 */
+    private Map<String, LinkedHashSet<String>> reverseMap = new HashMap<String, LinkedHashSet<String>>();
+    
+	/**
+	 * <p>Matrix this graph was built from, whose reachability index is shared (see <code><b>components</b></code>); 
+	 * <code><b>null</b></code> if the graph was built by hand or links were added afterwards.</p>
+	 */
+    private AdjacencyMatrix adjacencyMatrix;
+    
+	/**
+	 * <p>Dense index of the airport codes, used by <code><b>components</b></code>; <code><b>null</b></code> until needed.</p>
+	 */
+    private volatile Map<String, Integer> componentIndex;
+    
+	/**
+	 * <p>Strongly connected components and condensation of this graph; <code><b>null</b></code> until needed and whenever a link is added.</p>
+	 */
+    private volatile ReachabilityIndex components;
+    
+    /**
+     * <p>Creates an empty graph.</p>
+     */
+    public DirectedGraph() {
+    }
+    
+    /**
+     * <p>Creates an empty graph whose links will be those of a matrix, so that it shares the matrix's reachability index.</p>
+     * 
+     * @param adjacencyMatrix Matrix whose links are added next.
+     */
+    DirectedGraph(AdjacencyMatrix adjacencyMatrix) {
+    	this.adjacencyMatrix = adjacencyMatrix;
+    }
 
     /**
      * <p>Adds an unidirectional link between two airports.</p>
@@ -37,6 +73,19 @@ public class DirectedGraph {
             map.put(sourceCode, adjacent);
         }
         adjacent.add(destinationCode);
+        
+        LinkedHashSet<String> incoming = reverseMap.get(destinationCode);
+        if(incoming==null) {
+        	incoming = new LinkedHashSet<String>();
+        	reverseMap.put(destinationCode, incoming);
+        }
+        incoming.add(sourceCode);
+        
+        if(components != null) { // Links added after the graph was queried are no longer those of the matrix.
+        	adjacencyMatrix = null;
+        }
+        components = null;
+        componentIndex = null;
     }
 
     /**
@@ -79,6 +128,141 @@ public class DirectedGraph {
         return new LinkedList<String>(adjacent);
     }
     
+    /**
+     * <p>This function retrieves a list of all airports having a link to <b><code>airportCode</code></b></p>,
+     * 
+     * @param airportCode Airport code whose incoming airports we need to know.
+     * @return a linked list of strings containing the codes of the airports linked to <b><code>airportCode</code></b>.
+     */
+    public LinkedList<String> incomingAirportCodes(String airportCode) {
+        LinkedHashSet<String> incoming = reverseMap.get(airportCode);
+        if(incoming==null) {
+            return new LinkedList<String>();
+        }
+        return new LinkedList<String>(incoming);
+    }
+    
+    /**
+     * <p>Internal, non copying view of the airports adjacent to <b><code>airportCode</code></b>; used by search engines in this package.</p>
+     * 
+     * @param airportCode Airport code whose adjacent airports we need to know.
+     * @return The set maintained internally (it must not be modified) or an empty set.
+     */
+    Set<String> adjacent(String airportCode) {
+    	Set<String> adjacent = map.get(airportCode);
+    	return adjacent == null ? Collections.<String>emptySet() : adjacent;
+    }
+    
+    /**
+     * <p>Internal, non copying view of the airports having a link to <b><code>airportCode</code></b>; used by search engines in this package.</p>
+     * 
+     * @param airportCode Airport code whose incoming airports we need to know.
+     * @return The set maintained internally (it must not be modified) or an empty set.
+     */
+    Set<String> incoming(String airportCode) {
+    	Set<String> incoming = reverseMap.get(airportCode);
+    	return incoming == null ? Collections.<String>emptySet() : incoming;
+    }
+    
+    /**
+     * <p>Decomposes this graph in strongly connected components (see <code><b>ReachabilityIndex</b></code>) the first time 
+     * it is needed after a change. A graph built from a matrix reuses <code><b>AdjacencyMatrix.getReachabilityIndex</b></code>.</p>
+     * 
+     * @return The strongly connected components and the reachability of their condensation.
+     */
+    private ReachabilityIndex components() {
+    	ReachabilityIndex reachability = components;
+    	
+    	if(reachability == null) {
+    		synchronized(this) {
+    			if(components == null) {
+    				createComponents();
+    			}
+    			reachability = components;
+    		}
+    	}
+    	return reachability;
+    }
+    
+    /**
+     * <p>Fills <code><b>componentIndex</b></code> and then <code><b>components</b></code>.</p>
+     */
+    private void createComponents() {
+    	if(adjacencyMatrix != null) {
+    		componentIndex = adjacencyMatrix.connectionsIndex;
+    		components = adjacencyMatrix.getReachabilityIndex();
+    	} else {
+    			Map<String, Integer> index = new HashMap<String, Integer>();
+    		
+    			for(String airportCode: map.keySet()) {
+    				index.put(airportCode, index.size());
+    			}
+    			for(String airportCode: reverseMap.keySet()) {
+    				if(!index.containsKey(airportCode)) {
+    					index.put(airportCode, index.size());
+    				}
+    			}
+    		
+    			int[] offsets = new int[index.size() + 1];
+    			int[] successors;
+    		
+    			for(Map.Entry<String, LinkedHashSet<String>> entry: map.entrySet()) {
+    				offsets[index.get(entry.getKey()) + 1] = entry.getValue().size();
+    			}
+    			for(int i = 0; i < index.size(); i++) {
+    				offsets[i + 1] += offsets[i];
+    			}
+    		
+    			successors = new int[offsets[index.size()]];
+    		
+    			for(Map.Entry<String, LinkedHashSet<String>> entry: map.entrySet()) {
+    				int position = offsets[index.get(entry.getKey())];
+    			
+    				for(String airportCode: entry.getValue()) {
+    					successors[position++] = index.get(airportCode);
+    				}
+    			}
+    		
+    		componentIndex = index;
+    		components = new ReachabilityIndex(index.size(), offsets, successors);
+    	}
+    }
+    
+    /**
+     * @param airportCode Airport code.
+     * @return The strongly connected component of the airport, or -1 if it has no links.
+     */
+    int component(String airportCode) {
+    	ReachabilityIndex reachability = components();
+    	Integer index = componentIndex.get(airportCode);
+    	
+    	return index == null ? -1 : reachability.getComponent(index);
+    }
+    
+    /**
+     * <p>Tells, in O(1), whether any path leads from an airport to another one (or if both are the same airport).</p>
+     * 
+     * @param airportCode Starting airport code.
+     * @param destinationCode Ending airport code.
+     * @return <code><b>false</b></code> if no path exists or any of the airports has no links.
+     */
+    boolean canReach(String airportCode, String destinationCode) {
+    	return reaches(airportCode, component(destinationCode));
+    }
+    
+    /**
+     * <p>Like <code><b>canReach</b></code>, for searches that look up the destination's component once.</p>
+     * 
+     * @param airportCode Starting airport code.
+     * @param destinationComponent Strongly connected component of the ending airport (see <code><b>component</b></code>).
+     * @return <code><b>false</b></code> if no path exists or any of the airports has no links.
+     */
+    boolean reaches(String airportCode, int destinationComponent) {
+    	int component = component(airportCode);
+    	
+    	return component != -1 && destinationComponent != -1 && components().componentReaches(component, destinationComponent);
+    }
+    
     /**
      * <p>Retrieves all airport codes.</p>
      * 
@@ -103,31 +287,33 @@ public class DirectedGraph {
     
     /**
      * <p>Detects if there is a connection from <code><b>airportCodes[0]</b></code> to <code><b>airportCodes[airportCodes.length-1]</b></code> that goes through the intermediate points</p>
+     * <p>The legs are walked directly, so the cost is one link lookup per leg instead of enumerating every path between the terminal airports.</p>
+     * 
      * @param graph The directed graph wherein paths are sought
      * @param airportCodes A non null array of strings.
-     * @return <code><b>true</b></code> if and only if there exist a connection containing all the codes in <code><b>airportCodes</b></code> in the same order they are therein.
+     * @return <code><b>true</b></code> if and only if there exist a connection containing all the codes in <code><b>airportCodes</b></code> in the same order they are therein; 
+     * connections never repeat a stop, except for roundtrips which end at their starting airport.
      */    
    static public boolean connectionExists(DirectedGraph graph, String... airportCodes) {
+	   	int last = airportCodes.length - 1;
+	   	Set<String> visited = new HashSet<String>();
+	   	
+	   	if(last < 1) {
+	   		return false;
+	   	}
     	
-    	String start = airportCodes[0];
-    	String end = airportCodes[airportCodes.length-1];
-    	List<LinkedList<String>> connections = depthFirst(graph, start, end);
-    	
-    	next: for(LinkedList<String> connection: connections) {
-    		int i = 0;
-    		
-    		for(String node: connection) {
-    			if(airportCodes[i].compareTo(node) != 0) {
-    				continue next;
-    			}
-    			i++;
-    		}
-    		
-    		if( i == connection.size())
-    			return true;
-    	}
+	   	for(int i = 0; i < last; i++) {
+	   		
+	   		if(!visited.add(airportCodes[i]) || !graph.isConnected(airportCodes[i], airportCodes[i+1])) {
+	   			return false;
+	   		}
+	   	}
+	   	
+	   	if(visited.contains(airportCodes[last])) { // Only roundtrips may revisit an airport, and only the first one.
+	   		return last > 1 && airportCodes[last].equals(airportCodes[0]);
+	   	}
     	
-    	return false;
+    	return true;
     }
     
     /**
@@ -214,42 +400,103 @@ public class DirectedGraph {
     
     /**
      * <p>Find all roundtrips that start from a specific airport.</p>
+     * <p>Roundtrips are enumerated with Johnson's circuit search rooted at <code><b>sourceCode</b></code>; every elementary 
+     * roundtrip (one that visits each intermediate airport once) is emitted exactly once, so no deduplication is needed.
+     * The search never leaves the strongly connected component of <code><b>sourceCode</b></code>.</p>
      * 
      * @param graph The directed graph wherein paths are sought.
      * @param sourceCode Starting airport code.
      * @return  A list whose elements are sublists. Each sublist represent a roundtrip starting at <code><b>sourceCode</b></code>. 
      */
     static private List<LinkedList<String>> depthFirstRoundTrip(DirectedGraph graph, String sourceCode) {
-		Collection<String> nodes = graph.getAirportCodes();
-		HashSet<ComparableStringList> rounTrips = new HashSet<ComparableStringList>();
+		LinkedList<String> stack = new LinkedList<String>();
+		Set<String> blocked = new HashSet<String>();
+		Map<String, Set<String>> blockedBy = new HashMap<String, Set<String>>();
 		List<LinkedList<String>> result = new ArrayList<LinkedList<String>>();
 		
-		nodes.remove(sourceCode);
+		depthFirstRoundTrip(graph, sourceCode, graph.component(sourceCode), sourceCode, stack, blocked, blockedBy, result);
 		
-		for(String end: nodes){
-			List<LinkedList<String>> departures =  depthFirstNoRoundTrip(graph, sourceCode, end);			
-			List<LinkedList<String>> arrivals =  depthFirstNoRoundTrip(graph, end, sourceCode);
-				
-			for(LinkedList<String> departure: departures) {
-				
-				for(LinkedList<String> arrival: arrivals ) {		
-					ComparableStringList roundTrip = new ComparableStringList();
-										
-					roundTrip.addAll(departure);									
-					roundTrip.addAll(arrival);
-					roundTrip.remove(departure.size()-1);
-					rounTrips.add(roundTrip);
-				}								
-			}			
-		}
-
-		/**
-		 * 
-		 */
-		result.addAll(rounTrips);
 		return result;
 	}
     
+    /**
+     * <p>Recursive step (Johnson's <i>CIRCUIT</i> procedure) for <code><b>depthFirstRoundTrip(DirectedGraph graph, String sourceCode)</b></code>.</p>
+     * 
+     * @param graph The directed graph wherein paths are sought.
+     * @param sourceCode Starting airport code; every roundtrip closes here.
+     * @param component Strongly connected component of <code><b>sourceCode</b></code>; airports outside it can't be part of a roundtrip.
+     * @param airportCode Airport being explored.
+     * @param stack Airports in the current partial roundtrip.
+     * @param blocked Airports that can't currently lead back to <code><b>sourceCode</b></code> without repeating a stop.
+     * @param blockedBy For each airport, the airports that must be unblocked once it gets unblocked.
+     * @param result The resulting list.
+     * @return <code><b>true</b></code> if at least one roundtrip was found through <code><b>airportCode</b></code>.
+     */
+    static private boolean depthFirstRoundTrip(DirectedGraph graph, String sourceCode, int component, String airportCode, LinkedList<String> stack, Set<String> blocked, Map<String, Set<String>> blockedBy, List<LinkedList<String>> result) {
+    	LinkedList<String> nodes = graph.adjacentAirportCodes(airportCode);
+    	boolean found = false;
+    	
+    	stack.addLast(airportCode);
+    	blocked.add(airportCode);
+    	
+    	for(String node: nodes) {
+    		
+    		if(node.equals(sourceCode)) {
+    			
+    			if(stack.size() > 1) { // Self links are not roundtrips.
+    				LinkedList<String> roundTrip = new LinkedList<String>(stack);
+    				
+    				roundTrip.add(sourceCode);
+    				result.add(roundTrip);
+    				found = true;
+    			}
+    			
+    		} else if(!blocked.contains(node) && graph.component(node) == component && depthFirstRoundTrip(graph, sourceCode, component, node, stack, blocked, blockedBy, result)) {
+    			found = true;
+    		}
+    	}
+    	
+    	if(found) {
+    		unblock(airportCode, blocked, blockedBy);
+    	} else {
+    		
+    		for(String node: nodes) {
+    			Set<String> dependents = blockedBy.get(node);
+    			
+    			if(dependents == null) {
+    				dependents = new HashSet<String>();
+    				blockedBy.put(node, dependents);
+    			}
+    			dependents.add(airportCode);
+    		}
+    	}
+    	
+    	stack.removeLast();
+    	return found;
+    }
+    
+    /**
+     * <p>Unblocks an airport and, transitively, every airport that was waiting on it.</p>
+     * 
+     * @param airportCode Airport being unblocked.
+     * @param blocked Set of blocked airports.
+     * @param blockedBy For each airport, the airports that must be unblocked once it gets unblocked.
+     */
+    static private void unblock(String airportCode, Set<String> blocked, Map<String, Set<String>> blockedBy) {
+    	Set<String> dependents = blockedBy.remove(airportCode);
+    	
+    	blocked.remove(airportCode);
+    	
+    	if(dependents != null) {
+    		
+    		for(String dependent: dependents) {
+    			if(blocked.contains(dependent)) {
+    				unblock(dependent, blocked, blockedBy);
+    			}
+    		}
+    	}
+    }
+    
     /**
      * <p>Finds all non-roundtrip paths between two nodes.</p>
      * 
@@ -262,8 +509,12 @@ public class DirectedGraph {
         LinkedList<String> visited = new LinkedList<String>();
         List<LinkedList<String>> result = new LinkedList<LinkedList<String>>();
         
+        if(!graph.canReach(sourceCode, destinationCode)) {
+        	return result;
+        }
+        
         visited.add(sourceCode);
-        depthFirstNoRoundTrip(graph, visited, result, destinationCode);
+        depthFirstNoRoundTrip(graph, visited, result, destinationCode, graph.component(destinationCode));
         
         return result;
         
@@ -271,12 +522,14 @@ public class DirectedGraph {
     
     /**
      * <p>Recursive step for <code><b>depthFirstNoRoundTrip(DirectedGraph graph, String sourceCode, String destinationCode)</b></code>.</p>
+     * <p>Airports whose strongly connected component can't reach the destination's are not explored.</p>
      * @param graph he directed graph wherein paths are sought.
      * @param visited List of visited nodes.
      * @param result The resulting list.
      * @param destinationCode Ending airport code.
+     * @param destinationComponent Strongly connected component of <code><b>destinationCode</b></code>.
      */
-    static private void depthFirstNoRoundTrip(DirectedGraph graph, LinkedList<String> visited, List<LinkedList<String>> result, String destinationCode) {
+    static private void depthFirstNoRoundTrip(DirectedGraph graph, LinkedList<String> visited, List<LinkedList<String>> result, String destinationCode, int destinationComponent) {
         LinkedList<String> nodes = graph.adjacentAirportCodes(visited.getLast());
         
         // examine adjacent nodes
@@ -299,13 +552,83 @@ public class DirectedGraph {
         }
         
         for (String node : nodes) {
-            if (visited.contains(node) || node.equals(destinationCode)) {
+            if (visited.contains(node) || node.equals(destinationCode) || !graph.reaches(node, destinationComponent)) {
                 continue;
             }
             visited.addLast(node);
-            depthFirstNoRoundTrip(graph, visited, result, destinationCode);
+            depthFirstNoRoundTrip(graph, visited, result, destinationCode, destinationComponent);
             visited.removeLast();
         }
     }
    
+    /**
+     * <p>Counts, by number of legs, the connections that <code><b>depthFirst</b></code> would find, in one traversal and without 
+     * materializing them.</p>
+     * 
+     * @param sourceCode Starting airport code.
+     * @param destinationCode Ending airport code; if it equals <code><b>sourceCode</b></code>, roundtrips are counted.
+     * @param maxLegs Longest connections counted.
+     * @return Element <i>k</i> is how many connections have <i>k</i> legs; its length is <code><b>maxLegs + 1</b></code>.
+     */
+    public int[] countByLegs(String sourceCode, String destinationCode, int maxLegs) {
+    	int[] counts = new int[Math.max(maxLegs, 0) + 1];
+    	
+    	countByLegs(sourceCode, destinationCode, counts);
+    	return counts;
+    }
+    
+    /**
+     * <p>Counts, by number of legs, the connections that <code><b>depthFirst</b></code> would find, in one traversal and without 
+     * materializing them.</p>
+     * 
+     * @param sourceCode Starting airport code.
+     * @param destinationCode Ending airport code; if it equals <code><b>sourceCode</b></code>, roundtrips are counted.
+     * @param counts Element <i>k</i> is increased by how many connections have <i>k</i> legs; connections longer than 
+     * <code><b>counts.length - 1</b></code> legs are not counted.
+     * @return How many airports were expanded.
+     */
+    public int countByLegs(String sourceCode, String destinationCode, int[] counts) {
+    	Set<String> visited = new HashSet<String>();
+    	
+    	if(counts.length < 2 || !canReach(sourceCode, destinationCode)) {
+    		return 0;
+    	}
+    	
+    	visited.add(sourceCode);
+    	return countByLegs(sourceCode, destinationCode, component(destinationCode), sourceCode.equals(destinationCode) ? 2 : 1, 0, visited, counts);
+    }
+    
+    /**
+     * <p>Recursive step for <code><b>countByLegs(String sourceCode, String destinationCode, int[] counts)</b></code>.</p>
+     * 
+     * @param airportCode Airport being explored.
+     * @param destinationCode Ending airport code.
+     * @param destinationComponent Strongly connected component of <code><b>destinationCode</b></code>.
+     * @param minLegs Shortest connections counted (2 for roundtrips, since self links are not roundtrips).
+     * @param legs Legs flown to reach <code><b>airportCode</b></code>.
+     * @param visited Airports in the current partial connection.
+     * @param counts The resulting counts.
+     * @return How many airports were expanded, <code><b>airportCode</b></code> included.
+     */
+    private int countByLegs(String airportCode, String destinationCode, int destinationComponent, int minLegs, int legs, Set<String> visited, int[] counts) {
+    	int expanded = 1;
+    	
+    	for(String node: adjacent(airportCode)) {
+    		
+    		if(node.equals(destinationCode)) {
+    			
+    			if(legs + 1 >= minLegs) {
+    				counts[legs + 1]++;
+    			}
+    			
+    		} else if(legs + 2 < counts.length && !visited.contains(node) && reaches(node, destinationComponent)) {
+    			visited.add(node);
+    			expanded += countByLegs(node, destinationCode, destinationComponent, minLegs, legs + 1, visited, counts);
+    			visited.remove(node);
+    		}
+    	}
+    	
+    	return expanded;
+    }
+    
 }
\ No newline at end of file
@@ -0,0 +1,469 @@
+package com.assessment.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * <p>Sorts by price more connections than fit in memory.</p>
+ * <p>Each <code><b>PathTrie</b></code> handed to <code><b>accept</b></code> (see <code><b>PathTrie.depthFirstAll</b></code> with a
+ * spill consumer) is sorted in memory and written to a temporary run file; <code><b>merge</b></code> then merges the runs k ways
+ * and streams the connections, cheapest first, to an <code><b>Appendable</b></code>, or <code><b>open</b></code> returns a
+ * <code><b>Cursor</b></code> reading them one at a time. Connections having the same price keep their
+ * insertion order, so the result equals sorting every connection in memory (see <code><b>PathTrie.sortByPrice</b></code>).</p>
+ * <p>Only one record per run, plus the buffers of the open files, is held in memory while merging. When there are more than
+ * <code><b>MAX_FAN_IN</b></code> runs, groups of them are merged into longer runs first.</p>
+ * <p>Run files are deleted by <code><b>close</b></code>. Instances are not thread safe.</p>
+ * @author rsolano
+ *
+ */
+public class ExternalConnectionSort implements Consumer<PathTrie>, Closeable {
+
+	/**
+	 * <p>How many runs are merged at once.</p>
+	 */
+	public static final int MAX_FAN_IN = 64;
+
+	/**
+	 * Size of the buffer of each run file.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * <p>A run file being read: the record at its head and the stream of the next ones.</p>
+	 */
+	private static class Run {
+
+		/**
+		 * How many records the run holds.
+		 */
+		long count;
+
+		/**
+		 * Records not read yet.
+		 */
+		long remaining;
+
+		/**
+		 * Price of the head connection.
+		 */
+		int price;
+
+		/**
+		 * Insertion order of the head connection.
+		 */
+		long sequence;
+
+		/**
+		 * Airports of the head connection.
+		 */
+		int[] path;
+
+		/**
+		 * Stream of the run file.
+		 */
+		DataInputStream input;
+
+		/**
+		 * @param file The run file.
+		 * @throws IOException If the file can't be read.
+		 */
+		Run(File file) throws IOException {
+			this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+			this.count = input.readLong();
+			this.remaining = count;
+		}
+
+		/**
+		 * <p>Reads the next record into the head.</p>
+		 *
+		 * @return <code><b>false</b></code> if the run is exhausted.
+		 * @throws IOException If the file can't be read.
+		 */
+		boolean next() throws IOException {
+			if(remaining == 0) {
+				return false;
+			}
+
+			remaining--;
+			price = input.readInt();
+			sequence = input.readLong();
+			path = new int[input.readInt()];
+
+			for(int i = 0; i < path.length; i++) {
+				path[i] = input.readInt();
+			}
+			return true;
+		}
+
+		/**
+		 * @param other Another run.
+		 * @return Comparison of the head connections by price, then by insertion order.
+		 */
+		int compareTo(Run other) {
+			return price != other.price ? Integer.compare(price, other.price) : Long.compare(sequence, other.sequence);
+		}
+	}
+
+	/**
+	 * <p>Reads the sorted connections one at a time, each one formatted only when it is read (see <code><b>open</b></code>).</p>
+	 * <p>Closing a cursor closes its sort too, which deletes the run files.</p>
+	 */
+	public class Cursor implements Closeable {
+
+		/**
+		 * Connections read from memory, when nothing was spilled; <code><b>null</b></code> otherwise.
+		 */
+		PathTrie connections;
+
+		/**
+		 * Leaf ids of <code><b>connections</b></code>, cheapest first.
+		 */
+		int[] leaves;
+
+		/**
+		 * How many leaves were read.
+		 */
+		int next;
+
+		/**
+		 * Runs being merged, keyed by their head connection; <code><b>null</b></code> when nothing was spilled.
+		 */
+		PriorityQueue<Run> heap;
+
+		/**
+		 * Every run opened, so that they are closed.
+		 */
+		List<Run> open = new ArrayList<Run>();
+
+		/**
+		 *
+		 * @return <code><b>true</b></code> if a connection is left.
+		 */
+		public boolean hasNext() {
+			return heap == null ? next < leaves.length : !heap.isEmpty();
+		}
+
+		/**
+		 * <p>Formats the next connection, like <code><b>PricedPath.format</b></code>.</p>
+		 *
+		 * @param output Receives the connection.
+		 * @throws IOException If a run file can't be read or <code><b>output</b></code> can't be written.
+		 * @throws NoSuchElementException If no connection is left.
+		 */
+		public void next(Appendable output) throws IOException {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			if(heap == null) {
+				int leaf = leaves[next++];
+
+				format(connections.getPath(leaf), connections.getPrice(leaf), output);
+				return;
+			}
+
+			Run run = heap.poll();
+
+			format(run.path, run.price, output);
+
+			if(run.next()) {
+				heap.add(run);
+			}
+		}
+
+		/**
+		 * <p>Closes the runs being merged and the sort.</p>
+		 */
+		@Override
+		public void close() {
+			ExternalConnectionSort.close(open);
+			ExternalConnectionSort.this.close();
+		}
+	}
+
+	/**
+	 * Matrix used to translate offsets back to airport codes.
+	 */
+	AdjacencyMatrix adjacencyMatrix;
+
+	/**
+	 * Directory of the run files; <code><b>null</b></code> for the default temporary directory.
+	 */
+	File directory;
+
+	/**
+	 * Run files written so far and not deleted yet.
+	 */
+	List<File> runs = new ArrayList<File>();
+
+	/**
+	 * How many connections were written to run files; the insertion order of the next spilled connection.
+	 */
+	long spilled;
+
+	/**
+	 * How many trie nodes were spilled.
+	 */
+	long spilledNodes;
+
+	/**
+	 * @param adjacencyMatrix Matrix used to translate offsets back to airport codes.
+	 * @param directory Directory of the run files; <code><b>null</b></code> for the default temporary directory.
+	 */
+	public ExternalConnectionSort(AdjacencyMatrix adjacencyMatrix, File directory) {
+		this.adjacencyMatrix = adjacencyMatrix;
+		this.directory = directory;
+	}
+
+	/**
+	 * <p>Sorts the connections of a trie by price and writes them to a new run file.</p>
+	 *
+	 * @param connections Connections being spilled; the trie is not modified.
+	 * @throws UncheckedIOException If the run file can't be written.
+	 */
+	@Override
+	public void accept(PathTrie connections) {
+		try {
+			File file = File.createTempFile("flitetrakr-run", ".bin", directory);
+			runs.add(file);
+
+			try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))) {
+				output.writeLong(connections.size());
+
+				for(int leaf: connections.sortByPrice()) {
+					write(output, connections.getPrice(leaf), spilled + leaf, connections.getPath(leaf));
+				}
+			}
+		}catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		spilled += connections.size();
+		spilledNodes += connections.nodeCount();
+	}
+
+	/**
+	 * <p>Streams every connection, cheapest first: the spilled ones, merged from the run files, and the ones still in
+	 * <code><b>connections</b></code>.</p>
+	 * <p>Each connection matches the pattern <code><b>"&lt;code-of-departure-airport&gt;-&lt;code-of-arrival-airport&gt;-&lt;price-in-euro&gt;"</b></code>;
+	 * connections are separated by <code><b>separator</b></code>. The run files are deleted afterwards.</p>
+	 *
+	 * @param connections Connections found after the last spill.
+	 * @param output Receives the connections.
+	 * @param separator Text between two connections.
+	 * @return How many connections were written.
+	 * @throws IOException If a run file can't be read or written, or <code><b>output</b></code> can't be written.
+	 */
+	public long merge(PathTrie connections, Appendable output, String separator) throws IOException {
+		long count = 0;
+
+		try(Cursor cursor = open(connections)) {
+			while(cursor.hasNext()) {
+				if(count++ > 0) {
+					output.append(separator);
+				}
+				cursor.next(output);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * <p>Opens every connection for reading, cheapest first: the spilled ones, merged from the run files, and the ones still in
+	 * <code><b>connections</b></code>. Only the head record of each run is held in memory, plus <code><b>connections</b></code> 
+	 * when nothing was spilled.</p>
+	 *
+	 * @param connections Connections found after the last spill.
+	 * @return The cursor; the caller closes it.
+	 * @throws IOException If a run file can't be read or written.
+	 */
+	public Cursor open(PathTrie connections) throws IOException {
+		Cursor cursor = new Cursor();
+
+		if(runs.isEmpty()) { // Everything fits in memory.
+			cursor.connections = connections;
+			cursor.leaves = connections.sortByPrice();
+			return cursor;
+		}
+
+		if(connections.size() > 0) {
+			try {
+				accept(connections);
+			}catch(UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
+
+		while(runs.size() > MAX_FAN_IN) {
+			List<File> merged = new ArrayList<File>();
+
+			try {
+				for(int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+					merged.add(mergeRuns(runs.subList(i, Math.min(i + MAX_FAN_IN, runs.size()))));
+				}
+			}catch(IOException e) {
+				for(File run: merged) {
+					run.delete();
+				}
+				throw e;
+			}
+
+			for(File run: runs) {
+				run.delete();
+			}
+			runs = merged;
+		}
+
+		try {
+			cursor.heap = open(runs, cursor.open);
+		}catch(IOException e) {
+			close(cursor.open);
+			throw e;
+		}
+		return cursor;
+	}
+
+	/**
+	 * <p>Merges runs into a new, longer, run file.</p>
+	 *
+	 * @param group Run files being merged; they are not deleted.
+	 * @return The new run file.
+	 * @throws IOException If a run file can't be read or written.
+	 */
+	private File mergeRuns(List<File> group) throws IOException {
+		File file = File.createTempFile("flitetrakr-run", ".bin", directory);
+		List<Run> open = new ArrayList<Run>();
+		long count = 0;
+
+		try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))) {
+			PriorityQueue<Run> heap = open(group, open);
+
+			for(Run run: open) {
+				count += run.count;
+			}
+			output.writeLong(count);
+
+			while(!heap.isEmpty()) {
+				Run run = heap.poll();
+
+				write(output, run.price, run.sequence, run.path);
+
+				if(run.next()) {
+					heap.add(run);
+				}
+			}
+		}catch(IOException e) {
+			file.delete();
+			throw e;
+		} finally {
+			close(open);
+		}
+
+		return file;
+	}
+
+	/**
+	 * @param group Run files being opened.
+	 * @param open Receives every run opened, so that the caller closes them.
+	 * @return The non empty runs, keyed by their head connection.
+	 * @throws IOException If a run file can't be read.
+	 */
+	private static PriorityQueue<Run> open(List<File> group, List<Run> open) throws IOException {
+		PriorityQueue<Run> heap = new PriorityQueue<Run>(Math.max(group.size(), 1), (a, b) -> a.compareTo(b));
+
+		for(File file: group) {
+			Run run = new Run(file);
+
+			open.add(run);
+
+			if(run.next()) {
+				heap.add(run);
+			}
+		}
+		return heap;
+	}
+
+	/**
+	 * <p>Closes runs, ignoring failures.</p>
+	 */
+	private static void close(List<Run> open) {
+		for(Run run: open) {
+			try {
+				run.input.close();
+			}catch(IOException e) {
+				// Nothing else can be done with a run being discarded.
+			}
+		}
+	}
+
+	/**
+	 * <p>Writes a record: price, insertion order, number of airports and airports.</p>
+	 */
+	private static void write(DataOutputStream output, int price, long sequence, int[] path) throws IOException {
+		output.writeInt(price);
+		output.writeLong(sequence);
+		output.writeInt(path.length);
+
+		for(int airport: path) {
+			output.writeInt(airport);
+		}
+	}
+
+	/**
+	 * <p>Formats a connection like <code><b>PricedPath.format</b></code>.</p>
+	 */
+	private void format(int[] path, int price, Appendable output) throws IOException {
+		for(int airport: path) {
+			output.append(adjacencyMatrix.getCode(airport)).append('-');
+		}
+		output.append(Integer.toString(price));
+	}
+
+	/**
+	 *
+	 * @return How many run files are kept.
+	 */
+	public int getRunCount() {
+		return runs.size();
+	}
+
+	/**
+	 *
+	 * @return How many connections were written to run files.
+	 */
+	public long getSpilledCount() {
+		return spilled;
+	}
+
+	/**
+	 *
+	 * @return How many trie nodes were spilled.
+	 */
+	public long getSpilledNodeCount() {
+		return spilledNodes;
+	}
+
+	/**
+	 * <p>Deletes the run files.</p>
+	 */
+	@Override
+	public void close() {
+		for(File run: runs) {
+			run.delete();
+		}
+		runs.clear();
+	}
+}
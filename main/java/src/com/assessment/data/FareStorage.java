@@ -0,0 +1,24 @@
+package com.assessment.data;
+
+/**
+ * <p>How an <code><b>AdjacencyMatrix</b></code> stores its fares.</p>
+ * @author rsolano
+ *
+ */
+public enum FareStorage {
+
+	/**
+	 * A two dimensional array on the heap; O(1) lookups, but its size grows with the square of the number of airports.
+	 */
+	DENSE,
+
+	/**
+	 * Sorted adjacency lists in direct buffers, outside of the heap (see <code><b>OffHeapFareTable</b></code>).
+	 */
+	OFF_HEAP,
+
+	/**
+	 * Delta and varint encoded adjacency lists in one byte array (see <code><b>CompressedFareTable</b></code>).
+	 */
+	COMPRESSED
+}
@@ -0,0 +1,23 @@
+package com.assessment.data;
+
+/**
+ * <p>Storage of the fares between airports, looked up by row/column offsets like <code><b>AdjacencyMatrix.get(int, int)</b></code>.</p>
+ * <p>Fares are symmetric: <code><b>get(x, y) == get(y, x)</b></code>, and 0 means there is no direct flight between both airports.</p>
+ * @author rsolano
+ *
+ */
+public interface FareTable {
+
+	/**
+	 *
+	 * @return How many airports (rows/columns) the table has.
+	 */
+	int length();
+
+	/**
+	 * @param x Row number.
+	 * @param y Column number.
+	 * @return The fare of the direct flight between airports <code><b>x</b></code> and <code><b>y</b></code>, or 0 if there is none.
+	 */
+	int get(int x, int y);
+}
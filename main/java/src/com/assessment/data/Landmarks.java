@@ -0,0 +1,169 @@
+package com.assessment.data;
+
+import java.util.Arrays;
+
+/**
+ * <p>Landmark fares used as lower bounds by A* searches (the ALT technique).</p>
+ * <p>For every landmark <i>L</i> the cheapest fares <i>d(L,v)</i> and <i>d(v,L)</i> are stored for all airports <i>v</i>.
+ * By the triangle inequality, <i>d(v,t) &ge; d(L,t) - d(L,v)</i> and <i>d(v,t) &ge; d(v,L) - d(t,L)</i>. Memory cost is
+ * two <code><b>int</b></code> arrays per landmark.</p>
+ * @author rsolano
+ *
+ */
+public class Landmarks {
+
+	/**
+	 * Fare used for airports that can't be reached.
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	/**
+	 * Row/column offsets of the landmark airports.
+	 */
+	int[] landmarks;
+
+	/**
+	 * <b><code>forward[l][v]</code></b> is the cheapest fare from landmark <b><code>l</code></b> to airport <b><code>v</code></b>.
+	 */
+	int[][] forward;
+
+	/**
+	 * <b><code>backward[l][v]</code></b> is the cheapest fare from airport <b><code>v</code></b> to landmark <b><code>l</code></b>.
+	 */
+	int[][] backward;
+
+	/**
+	 * <p>Initializes instance fields whose names match parameters'.</p>
+	 *
+	 * @param landmarks Row/column offsets of the landmark airports.
+	 * @param forward Fares from each landmark.
+	 * @param backward Fares to each landmark.
+	 */
+	private Landmarks(int[] landmarks, int[][] forward, int[][] backward) {
+		this.landmarks = landmarks;
+		this.forward = forward;
+		this.backward = backward;
+	}
+
+	/**
+	 * <p>Selects landmarks with the <i>farthest</i> heuristic: each new landmark is the airport whose fare from the closest
+	 * landmark chosen so far is the highest. Airports no landmark reaches are preferred, such that every region gets one.</p>
+	 *
+	 * @param adjacencyMatrix Adjacency matrix whose weights are the flight fares.
+	 * @param count How many landmarks are wanted; capped by the number of airports.
+	 * @return A new instance of <code><b>com.assessment.data.Landmarks</b></code>.
+	 */
+	public static Landmarks select(AdjacencyMatrix adjacencyMatrix, int count) {
+		int size = adjacencyMatrix.length();
+		int total = Math.min(count, size);
+		int[] landmarks = new int[total];
+		int[][] forward = new int[total][];
+		int[][] backward = new int[total][];
+		int[] closest = new int[size];
+		int candidate = 0;
+
+		Arrays.fill(closest, UNREACHABLE);
+
+		for(int i = 1; i < size; i++) { // The best connected airport starts.
+			if(adjacencyMatrix.outDegree(i) + adjacencyMatrix.inDegree(i) > adjacencyMatrix.outDegree(candidate) + adjacencyMatrix.inDegree(candidate)) {
+				candidate = i;
+			}
+		}
+
+		for(int l = 0; l < total; l++) {
+			landmarks[l] = candidate;
+			forward[l] = distances(adjacencyMatrix, candidate, false);
+			backward[l] = distances(adjacencyMatrix, candidate, true);
+			closest[candidate] = 0;
+			candidate = -1;
+
+			for(int v = 0; v < size; v++) {
+				closest[v] = Math.min(closest[v], forward[l][v]);
+
+				if(closest[v] != 0 && (candidate == -1 || closest[v] > closest[candidate])) {
+					candidate = v;
+				}
+			}
+
+			if(candidate == -1) {
+				return new Landmarks(Arrays.copyOf(landmarks, l + 1), Arrays.copyOf(forward, l + 1), Arrays.copyOf(backward, l + 1));
+			}
+		}
+
+		return new Landmarks(landmarks, forward, backward);
+	}
+
+	/**
+	 * <p>Computes the cheapest fares from (or to) one airport with Dijkstra's algorithm.</p>
+	 *
+	 * @param adjacencyMatrix Adjacency matrix whose weights are the flight fares.
+	 * @param source Row/column offset of the airport.
+	 * @param backward <code><b>true</b></code> to compute fares to <code><b>source</b></code> instead of from it.
+	 * @return Fares by row/column offset; <code><b>UNREACHABLE</b></code> for airports without connection.
+	 */
+	static int[] distances(AdjacencyMatrix adjacencyMatrix, int source, boolean backward) {
+		int[] distances = new int[adjacencyMatrix.length()];
+		LongHeap heap = new LongHeap(distances.length);
+
+		Arrays.fill(distances, UNREACHABLE);
+		distances[source] = 0;
+		heap.push(LongHeap.key(0, source));
+
+		while(!heap.isEmpty()) {
+			long key = heap.pop();
+			int v = LongHeap.value(key);
+			int distance = LongHeap.priority(key);
+
+			if(distance > distances[v]) {
+				continue;
+			}
+
+			int degree = backward ? adjacencyMatrix.inDegree(v) : adjacencyMatrix.outDegree(v);
+
+			for(int i = 0; i < degree; i++) {
+				int w = backward ? adjacencyMatrix.predecessor(v, i) : adjacencyMatrix.successor(v, i);
+				int candidate = distance + adjacencyMatrix.get(v, w);
+
+				if(candidate < distances[w]) {
+					distances[w] = candidate;
+					heap.push(LongHeap.key(candidate, w));
+				}
+			}
+		}
+
+		return distances;
+	}
+
+	/**
+	 * <p>Lower bound of the cheapest fare from <code><b>v</b></code> to <code><b>t</b></code>.</p>
+	 *
+	 * @param v Row/column offset of the departure airport.
+	 * @param t Row/column offset of the arrival airport.
+	 * @return A non negative integer which never exceeds the cheapest fare from <code><b>v</b></code> to <code><b>t</b></code>.
+	 */
+	public int lowerBound(int v, int t) {
+		int bound = 0;
+
+		for(int l = 0; l < landmarks.length; l++) {
+			int[] from = forward[l];
+			int[] to = backward[l];
+
+			if(from[t] != UNREACHABLE && from[v] != UNREACHABLE) {
+				bound = Math.max(bound, from[t] - from[v]);
+			}
+			if(to[v] != UNREACHABLE && to[t] != UNREACHABLE) {
+				bound = Math.max(bound, to[v] - to[t]);
+			}
+		}
+
+		return bound;
+	}
+
+	/**
+	 *
+	 * @return Row/column offsets of the landmark airports.
+	 */
+	public int[] getLandmarks() {
+		return landmarks;
+	}
+}
@@ -0,0 +1,137 @@
+package com.assessment.data;
+
+import java.util.Arrays;
+
+/**
+ * <p>Binary min-heap of primitive <code><b>long</b></code> values.</p>
+ * <p>Searches store a (priority, airport) pair in each value (see <code><b>key</b></code>), so no objects are created
+ * per queued airport. Stale entries are not removed; callers skip them when they are popped.</p>
+ * @author rsolano
+ *
+ */
+public class LongHeap {
+
+	/**
+	 * Heap ordered values.
+	 */
+	private long[] heap;
+
+	/**
+	 * How many values are stored in <b><code>heap</code></b>.
+	 */
+	private int size;
+
+	/**
+	 * @param capacity Initial capacity; the heap grows as needed.
+	 */
+	public LongHeap(int capacity) {
+		this.heap = new long[Math.max(capacity, 4)];
+	}
+
+	/**
+	 * <p>Packs a non negative priority and a value into a single heap key ordered by priority.</p>
+	 *
+	 * @param priority A non negative integer.
+	 * @param value Any integer.
+	 * @return <code><b>priority</b></code> in the high 32 bits and <code><b>value</b></code> in the low 32 bits.
+	 */
+	public static long key(int priority, int value) {
+		return ((long)priority << 32) | (value & 0xffffffffL);
+	}
+
+	/**
+	 * @param key A value created by <code><b>key(int, int)</b></code>.
+	 * @return The priority packed into <code><b>key</b></code>.
+	 */
+	public static int priority(long key) {
+		return (int)(key >>> 32);
+	}
+
+	/**
+	 * @param key A value created by <code><b>key(int, int)</b></code>.
+	 * @return The value packed into <code><b>key</b></code>.
+	 */
+	public static int value(long key) {
+		return (int)key;
+	}
+
+	/**
+	 * @param value Value being added.
+	 */
+	public void push(long value) {
+		if(size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+
+		int i = size++;
+
+		while(i > 0) {
+			int parent = (i - 1) >>> 1;
+
+			if(heap[parent] <= value) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = value;
+	}
+
+	/**
+	 * @return The smallest value, which is removed from the heap.
+	 * @throws ArrayIndexOutOfBoundsException If the heap is empty.
+	 */
+	public long pop() {
+		if(size == 0) {
+			throw new ArrayIndexOutOfBoundsException("The heap is empty");
+		}
+
+		long result = heap[0];
+		long last = heap[--size];
+		int i = 0;
+		int half = size >>> 1;
+
+		while(i < half) {
+			int child = 2 * i + 1;
+
+			if(child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if(last <= heap[child]) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		if(size > 0) {
+			heap[i] = last;
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return The smallest value, which is kept in the heap.
+	 * @throws ArrayIndexOutOfBoundsException If the heap is empty.
+	 */
+	public long peek() {
+		if(size == 0) {
+			throw new ArrayIndexOutOfBoundsException("The heap is empty");
+		}
+		return heap[0];
+	}
+
+	/**
+	 * @return <code><b>true</b></code> if there is no value in the heap.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all values.
+	 */
+	public void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,87 @@
+package com.assessment.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * <p>Fare table kept in direct buffers, so very large networks neither count against the heap size nor are traversed by the
+ * garbage collector.</p>
+ * <p>Each airport's row lists the airports it shares a direct flight with (in either direction), sorted by row/column offset,
+ * next to their fares; lookups binary search the row. The table takes O(airports + flights) memory instead of the
+ * O(airports<sup>2</sup>) of the dense table.</p>
+ * @author rsolano
+ *
+ */
+public class OffHeapFareTable implements FareTable {
+
+	/**
+	 * Offsets into <code><b>targets</b></code> and <code><b>fares</b></code>; row <i>x</i> spans
+	 * <b><code>offsets[x]..offsets[x+1]-1</code></b>.
+	 */
+	IntBuffer offsets;
+
+	/**
+	 * Row/column offsets of the airports of each row, sorted.
+	 */
+	IntBuffer targets;
+
+	/**
+	 * Fare of each row entry.
+	 */
+	IntBuffer fares;
+
+	/**
+	 * How many airports the table has.
+	 */
+	int size;
+
+	/**
+	 * <p>Copies a fare table out of the heap.</p>
+	 *
+	 * @param offsets Row offsets (see <code><b>AdjacencyMatrix.createFareLists</b></code>); its length is the number of airports plus one.
+	 * @param targets Row/column offsets of the airports of each row, sorted within each row.
+	 * @param fares Fare of each row entry.
+	 */
+	public OffHeapFareTable(int[] offsets, int[] targets, int[] fares) {
+		this.size = offsets.length - 1;
+		this.offsets = allocate(offsets);
+		this.targets = allocate(targets);
+		this.fares = allocate(fares);
+	}
+
+	/**
+	 * @return A read only direct buffer holding <code><b>values</b></code>.
+	 */
+	private static IntBuffer allocate(int[] values) {
+		IntBuffer buffer = ByteBuffer.allocateDirect(Math.max(1, values.length) * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+
+		buffer.put(values, 0, values.length);
+		return buffer.asReadOnlyBuffer();
+	}
+
+	@Override
+	public int length() {
+		return size;
+	}
+
+	@Override
+	public int get(int x, int y) {
+		int low = offsets.get(x);
+		int high = offsets.get(x + 1) - 1;
+
+		while(low <= high) {
+			int middle = (low + high) >>> 1;
+			int target = targets.get(middle);
+
+			if(target < y) {
+				low = middle + 1;
+			} else if(target > y) {
+				high = middle - 1;
+			} else {
+				return fares.get(middle);
+			}
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,177 @@
+package com.assessment.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Bicriteria (fare, stops) label-setting search.</p>
+ * <p>It finds, in a single pass, the Pareto frontier of connections between two airports: every connection for which no other
+ * connection is both cheaper (or as cheap) and shorter (or as short). Labels, i.e. (fare, legs, airport, previous label)
+ * tuples, live in parallel primitive arrays and are popped in fare order, so a label is dominated exactly when its airport
+ * already settled a label with as few legs. Each airport therefore only keeps the fewest legs settled so far, and the
+ * labels settled at an airport are its own frontier.</p>
+ * <p>Instances are not thread safe, but can be reused for several searches on the same matrix.</p>
+ * @author rsolano
+ *
+ */
+public class ParetoSearch {
+
+	/**
+	 * Adjacency matrix whose weights are the flight fares.
+	 */
+	AdjacencyMatrix adjacencyMatrix;
+
+	/**
+	 * Fewest legs among the labels settled at each airport.
+	 */
+	int[] minimumLegs;
+
+	/**
+	 * Airport of each label.
+	 */
+	int[] labelAirports = new int[64];
+
+	/**
+	 * Fare of each label.
+	 */
+	int[] labelFares = new int[64];
+
+	/**
+	 * Legs of each label.
+	 */
+	int[] labelLegs = new int[64];
+
+	/**
+	 * Label each label extends (-1 for the first one).
+	 */
+	int[] labelParents = new int[64];
+
+	/**
+	 * How many labels were created by the last search.
+	 */
+	int labelCount;
+
+	/**
+	 * Pending labels keyed by fare.
+	 */
+	LongHeap heap;
+
+	/**
+	 * @param adjacencyMatrix Adjacency matrix whose weights are the flight fares.
+	 */
+	public ParetoSearch(AdjacencyMatrix adjacencyMatrix) {
+		this.adjacencyMatrix = adjacencyMatrix;
+		this.minimumLegs = new int[adjacencyMatrix.length()];
+		this.heap = new LongHeap(adjacencyMatrix.length());
+	}
+
+	/**
+	 * <p>Finds the Pareto frontier of connections between two airports.</p>
+	 *
+	 * @param source Row/column offset of the departure airport.
+	 * @param target Row/column offset of the arrival airport; if it equals <code><b>source</b></code>, roundtrips are sought.
+	 * @return The non dominated connections, cheapest (and therefore with most stops) first.
+	 */
+	public List<PricedPath> search(int source, int target) {
+		List<PricedPath> frontier = new ArrayList<PricedPath>();
+		int lastFare = -1;
+
+		Arrays.fill(minimumLegs, Integer.MAX_VALUE);
+		heap.clear();
+		labelCount = 0;
+
+		if(source != target) { // Otherwise the source is left open, so that reaching it again closes a roundtrip.
+			minimumLegs[source] = 0;
+		}
+		expand(newLabel(source, 0, 0, -1), target);
+
+		while(!heap.isEmpty()) {
+			int label = LongHeap.value(heap.pop());
+			int v = labelAirports[label];
+			int legs = labelLegs[label];
+
+			if(legs >= minimumLegs[v] || legs >= minimumLegs[target]) {
+				continue;
+			}
+
+			minimumLegs[v] = legs;
+
+			if(v == target) {
+				if(labelFares[label] == lastFare) { // Same fare, fewer legs: the previous connection is dominated.
+					frontier.remove(frontier.size() - 1);
+				}
+				lastFare = labelFares[label];
+				frontier.add(path(label));
+				continue;
+			}
+
+			expand(label, target);
+		}
+
+		return frontier;
+	}
+
+	/**
+	 * <p>Creates the labels of the airports reachable with a direct flight from the airport of <code><b>label</b></code>,
+	 * unless they are already dominated.</p>
+	 */
+	private void expand(int label, int target) {
+		int v = labelAirports[label];
+		int fare = labelFares[label];
+		int legs = labelLegs[label] + 1;
+		int degree = adjacencyMatrix.outDegree(v);
+
+		for(int i = 0; i < degree; i++) {
+			int w = adjacencyMatrix.successor(v, i);
+
+			if(legs < minimumLegs[w] && legs < minimumLegs[target]) {
+				int candidate = newLabel(w, fare + adjacencyMatrix.get(v, w), legs, label);
+
+				heap.push(LongHeap.key(labelFares[candidate], candidate));
+			}
+		}
+	}
+
+	/**
+	 * @return Id of a new label.
+	 */
+	private int newLabel(int airport, int fare, int legs, int parent) {
+		if(labelCount == labelAirports.length) {
+			int capacity = labelCount * 2;
+
+			labelAirports = Arrays.copyOf(labelAirports, capacity);
+			labelFares = Arrays.copyOf(labelFares, capacity);
+			labelLegs = Arrays.copyOf(labelLegs, capacity);
+			labelParents = Arrays.copyOf(labelParents, capacity);
+		}
+
+		labelAirports[labelCount] = airport;
+		labelFares[labelCount] = fare;
+		labelLegs[labelCount] = legs;
+		labelParents[labelCount] = parent;
+
+		return labelCount++;
+	}
+
+	/**
+	 * @return The connection ending with <code><b>label</b></code>.
+	 */
+	private PricedPath path(int label) {
+		int[] path = new int[labelLegs[label] + 1];
+
+		for(int l = label, i = path.length - 1; l != -1; l = labelParents[l], i--) {
+			path[i] = labelAirports[l];
+		}
+
+		return new PricedPath(path, labelFares[label]);
+	}
+
+	/**
+	 *
+	 * @return How many labels were created by the last search.
+	 */
+	public int getLabelCount() {
+		return labelCount;
+	}
+}
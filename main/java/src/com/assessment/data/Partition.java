@@ -0,0 +1,177 @@
+package com.assessment.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Splits the airports of a network into regional shards.</p>
+ * <p>Airports are visited breadth first (following flights in both directions) and the visiting order is cut into shards of
+ * equal size, so neighbouring airports tend to share a shard. Flights between two shards are <i>cross links</i>; their
+ * airports are the <i>boundary</i> airports through which connections leave or enter a shard.</p>
+ * @author rsolano
+ *
+ */
+public class Partition {
+
+	/**
+	 * Adjacency matrix being partitioned.
+	 */
+	AdjacencyMatrix adjacencyMatrix;
+
+	/**
+	 * Shard of each airport (by row/column offset).
+	 */
+	int[] shards;
+
+	/**
+	 * How many shards there are.
+	 */
+	int shardCount;
+
+	/**
+	 * @param adjacencyMatrix Adjacency matrix being partitioned.
+	 * @param shardCount How many shards are wanted; there are never more shards than airports.
+	 */
+	public Partition(AdjacencyMatrix adjacencyMatrix, int shardCount) {
+		int size = adjacencyMatrix.length();
+		int[] queue = new int[size];
+		boolean[] queued = new boolean[size];
+		int head = 0;
+		int tail = 0;
+
+		this.adjacencyMatrix = adjacencyMatrix;
+		this.shardCount = Math.max(1, Math.min(shardCount, size));
+		this.shards = new int[size];
+
+		for(int root = 0; root < size; root++) {
+			if(queued[root]) {
+				continue;
+			}
+
+			queued[root] = true;
+			queue[tail++] = root;
+
+			while(head < tail) {
+				int v = queue[head++];
+
+				for(int i = 0; i < adjacencyMatrix.outDegree(v); i++) {
+					tail = enqueue(adjacencyMatrix.successor(v, i), queue, queued, tail);
+				}
+				for(int i = 0; i < adjacencyMatrix.inDegree(v); i++) {
+					tail = enqueue(adjacencyMatrix.predecessor(v, i), queue, queued, tail);
+				}
+			}
+		}
+
+		for(int i = 0; i < size; i++) {
+			shards[queue[i]] = (int)((long)i * this.shardCount / size);
+		}
+	}
+
+	/**
+	 * @return The new tail of the queue.
+	 */
+	private static int enqueue(int airport, int[] queue, boolean[] queued, int tail) {
+		if(!queued[airport]) {
+			queued[airport] = true;
+			queue[tail++] = airport;
+		}
+		return tail;
+	}
+
+	/**
+	 *
+	 * @return How many shards there are.
+	 */
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	/**
+	 * @param airport Row/column offset of an airport.
+	 * @return The shard of the airport.
+	 */
+	public int getShard(int airport) {
+		return shards[airport];
+	}
+
+	/**
+	 * @param airport Row/column offset of an airport.
+	 * @return <code><b>true</b></code> if a flight links the airport with another shard.
+	 */
+	public boolean isBoundary(int airport) {
+		for(int i = 0; i < adjacencyMatrix.outDegree(airport); i++) {
+			if(shards[adjacencyMatrix.successor(airport, i)] != shards[airport]) {
+				return true;
+			}
+		}
+		for(int i = 0; i < adjacencyMatrix.inDegree(airport); i++) {
+			if(shards[adjacencyMatrix.predecessor(airport, i)] != shards[airport]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param shard A shard.
+	 * @return Codes of the boundary airports of the shard.
+	 */
+	public List<String> getBoundary(int shard) {
+		List<String> boundary = new ArrayList<String>();
+
+		for(int v = 0; v < shards.length; v++) {
+			if(shards[v] == shard && isBoundary(v)) {
+				boundary.add(adjacencyMatrix.getCode(v));
+			}
+		}
+		return boundary;
+	}
+
+	/**
+	 * @param shard A shard.
+	 * @return The connections table of the flights within the shard (same format as the first input line), or
+	 * <code><b>null</b></code> if there is none.
+	 */
+	public String getConnections(int shard) {
+		StringBuilder buffer = new StringBuilder("Connections: ");
+		int count = 0;
+
+		for(int v = 0; v < shards.length; v++) {
+			if(shards[v] != shard) {
+				continue;
+			}
+
+			for(int i = 0; i < adjacencyMatrix.outDegree(v); i++) {
+				int w = adjacencyMatrix.successor(v, i);
+
+				if(shards[w] == shard) {
+					if(count++ > 0) {
+						buffer.append(',');
+					}
+					buffer.append(adjacencyMatrix.getCode(v)).append('-').append(adjacencyMatrix.getCode(w)).append('-').append(adjacencyMatrix.get(v, w));
+				}
+			}
+		}
+
+		return count == 0 ? null : buffer.toString();
+	}
+
+	/**
+	 * @return The flights between two shards, as <code><b>{departure code, arrival code, fare}</b></code> records.
+	 */
+	public List<String[]> getCrossLinks() {
+		List<String[]> links = new ArrayList<String[]>();
+
+		for(int v = 0; v < shards.length; v++) {
+			for(int i = 0; i < adjacencyMatrix.outDegree(v); i++) {
+				int w = adjacencyMatrix.successor(v, i);
+
+				if(shards[w] != shards[v]) {
+					links.add(new String[] {adjacencyMatrix.getCode(v), adjacencyMatrix.getCode(w), Integer.toString(adjacencyMatrix.get(v, w))});
+				}
+			}
+		}
+		return links;
+	}
+}
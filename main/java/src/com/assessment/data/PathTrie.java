@@ -0,0 +1,477 @@
+package com.assessment.data;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>Compact storage for large sets of connections.</p>
+ * <p>Connections are stored as a prefix trie over row/column offsets (see <code><b>com.assessment.data.AdjacencyMatrix</b></code>),
+ * so connections sharing their first airports share those nodes. Nodes live in parallel primitive arrays (airport, parent,
+ * first child, next sibling and price so far); each connection is a leaf id, numbered in insertion order. A node costs
+ * 20 bytes no matter how many connections go through it, while a linked list of strings costs 40+ bytes per airport and
+ * connection.</p>
+ * <p>A trie can also be bounded: once it holds a given number of connections it hands them to a consumer (for instance, an
+ * <code><b>ExternalConnectionSort</b></code> writing them to disk) and starts over empty.</p>
+ * @author rsolano
+ *
+ */
+public class PathTrie {
+
+	/**
+	 * Marks a missing parent, child or sibling.
+	 */
+	private static final int NONE = -1;
+
+	/**
+	 * Matrix used to price connections and to translate offsets back to airport codes.
+	 */
+	AdjacencyMatrix adjacencyMatrix;
+
+	/**
+	 * Airport (row/column offset) of each node. Node 0 is the root and has no airport.
+	 */
+	int[] airports;
+
+	/**
+	 * Parent of each node.
+	 */
+	int[] parents;
+
+	/**
+	 * Most recently added child of each node.
+	 */
+	int[] firstChildren;
+
+	/**
+	 * Next sibling of each node (added before it).
+	 */
+	int[] nextSiblings;
+
+	/**
+	 * Price of the connection from the first airport to each node.
+	 */
+	int[] prices;
+
+	/**
+	 * Strongly connected components of the network, used to skip airports that can't reach the destination.
+	 */
+	ReachabilityIndex reachability;
+
+	/**
+	 * How many nodes are stored.
+	 */
+	int nodeCount;
+
+	/**
+	 * Last node of each connection, by leaf id.
+	 */
+	int[] leaves;
+
+	/**
+	 * How many connections are stored.
+	 */
+	int leafCount;
+
+	/**
+	 * How many connections are kept before handing them to <code><b>spill</b></code>; <code><b>Integer.MAX_VALUE</b></code> if unbounded.
+	 */
+	int maxLeaves = Integer.MAX_VALUE;
+
+	/**
+	 * Receives the connections stored whenever <code><b>maxLeaves</b></code> is reached; <code><b>null</b></code> if unbounded.
+	 */
+	Consumer<PathTrie> spill;
+
+	/**
+	 * @param adjacencyMatrix Matrix used to price connections and to translate offsets back to airport codes.
+	 */
+	public PathTrie(AdjacencyMatrix adjacencyMatrix) {
+		this.adjacencyMatrix = adjacencyMatrix;
+		this.reachability = adjacencyMatrix.getReachabilityIndex();
+		this.airports = new int[64];
+		this.parents = new int[64];
+		this.firstChildren = new int[64];
+		this.nextSiblings = new int[64];
+		this.prices = new int[64];
+		this.leaves = new int[16];
+		this.nodeCount = 1;
+		this.airports[0] = NONE;
+		this.parents[0] = NONE;
+		this.firstChildren[0] = NONE;
+		this.nextSiblings[0] = NONE;
+	}
+
+	/**
+	 * <p>Finds all connections the same way <code><b>DirectedGraph.depthFirstAll</b></code> does (same connections, same order),
+	 * storing them directly into a trie.</p>
+	 * <p>Partial connections whose price reaches <code><b>priceLimit</b></code> are not explored any further.</p>
+	 *
+	 * @param adjacencyMatrix Adjacency matrix whose weights are the flight fares.
+	 * @param source Row/column offset of the departure airport.
+	 * @param destination Row/column offset of the arrival airport.
+	 * @param priceLimit Only connections cheaper than this price are kept; <code><b>Integer.MAX_VALUE</b></code> keeps them all.
+	 * @return A new trie holding the connections.
+	 */
+	public static PathTrie depthFirstAll(AdjacencyMatrix adjacencyMatrix, int source, int destination, int priceLimit) {
+		return depthFirstAll(adjacencyMatrix, source, destination, priceLimit, Integer.MAX_VALUE, null);
+	}
+
+	/**
+	 * <p>Like <code><b>depthFirstAll(AdjacencyMatrix, int, int, int)</b></code>, but the trie never holds many more than
+	 * <code><b>maxLeaves</b></code> connections: when it is full, before a new connection is inserted, the connections stored are
+	 * handed to <code><b>spill</b></code> and the trie is cleared. Leaf ids start over after each spill, so the insertion order
+	 * of a connection is its leaf id plus the connections spilled before it.</p>
+	 *
+	 * @param adjacencyMatrix Adjacency matrix whose weights are the flight fares.
+	 * @param source Row/column offset of the departure airport.
+	 * @param destination Row/column offset of the arrival airport.
+	 * @param priceLimit Only connections cheaper than this price are kept; <code><b>Integer.MAX_VALUE</b></code> keeps them all.
+	 * @param maxLeaves How many connections are kept before spilling them.
+	 * @param spill Receives the full trie; it must not keep a reference to it.
+	 * @return The trie holding the connections found after the last spill.
+	 */
+	public static PathTrie depthFirstAll(AdjacencyMatrix adjacencyMatrix, int source, int destination, int priceLimit, int maxLeaves, Consumer<PathTrie> spill) {
+		PathTrie trie = new PathTrie(adjacencyMatrix);
+		int[] cycle = new int[adjacencyMatrix.length() + 1];
+		boolean[] onCycle = new boolean[adjacencyMatrix.length()];
+
+		trie.maxLeaves = maxLeaves;
+		trie.spill = spill;
+
+		if(source == destination) {
+			int[] roundTrip = new int[adjacencyMatrix.length() + 1];
+			boolean[] onRoundTrip = new boolean[adjacencyMatrix.length()];
+
+			roundTrip[0] = destination;
+			trie.roundTrips(roundTrip, 1, 0, priceLimit, onRoundTrip, length -> {
+				trie.spillIfFull();
+
+				int node = trie.insert(0, roundTrip, 0, length, priceLimit);
+
+				if(node != NONE) {
+					trie.addLeaf(node);
+					trie.appendRoundTrips(roundTrip, length, node, priceLimit, cycle, onCycle);
+				}
+			});
+
+		} else {
+			int[] stack = new int[adjacencyMatrix.length() + 1];
+			boolean[] visited = new boolean[adjacencyMatrix.length()];
+
+			stack[0] = source;
+			visited[source] = true;
+			trie.depthFirst(stack, 1, 0, visited, destination, priceLimit, cycle, onCycle);
+		}
+
+		return trie;
+	}
+
+	/**
+	 * <p>Recursive step that mirrors <code><b>DirectedGraph.depthFirstNoRoundTrip</b></code>.</p>
+	 *
+	 * @param stack Airports of the current partial connection.
+	 * @param length How many airports are in <code><b>stack</b></code>.
+	 * @param price Price of the current partial connection.
+	 * @param visited Airports in <code><b>stack</b></code>.
+	 * @param destination Row/column offset of the arrival airport.
+	 * @param priceLimit Only connections cheaper than this price are kept.
+	 * @param cycle Work array for the roundtrips appended to every connection.
+	 * @param onCycle Work array for the roundtrips appended to every connection.
+	 */
+	private void depthFirst(int[] stack, int length, int price, boolean[] visited, int destination, int priceLimit, int[] cycle, boolean[] onCycle) {
+		int v = stack[length - 1];
+		int degree = adjacencyMatrix.outDegree(v);
+
+		for(int i = 0; i < degree; i++) {
+			if(adjacencyMatrix.successor(v, i) == destination) {
+				stack[length] = destination;
+				spillIfFull();
+
+				int node = insert(0, stack, 0, length + 1, priceLimit);
+
+				if(node != NONE) {
+					addLeaf(node);
+					appendRoundTrips(stack, length + 1, node, priceLimit, cycle, onCycle);
+				}
+				break;
+			}
+		}
+
+		for(int i = 0; i < degree; i++) {
+			int w = adjacencyMatrix.successor(v, i);
+			int next = price + adjacencyMatrix.get(v, w);
+
+			if(visited[w] || w == destination || next >= priceLimit || !reachability.componentReaches(reachability.getComponent(w), reachability.getComponent(destination))) {
+				continue;
+			}
+
+			stack[length] = w;
+			visited[w] = true;
+			depthFirst(stack, length + 1, next, visited, destination, priceLimit, cycle, onCycle);
+			visited[w] = false;
+		}
+	}
+
+	/**
+	 * <p>Hands the connections to <code><b>spill</b></code> and clears the trie, if it holds <code><b>maxLeaves</b></code> of them.
+	 * Called only when no node is referenced by the traversal, or when the caller inserts again the nodes it references.</p>
+	 *
+	 * @return <code><b>true</b></code> if the trie was cleared.
+	 */
+	private boolean spillIfFull() {
+		if(leafCount >= maxLeaves && spill != null) {
+			spill.accept(this);
+			clear();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * <p>Adds, below a connection, that connection followed by each roundtrip from its last airport that fits in the rest of
+	 * the price limit. The trie may spill between two roundtrips, in which case the connection is inserted again.</p>
+	 *
+	 * @param path Airports of the connection.
+	 * @param length How many airports are in <code><b>path</b></code>.
+	 * @param node Last node of the connection.
+	 * @param priceLimit Only connections cheaper than this price are kept.
+	 * @param cycle Work array holding the roundtrip being searched.
+	 * @param onCycle Work array marking the airports of <code><b>cycle</b></code>.
+	 */
+	private void appendRoundTrips(int[] path, int length, int node, int priceLimit, int[] cycle, boolean[] onCycle) {
+		int[] connection = {node};
+
+		cycle[0] = path[length - 1];
+		roundTrips(cycle, 1, 0, priceLimit - prices[node], onCycle, cycleLength -> {
+			if(spillIfFull()) {
+				connection[0] = insert(0, path, 0, length, priceLimit);
+			}
+
+			int last = insert(connection[0], cycle, 1, cycleLength, priceLimit);
+
+			if(last != NONE) {
+				addLeaf(last);
+			}
+		});
+	}
+
+	/**
+	 * <p>Finds, depth first, the roundtrips from <code><b>cycle[0]</b></code> cheaper than a budget, within its strongly connected
+	 * component. They come in the order of Johnson's circuit search (<code><b>DirectedGraph.depthFirstRoundTrip</b></code>), which
+	 * only skips the branches leading to no roundtrip, but one at a time and without exploring the ones over the budget.</p>
+	 *
+	 * @param cycle Airports of the current partial roundtrip.
+	 * @param length How many airports are in <code><b>cycle</b></code>.
+	 * @param price Price of the current partial roundtrip.
+	 * @param budget Only roundtrips cheaper than this price are found.
+	 * @param onCycle Airports in <code><b>cycle</b></code>, besides the first one.
+	 * @param found Receives the length of each roundtrip found, while it is in <code><b>cycle</b></code>.
+	 */
+	private void roundTrips(int[] cycle, int length, int price, int budget, boolean[] onCycle, IntConsumer found) {
+		int origin = cycle[0];
+		int v = cycle[length - 1];
+		int degree = adjacencyMatrix.outDegree(v);
+
+		for(int i = 0; i < degree; i++) {
+			int w = adjacencyMatrix.successor(v, i);
+			int next = price + adjacencyMatrix.get(v, w);
+
+			if(next >= budget) {
+				continue;
+			}
+
+			if(w == origin) {
+				cycle[length] = origin;
+				found.accept(length + 1);
+			} else if(!onCycle[w] && reachability.getComponent(w) == reachability.getComponent(origin)) {
+				cycle[length] = w;
+				onCycle[w] = true;
+				roundTrips(cycle, length + 1, next, budget, onCycle, found);
+				onCycle[w] = false;
+			}
+		}
+	}
+
+	/**
+	 * <p>Inserts airports below a node, reusing existing nodes.</p>
+	 *
+	 * @param node Node below which the airports are inserted.
+	 * @param path Airports being inserted.
+	 * @param from First airport of <code><b>path</b></code> to insert.
+	 * @param to Airport of <code><b>path</b></code> after the last one to insert.
+	 * @param priceLimit The insertion is abandoned (returning <code><b>NONE</b></code>) when the price reaches this limit.
+	 * @return The node of the last inserted airport, or <code><b>NONE</b></code>.
+	 */
+	public int insert(int node, int[] path, int from, int to, int priceLimit) {
+		for(int i = from; i < to; i++) {
+			int child = firstChildren[node];
+
+			while(child != NONE && airports[child] != path[i]) {
+				child = nextSiblings[child];
+			}
+
+			if(child == NONE) {
+				int price = node == 0 ? 0 : prices[node] + adjacencyMatrix.get(airports[node], path[i]);
+
+				if(price >= priceLimit) {
+					return NONE;
+				}
+				child = newNode(node, path[i], price);
+			} else if(prices[child] >= priceLimit) {
+				return NONE;
+			}
+
+			node = child;
+		}
+
+		return node;
+	}
+
+	/**
+	 * <p>Marks a node as the end of a connection.</p>
+	 *
+	 * @param node Last node of the connection.
+	 * @return The leaf id of the connection.
+	 */
+	public int addLeaf(int node) {
+		if(leafCount == leaves.length) {
+			leaves = Arrays.copyOf(leaves, leafCount * 2);
+		}
+		leaves[leafCount] = node;
+		return leafCount++;
+	}
+
+	/**
+	 * <p>Removes every node and connection; the arrays keep their capacity.</p>
+	 */
+	public void clear() {
+		nodeCount = 1;
+		leafCount = 0;
+		firstChildren[0] = NONE;
+	}
+
+	/**
+	 * @return Id of a new node.
+	 */
+	private int newNode(int parent, int airport, int price) {
+		if(nodeCount == airports.length) {
+			int capacity = nodeCount * 2;
+
+			airports = Arrays.copyOf(airports, capacity);
+			parents = Arrays.copyOf(parents, capacity);
+			firstChildren = Arrays.copyOf(firstChildren, capacity);
+			nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+			prices = Arrays.copyOf(prices, capacity);
+		}
+
+		int node = nodeCount++;
+
+		airports[node] = airport;
+		parents[node] = parent;
+		prices[node] = price;
+		firstChildren[node] = NONE;
+		nextSiblings[node] = firstChildren[parent];
+		firstChildren[parent] = node;
+
+		return node;
+	}
+
+	/**
+	 *
+	 * @return How many connections are stored.
+	 */
+	public int size() {
+		return leafCount;
+	}
+
+	/**
+	 *
+	 * @return How many nodes (shared airports) are stored, the root included.
+	 */
+	public int nodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @param leaf Leaf id of a connection.
+	 * @return Price of the connection.
+	 */
+	public int getPrice(int leaf) {
+		return prices[leaves[leaf]];
+	}
+
+	/**
+	 * @param leaf Leaf id of a connection.
+	 * @return How many airports are in the connection.
+	 */
+	public int length(int leaf) {
+		int length = 0;
+
+		for(int node = leaves[leaf]; node != 0; node = parents[node]) {
+			length++;
+		}
+		return length;
+	}
+
+	/**
+	 * @param leaf Leaf id of a connection.
+	 * @return Row/column offsets of the airports in the connection.
+	 */
+	public int[] getPath(int leaf) {
+		int[] path = new int[length(leaf)];
+		int i = path.length;
+
+		for(int node = leaves[leaf]; node != 0; node = parents[node]) {
+			path[--i] = airports[node];
+		}
+		return path;
+	}
+
+	/**
+	 * @param leaf Leaf id of a connection.
+	 * @return The connection and its price.
+	 */
+	public PricedPath getPricedPath(int leaf) {
+		return new PricedPath(getPath(leaf), getPrice(leaf));
+	}
+
+	/**
+	 * <p>Sorts the connections by price; connections having the same price keep their relative order.</p>
+	 * <p>Each connection is keyed by a primitive <code><b>long</b></code> holding its price and its leaf id, so sorting never
+	 * looks at the connections themselves.</p>
+	 *
+	 * @return Leaf ids of the connections, cheapest first.
+	 */
+	public int[] sortByPrice() {
+		long[] keys = new long[leafCount];
+		int[] sorted = new int[leafCount];
+
+		for(int i = 0; i < leafCount; i++) {
+			keys[i] = ((long)getPrice(i) << 32) | i;
+		}
+
+		Arrays.sort(keys);
+
+		for(int i = 0; i < leafCount; i++) {
+			sorted[i] = (int)keys[i];
+		}
+
+		return sorted;
+	}
+
+	/**
+	 * @param priceLimit Upper limit (exclusive) of the price.
+	 * @return How many connections are cheaper than <code><b>priceLimit</b></code>.
+	 */
+	public int countBelow(int priceLimit) {
+		int count = 0;
+
+		for(int leaf = 0; leaf < leafCount; leaf++) {
+			if(prices[leaves[leaf]] < priceLimit) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
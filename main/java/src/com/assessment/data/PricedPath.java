@@ -0,0 +1,63 @@
+package com.assessment.data;
+
+/**
+ * <p>A connection given as row/column offsets (see <code><b>com.assessment.data.AdjacencyMatrix</b></code>) together with its total price.</p>
+ * @author rsolano
+ *
+ */
+public class PricedPath {
+
+	/**
+	 * Row/column offsets of the airports in the connection, from departure to arrival.
+	 */
+	int[] path;
+
+	/**
+	 * Total price of the connection.
+	 */
+	int price;
+
+	/**
+	 * <p>Initializes instance fields whose names match parameters'.</p>
+	 *
+	 * @param path Row/column offsets of the airports in the connection, from departure to arrival.
+	 * @param price Total price of the connection.
+	 */
+	public PricedPath(int[] path, int price) {
+		this.path = path;
+		this.price = price;
+	}
+
+	/**
+	 *
+	 * @return Row/column offsets of the airports in the connection, from departure to arrival.
+	 */
+	public int[] getPath() {
+		return path;
+	}
+
+	/**
+	 *
+	 * @return Total price of the connection.
+	 */
+	public int getPrice() {
+		return price;
+	}
+
+	/**
+	 * <p>Formats the connection as <code><b>&lt;code&gt;-&lt;code&gt;-...-&lt;price&gt;</b></code>, e.g. <code><b>NUE-FRA-AMS-60</b></code>.</p>
+	 *
+	 * @param adjacencyMatrix The matrix whose row/column offsets are stored in this path.
+	 * @param buffer Where the connection is appended.
+	 * @return <code><b>buffer</b></code>.
+	 */
+	public StringBuilder format(AdjacencyMatrix adjacencyMatrix, StringBuilder buffer) {
+		for(int index: path) {
+			buffer.append(adjacencyMatrix.getCode(index));
+			buffer.append('-');
+		}
+		buffer.append(price);
+
+		return buffer;
+	}
+}
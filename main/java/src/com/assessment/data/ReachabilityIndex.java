@@ -0,0 +1,221 @@
+package com.assessment.data;
+
+/**
+ * <p>Transitive closure of the flights network, answering in O(1) whether any connection exists between two airports.</p>
+ * <p>Airports are grouped in strongly connected components (Tarjan's algorithm, iterative so large networks don't exhaust
+ * the stack); every airport of a component reaches every other one. Tarjan's algorithm numbers components in reverse
+ * topological order, so the reachability row of each component (a bitset over components) is the union of the rows of
+ * the components it flies to, which already exist when it is built.</p>
+ * @author rsolano
+ *
+ */
+public class ReachabilityIndex {
+
+	/**
+	 * Component of each airport (by row/column offset).
+	 */
+	int[] components;
+
+	/**
+	 * How many airports are in each component.
+	 */
+	int[] componentSizes;
+
+	/**
+	 * Reachability rows: bit <i>d</i> of <code><b>rows[c]</b></code> is set if component <i>c</i> reaches component <i>d</i>.
+	 */
+	long[][] rows;
+
+	/**
+	 * @param adjacencyMatrix Adjacency matrix whose offset adjacency lists are indexed.
+	 */
+	public ReachabilityIndex(AdjacencyMatrix adjacencyMatrix) {
+		this(adjacencyMatrix.length(), adjacencyMatrix.successorOffsets(), adjacencyMatrix.successors());
+	}
+
+	/**
+	 * @param size How many airports the network has.
+	 * @param offsets Offsets into <code><b>successors</b></code>; the airports reachable with a direct flight from airport <i>x</i> are
+	 * <b><code>successors[offsets[x]..offsets[x+1]-1]</code></b>.
+	 * @param successors Directed links grouped by departure airport.
+	 */
+	ReachabilityIndex(int size, int[] offsets, int[] successors) {
+		int count = findComponents(size, offsets, successors);
+
+		this.componentSizes = new int[count];
+		this.rows = new long[count][(count + 63) >>> 6];
+
+		for(int component: components) {
+			componentSizes[component]++;
+		}
+
+		int[][] members = new int[count][];
+		int[] filled = new int[count];
+
+		for(int c = 0; c < count; c++) {
+			members[c] = new int[componentSizes[c]];
+		}
+		for(int v = 0; v < size; v++) {
+			members[components[v]][filled[components[v]]++] = v;
+		}
+
+		for(int c = 0; c < count; c++) { // Successor components have lower numbers, so their rows are complete.
+			long[] row = rows[c];
+
+			row[c >>> 6] |= 1L << c;
+
+			for(int v: members[c]) {
+				for(int i = offsets[v]; i < offsets[v + 1]; i++) {
+					int d = components[successors[i]];
+
+					if(d != c && (row[d >>> 6] & (1L << d)) == 0) {
+						long[] other = rows[d];
+
+						for(int word = 0; word < row.length; word++) {
+							row[word] |= other[word];
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Iterative Tarjan's algorithm; fills <code><b>components</b></code>.</p>
+	 *
+	 * @return How many components were found.
+	 */
+	private int findComponents(int size, int[] offsets, int[] successors) {
+		int[] order = new int[size];
+		int[] lowLinks = new int[size];
+		int[] stack = new int[size];
+		int[] callStack = new int[size];
+		int[] nextSuccessor = new int[size];
+		boolean[] onStack = new boolean[size];
+		int counter = 0;
+		int stackSize = 0;
+		int count = 0;
+
+		components = new int[size];
+
+		for(int root = 0; root < size; root++) {
+			if(order[root] != 0) {
+				continue;
+			}
+
+			int depth = 0;
+
+			callStack[depth++] = root;
+			order[root] = lowLinks[root] = ++counter;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+
+			while(depth > 0) {
+				int v = callStack[depth - 1];
+
+				if(offsets[v] + nextSuccessor[v] < offsets[v + 1]) {
+					int w = successors[offsets[v] + nextSuccessor[v]++];
+
+					if(order[w] == 0) {
+						order[w] = lowLinks[w] = ++counter;
+						stack[stackSize++] = w;
+						onStack[w] = true;
+						callStack[depth++] = w;
+					} else if(onStack[w]) {
+						lowLinks[v] = Math.min(lowLinks[v], order[w]);
+					}
+					continue;
+				}
+
+				depth--;
+
+				if(depth > 0) {
+					int parent = callStack[depth - 1];
+
+					lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[v]);
+				}
+
+				if(lowLinks[v] == order[v]) {
+					int w;
+
+					do {
+						w = stack[--stackSize];
+						onStack[w] = false;
+						components[w] = count;
+					} while(w != v);
+
+					count++;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * @param source Row/column offset of the departure airport.
+	 * @param target Row/column offset of the arrival airport; if it equals <code><b>source</b></code>, roundtrips are sought.
+	 * @return <code><b>true</b></code> if at least one connection (or roundtrip) exists.
+	 */
+	public boolean reachable(int source, int target) {
+		int c = components[source];
+
+		if(source == target) {
+			return componentSizes[c] > 1;
+		}
+
+		int d = components[target];
+
+		return (rows[c][d >>> 6] & (1L << d)) != 0;
+	}
+
+	/**
+	 * @param sourceComponent Strongly connected component of the departure airport.
+	 * @param targetComponent Strongly connected component of the arrival airport.
+	 * @return <code><b>true</b></code> if the airports of <code><b>sourceComponent</b></code> reach those of <code><b>targetComponent</b></code>.
+	 */
+	public boolean componentReaches(int sourceComponent, int targetComponent) {
+		return (rows[sourceComponent][targetComponent >>> 6] & (1L << targetComponent)) != 0;
+	}
+
+	/**
+	 * @param airport Row/column offset of an airport.
+	 * @return The strongly connected component of the airport.
+	 */
+	public int getComponent(int airport) {
+		return components[airport];
+	}
+
+	/**
+	 *
+	 * @return How many strongly connected components the network has.
+	 */
+	public int getComponentCount() {
+		return componentSizes.length;
+	}
+
+	/**
+	 * @param component A strongly connected component.
+	 * @return How many airports are in the component.
+	 */
+	public int getComponentSize(int component) {
+		return componentSizes[component];
+	}
+
+	/**
+	 * @param airport Row/column offset of an airport.
+	 * @return How many airports can be reached from <code><b>airport</b></code>, itself included; an upper bound of the airports
+	 * any search from it settles.
+	 */
+	public int reachableAirports(int airport) {
+		long[] row = rows[components[airport]];
+		int count = 0;
+
+		for(int word = 0; word < row.length; word++) {
+			for(long bits = row[word]; bits != 0; bits &= bits - 1) {
+				count += componentSizes[(word << 6) + Long.numberOfTrailingZeros(bits)];
+			}
+		}
+		return count;
+	}
+}
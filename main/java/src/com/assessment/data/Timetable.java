@@ -0,0 +1,346 @@
+package com.assessment.data;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.assessment.util.StringIO;
+
+/**
+ * <p>Scheduled flights, answering earliest arrival questions with the Connection Scan Algorithm.</p>
+ * <p>Flights are given in lines such as <code><b>Flights: NUE-FRA-09:00-10:05, FRA-LHR-10:45-11:50</b></code> (departure airport,
+ * arrival airport, departure time and arrival time). A flight arriving before it departs lands the next day. Flights are kept in
+ * parallel primitive arrays sorted by departure time, so a query is a single linear pass that starts at the first flight
+ * departing after the requested time (binary search) and stops as soon as no later flight can improve the arrival.</p>
+ * @author rsolano
+ *
+ */
+public class Timetable {
+
+	/**
+	 * Regular expression that describes a single flight.
+	 */
+	public static String FLIGHT_PATTERN="(\\w+)\\-(\\w+)\\-(\\d{1,2}):(\\d{2})\\-(\\d{1,2}):(\\d{2})";
+
+	/**
+	 * Prefix of every flights line.
+	 */
+	public static String FLIGHTS_PREFIX="Flights:";
+
+	/**
+	 * Minutes in a day.
+	 */
+	private static final int DAY = 24 * 60;
+
+	/**
+	 * Compiled <code><b>FLIGHT_PATTERN</b></code>.
+	 */
+	private static final Pattern FLIGHT = Pattern.compile(FLIGHT_PATTERN);
+
+	/**
+	 * This map indexes airports by their codes.
+	 */
+	Map<String, Integer> airportIndex = new HashMap<String, Integer>();
+
+	/**
+	 * Airport codes, by airport index.
+	 */
+	String[] airportCodes = new String[16];
+
+	/**
+	 * Departure airport of each flight.
+	 */
+	int[] departureAirports = new int[64];
+
+	/**
+	 * Arrival airport of each flight.
+	 */
+	int[] arrivalAirports = new int[64];
+
+	/**
+	 * Departure time (minutes after midnight) of each flight.
+	 */
+	int[] departureTimes = new int[64];
+
+	/**
+	 * Arrival time (minutes after midnight of the departure day) of each flight.
+	 */
+	int[] arrivalTimes = new int[64];
+
+	/**
+	 * How many flights are stored.
+	 */
+	int size;
+
+	/**
+	 * <code><b>true</b></code> while the flights are sorted by departure time.
+	 */
+	boolean sorted = true;
+
+	/**
+	 * How many flights the last search of each thread scanned.
+	 */
+	private final ThreadLocal<Integer> scanned = ThreadLocal.withInitial(() -> 0);
+
+	/**
+	 * @param line Any line of the input stream.
+	 * @return <code><b>true</b></code> if <code><b>line</b></code> is a flights line.
+	 */
+	public static boolean isFlights(String line) {
+		return line != null && line.trim().startsWith(FLIGHTS_PREFIX);
+	}
+
+	/**
+	 * <p>Parses a flights line and adds its flights.</p>
+	 * <p>Lines are parsed flight by flight instead of matching a single regular expression against the whole line,
+	 * so lines holding many flights are accepted.</p>
+	 *
+	 * @param line A line such as <code><b>Flights: NUE-FRA-09:00-10:05, FRA-LHR-10:45-11:50</b></code>.
+	 * @throws ParseException If <code><b>line</b></code> is not a valid flights line.
+	 */
+	public synchronized void addFlights(String line) throws ParseException {
+		String trimmed = StringIO.removeSpaces(line);
+
+		if(!isFlights(trimmed)) {
+			throw new ParseException("Invalid flights line '"+line+"\'", 0);
+		}
+
+		int offset = FLIGHTS_PREFIX.length();
+
+		for(String record: trimmed.substring(offset).split(",")) {
+			Matcher matcher = FLIGHT.matcher(record);
+
+			if(!matcher.matches()) {
+				throw new ParseException("Invalid flight '"+record+"\'", offset);
+			}
+
+			int departure = time(matcher.group(3), matcher.group(4), record, offset);
+			int arrival = time(matcher.group(5), matcher.group(6), record, offset);
+
+			if(arrival < departure) {
+				arrival += DAY;
+			}
+
+			addFlight(airport(matcher.group(1)), airport(matcher.group(2)), departure, arrival);
+			offset += record.length() + 1;
+		}
+	}
+
+	/**
+	 * @return Minutes after midnight.
+	 * @throws ParseException If the time is not valid.
+	 */
+	private static int time(String hours, String minutes, String record, int offset) throws ParseException {
+		int h = Integer.parseInt(hours);
+		int m = Integer.parseInt(minutes);
+
+		if(h > 23 || m > 59) {
+			throw new ParseException("Invalid time in flight '"+record+"\'", offset);
+		}
+		return h * 60 + m;
+	}
+
+	/**
+	 * @param hhmm A time such as <code><b>09:00</b></code>.
+	 * @return Minutes after midnight.
+	 * @throws ParseException If <code><b>hhmm</b></code> is not valid.
+	 */
+	public static int parseTime(String hhmm) throws ParseException {
+		String[] parts = hhmm.trim().split(":");
+
+		if(parts.length != 2) {
+			throw new ParseException("Invalid time '"+hhmm+"\'", 0);
+		}
+		try {
+			return time(parts[0], parts[1], hhmm, 0);
+		}catch(NumberFormatException e) {
+			throw new ParseException("Invalid time '"+hhmm+"\'", 0);
+		}
+	}
+
+	/**
+	 * @param minutes Minutes after midnight of the departure day.
+	 * @return The time as <code><b>HH:MM</b></code>, followed by <code><b>+N</b></code> when it falls <i>N</i> days later.
+	 */
+	public static String formatTime(int minutes) {
+		String time = String.format("%02d:%02d", (minutes % DAY) / 60, minutes % 60);
+
+		return minutes < DAY ? time : time + "+" + (minutes / DAY);
+	}
+
+	/**
+	 * @return Index of the airport, which is added if needed.
+	 */
+	private int airport(String code) {
+		Integer index = airportIndex.get(code);
+
+		if(index == null) {
+			index = airportIndex.size();
+			airportIndex.put(code, index);
+
+			if(index == airportCodes.length) {
+				airportCodes = Arrays.copyOf(airportCodes, index * 2);
+			}
+			airportCodes[index] = code;
+		}
+		return index;
+	}
+
+	/**
+	 * Appends a flight.
+	 */
+	private void addFlight(int from, int to, int departure, int arrival) {
+		if(size == departureTimes.length) {
+			int capacity = size * 2;
+
+			departureAirports = Arrays.copyOf(departureAirports, capacity);
+			arrivalAirports = Arrays.copyOf(arrivalAirports, capacity);
+			departureTimes = Arrays.copyOf(departureTimes, capacity);
+			arrivalTimes = Arrays.copyOf(arrivalTimes, capacity);
+		}
+
+		if(size > 0 && departureTimes[size - 1] > departure) {
+			sorted = false;
+		}
+
+		departureAirports[size] = from;
+		arrivalAirports[size] = to;
+		departureTimes[size] = departure;
+		arrivalTimes[size] = arrival;
+		size++;
+	}
+
+	/**
+	 * Sorts flights by departure time (then by input order), using primitive <code><b>long</b></code> keys.
+	 */
+	private synchronized void sort() {
+		if(sorted) {
+			return;
+		}
+
+		long[] keys = new long[size];
+
+		for(int i = 0; i < size; i++) {
+			keys[i] = ((long)departureTimes[i] << 32) | i;
+		}
+		Arrays.sort(keys);
+
+		int[] from = new int[size];
+		int[] to = new int[size];
+		int[] departures = new int[size];
+		int[] arrivals = new int[size];
+
+		for(int i = 0; i < size; i++) {
+			int flight = (int)keys[i];
+
+			from[i] = departureAirports[flight];
+			to[i] = arrivalAirports[flight];
+			departures[i] = departureTimes[flight];
+			arrivals[i] = arrivalTimes[flight];
+		}
+
+		departureAirports = from;
+		arrivalAirports = to;
+		departureTimes = departures;
+		arrivalTimes = arrivals;
+		sorted = true;
+	}
+
+	/**
+	 *
+	 * @return How many flights are stored.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * <p>Finds the journey reaching <code><b>destinationCode</b></code> as early as possible (Connection Scan Algorithm).</p>
+	 * <p>A flight can be boarded if it departs from an airport already reached, at or after the time that airport was reached.</p>
+	 *
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @param departAfter Earliest departure time, in minutes after midnight.
+	 * @return The airports of the journey followed by the arrival time, e.g. <code><b>NUE-FRA-LHR-11:50</b></code>;
+	 * <code><b>null</b></code> if the destination can't be reached.
+	 */
+	public String earliestArrival(String sourceCode, String destinationCode, int departAfter) {
+		Integer source = airportIndex.get(sourceCode);
+		Integer destination = airportIndex.get(destinationCode);
+
+		scanned.set(0);
+
+		if(source == null || destination == null || source.equals(destination)) {
+			return null;
+		}
+
+		sort();
+
+		int[] arrivals = new int[airportIndex.size()];
+		int[] inbound = new int[airportIndex.size()];
+		int target = destination;
+
+		Arrays.fill(arrivals, Integer.MAX_VALUE);
+		arrivals[source] = departAfter;
+
+		int first = firstDeparture(departAfter);
+		int i = first;
+
+		for(; i < size && departureTimes[i] < arrivals[target]; i++) {
+			int to = arrivalAirports[i];
+
+			if(arrivals[departureAirports[i]] <= departureTimes[i] && arrivalTimes[i] < arrivals[to]) {
+				arrivals[to] = arrivalTimes[i];
+				inbound[to] = i;
+			}
+		}
+
+		scanned.set(i - first);
+
+		if(arrivals[target] == Integer.MAX_VALUE) {
+			return null;
+		}
+
+		StringBuilder buffer = new StringBuilder();
+		int airport = target;
+
+		buffer.append(airportCodes[target]);
+
+		while(airport != source) {
+			airport = departureAirports[inbound[airport]];
+			buffer.insert(0, '-').insert(0, airportCodes[airport]);
+		}
+
+		return buffer.append('-').append(formatTime(arrivals[target])).toString();
+	}
+
+	/**
+	 *
+	 * @return How many flights were scanned by the last search of the calling thread.
+	 */
+	public int getScannedCount() {
+		return scanned.get();
+	}
+
+	/**
+	 * @return Position of the first flight departing at or after <code><b>time</b></code>.
+	 */
+	private int firstDeparture(int time) {
+		int low = 0;
+		int high = size;
+
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+
+			if(departureTimes[middle] < time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
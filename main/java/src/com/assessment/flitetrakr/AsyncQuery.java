@@ -0,0 +1,130 @@
+package com.assessment.flitetrakr;
+
+import java.lang.reflect.InvocationTargetException;
+import java.text.ParseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import com.assessment.util.Flow;
+
+/**
+ * <p>Non blocking facade of <code><b>Query</b></code> and <code><b>NLQuery</b></code>: single answers are completed as
+ * <code><b>CompletableFuture</b></code>s and connection listings are published item by item (see <code><b>com.assessment.util.Flow</b></code>),
+ * so callers don't park a thread per question.</p>
+ * @author rsolano
+ *
+ */
+public class AsyncQuery {
+
+	/**
+	 * Query answering the questions.
+	 */
+	Query query;
+
+	/**
+	 * Natural language interface to <code><b>query</b></code>.
+	 */
+	NLQuery nlQuery;
+
+	/**
+	 * Executor running the searches.
+	 */
+	Executor executor;
+
+	/**
+	 * @param query Query answering the questions.
+	 * @param executor Executor running the searches.
+	 * @throws NoSuchMethodException If the NL evaluator can't be built.
+	 */
+	public AsyncQuery(Query query, Executor executor) throws NoSuchMethodException {
+		this.query = query;
+		this.nlQuery = new NLQuery(query);
+		this.executor = executor;
+	}
+
+	/**
+	 * <p>Runs the searches on <code><b>ForkJoinPool.commonPool()</b></code>.</p>
+	 *
+	 * @param query Query answering the questions.
+	 * @throws NoSuchMethodException If the NL evaluator can't be built.
+	 */
+	public AsyncQuery(Query query) throws NoSuchMethodException {
+		this(query, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param questionText Any question text accepted by <code><b>NLQuery.evaluate</b></code>.
+	 * @return The answer; invalid questions complete exceptionally with a <code><b>ParseException</b></code>.
+	 */
+	public CompletableFuture<String> evaluate(String questionText) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return nlQuery.evaluate(questionText);
+			}catch(ParseException | IllegalAccessException | InvocationTargetException e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * @param codes Airport codes of the connection.
+	 * @return See <code><b>Query.connectionPrice</b></code>.
+	 */
+	public CompletableFuture<Integer> connectionPrice(String[] codes) {
+		return CompletableFuture.supplyAsync(() -> query.connectionPrice(codes), executor);
+	}
+
+	/**
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @return See <code><b>Query.cheapestConnection</b></code>.
+	 */
+	public CompletableFuture<String> cheapestConnection(String sourceCode, String destinationCode) {
+		return CompletableFuture.supplyAsync(() -> query.cheapestConnection(sourceCode, destinationCode), executor);
+	}
+
+	/**
+	 * @param stops Maximum number of stops.
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @return See <code><b>Query.connectionsWithMaximumStops</b></code>.
+	 */
+	public CompletableFuture<Integer> connectionsWithMaximumStops(int stops, String sourceCode, String destinationCode) {
+		return CompletableFuture.supplyAsync(() -> query.connectionsWithMaximumStops(stops, sourceCode, destinationCode), executor);
+	}
+
+	/**
+	 * @param stops Minimum number of stops.
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @return See <code><b>Query.connectionsWithMinimumStops</b></code>.
+	 */
+	public CompletableFuture<Integer> connectionsWithMinimumStops(int stops, String sourceCode, String destinationCode) {
+		return CompletableFuture.supplyAsync(() -> query.connectionsWithMinimumStops(stops, sourceCode, destinationCode), executor);
+	}
+
+	/**
+	 * @param stops Exact number of stops.
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @return See <code><b>Query.connectionsWithExactStops</b></code>.
+	 */
+	public CompletableFuture<Integer> connectionsWithExactStops(int stops, String sourceCode, String destinationCode) {
+		return CompletableFuture.supplyAsync(() -> query.connectionsWithExactStops(stops, sourceCode, destinationCode), executor);
+	}
+
+	/**
+	 * <p>Publishes the connections below a price, cheapest first; each item is one connection formatted like the items of
+	 * <code><b>Query.connectionsBelowPrice</b></code>.</p>
+	 *
+	 * @param upperPrice Upper limit of the price range.
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @return A publisher that searches again for each subscriber; it completes without items if there is no connection.
+	 */
+	public Flow.Publisher<String> connectionsBelowPrice(int upperPrice, String sourceCode, String destinationCode) {
+		return new ConnectionPublisher(query, upperPrice, sourceCode, destinationCode, executor);
+	}
+}
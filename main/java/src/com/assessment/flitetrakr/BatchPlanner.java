@@ -0,0 +1,240 @@
+package com.assessment.flitetrakr;
+
+import java.lang.reflect.InvocationTargetException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.assessment.util.StringIO;
+
+/**
+ * <p>Answers a window of questions at once, sharing searches between the questions that need the same one.</p>
+ * <p>Cheapest connection questions are grouped by departure airport and answered from one shortest path tree
+ * (<code><b>Query.cheapestConnections</b></code>); stops questions are grouped by pair of airports and answered from one
+ * count of their connections by number of stops (<code><b>Query.connectionsByStops</b></code>). Questions alone in their group, and every
+ * other question, are evaluated one by one by <code><b>NLQuery</b></code>. Answers are returned in the order of the questions
+ * and equal those of <code><b>NLQuery.evaluate</b></code>.</p>
+ * @author rsolano
+ *
+ */
+public class BatchPlanner {
+
+	/**
+	 * <p>How many questions the command line interface reads before answering them, unless told otherwise.</p>
+	 */
+	public static final int DEFAULT_WINDOW = 256;
+
+	/**
+	 * Questions about the cheapest connection between two airports.
+	 */
+	private static final Pattern CHEAPEST_CONNECTION = Pattern.compile(NLQuery.CHEAPEST_CONNECTION_QUESTION);
+
+	/**
+	 * Questions about how many connections have a number of stops.
+	 */
+	private static final Pattern STOPS = Pattern.compile(NLQuery.STOPS_QUESTION);
+
+	/**
+	 * <p>Answer to one question of a window: either a result or the reason why the question is not valid.</p>
+	 */
+	public static class Answer {
+
+		/**
+		 * The answer; <code><b>null</b></code> if the question is not valid.
+		 */
+		String result;
+
+		/**
+		 * Why the question is not valid; <code><b>null</b></code> if it is.
+		 */
+		ParseException error;
+
+		Answer(String result, ParseException error) {
+			this.result = result;
+			this.error = error;
+		}
+
+		/**
+		 *
+		 * @return The answer; <code><b>null</b></code> if the question is not valid.
+		 */
+		public String getResult() {
+			return result;
+		}
+
+		/**
+		 *
+		 * @return Why the question is not valid; <code><b>null</b></code> if it is.
+		 */
+		public ParseException getError() {
+			return error;
+		}
+	}
+
+	/**
+	 * Query answering the grouped questions.
+	 */
+	Query query;
+
+	/**
+	 * Evaluator of the other questions.
+	 */
+	NLQuery nlQuery;
+
+	/**
+	 * @param query Query answering the questions.
+	 * @throws NoSuchMethodException If the NL evaluator can't be built.
+	 */
+	public BatchPlanner(Query query) throws NoSuchMethodException {
+		this.query = query;
+		this.nlQuery = new NLQuery(query);
+	}
+
+	/**
+	 * <p>Evaluates a window of questions.</p>
+	 *
+	 * @param questions Question texts accepted by <code><b>NLQuery.evaluate</b></code>.
+	 * @return One answer per question, in the same order.
+	 * @throws IllegalAccessException See <code><b>NLQuery.evaluate</b></code>.
+	 * @throws InvocationTargetException See <code><b>NLQuery.evaluate</b></code>.
+	 */
+	public List<Answer> evaluate(List<String> questions) throws IllegalAccessException, InvocationTargetException {
+		Answer[] answers = new Answer[questions.size()];
+		String[] normalized = new String[answers.length];
+		String[][] terminals = new String[answers.length][];
+		Map<String, List<Integer>> departures = new LinkedHashMap<String, List<Integer>>();
+		Map<String, List<Integer>> pairs = new LinkedHashMap<String, List<Integer>>();
+
+		for(int i = 0; i < answers.length; i++) {
+			String trimmed = questions.get(i).trim().replaceAll(StringIO.CONTINUOUS_WHITESPACE_EXPR, StringIO.SINGLE_WHITESPACE_STRING);
+
+			normalized[i] = trimmed.toUpperCase();
+
+			if(CHEAPEST_CONNECTION.matcher(normalized[i]).matches()) {
+				terminals[i] = trim(StringIO.mirrorSubString(trimmed, normalized[i], NLQuery.FROM_KEYWORD, NLQuery.TO_KEYWORD));
+				group(departures, terminals[i][0], i);
+			} else if(STOPS.matcher(normalized[i]).matches()) {
+				terminals[i] = trim(StringIO.mirrorSubString(trimmed, normalized[i], NLQuery.BETWEEN_KEYWORD, NLQuery.AND_KEYWORD));
+				group(pairs, terminals[i][0] + StringIO.SINGLE_WHITESPACE_STRING + terminals[i][1], i);
+			} else {
+				answers[i] = evaluate(questions.get(i));
+			}
+		}
+
+		for(List<Integer> group: departures.values()) {
+			if(group.size() == 1) { // A single question is cheaper to answer with a search that stops at its destination.
+				answers[group.get(0)] = evaluate(questions.get(group.get(0)));
+				continue;
+			}
+
+			String[] destinations = new String[group.size()];
+
+			for(int i = 0; i < destinations.length; i++) {
+				destinations[i] = terminals[group.get(i)][1];
+			}
+
+			String[] results = query.cheapestConnections(terminals[group.get(0)][0], destinations);
+
+			for(int i = 0; i < results.length; i++) {
+				answers[group.get(i)] = new Answer(results[i], null);
+			}
+		}
+
+		for(List<Integer> group: pairs.values()) {
+			if(group.size() == 1) { // A single exact question is cheaper to count on its own.
+				answers[group.get(0)] = evaluate(questions.get(group.get(0)));
+				continue;
+			}
+
+			String[] pair = terminals[group.get(0)];
+			int limit = 0;
+
+			for(int i: group) { // Minimum questions need every number of stops, the others up to theirs.
+				limit = normalized[i].contains(NLQuery.MINIMUM_KEYWORD) ? Integer.MAX_VALUE : Math.max(limit, stops(normalized[i]));
+			}
+
+			int[] histogram = limit == Integer.MAX_VALUE ? query.connectionsByStops(pair[0], pair[1]) : query.connectionsByStops(limit, pair[0], pair[1]);
+
+			for(int i: group) {
+				answers[i] = new Answer(Integer.toString(count(histogram, normalized[i])), null);
+			}
+		}
+
+		return Arrays.asList(answers);
+	}
+
+	/**
+	 * @return The answer of <code><b>NLQuery</b></code> to a single question.
+	 */
+	private Answer evaluate(String question) throws IllegalAccessException, InvocationTargetException {
+		try {
+			return new Answer(nlQuery.evaluate(question), null);
+		}catch(ParseException e) {
+			return new Answer(null, e);
+		}
+	}
+
+	/**
+	 * Adds a question to a group.
+	 */
+	private static void group(Map<String, List<Integer>> groups, String key, int question) {
+		List<Integer> group = groups.get(key);
+
+		if(group == null) {
+			group = new ArrayList<Integer>();
+			groups.put(key, group);
+		}
+		group.add(question);
+	}
+
+	/**
+	 * @return <code><b>terminals</b></code>, whose elements are trimmed.
+	 */
+	private static String[] trim(String[] terminals) {
+		for(int i = 0; i < terminals.length; i++) {
+			terminals[i] = terminals[i].trim();
+		}
+		return terminals;
+	}
+
+	/**
+	 * <p>Answers a stops question from the connections counted by number of stops.</p>
+	 *
+	 * @param histogram How many connections have each number of stops.
+	 * @param normalizedQuestionText The upper cased question.
+	 * @return How many connections comply with the question's limit.
+	 */
+	private static int count(int[] histogram, String normalizedQuestionText) {
+		String keyword = keyword(normalizedQuestionText);
+		int stops = stops(normalizedQuestionText);
+		int from = keyword == NLQuery.MAXIMUM_KEYWORD ? 0 : stops;
+		int to = keyword == NLQuery.MINIMUM_KEYWORD ? histogram.length - 1 : Math.min(stops, histogram.length - 1);
+		int count = 0;
+
+		for(int k = from; k <= to; k++) {
+			count += histogram[k];
+		}
+		return count;
+	}
+
+	/**
+	 * @param normalizedQuestionText The upper cased stops question.
+	 * @return The keyword of the question's limit: <code><b>MAXIMUM</b></code>, <code><b>MINIMUM</b></code> or <code><b>EXACTLY</b></code>.
+	 */
+	private static String keyword(String normalizedQuestionText) {
+		return normalizedQuestionText.contains(NLQuery.MAXIMUM_KEYWORD) ? NLQuery.MAXIMUM_KEYWORD
+			: normalizedQuestionText.contains(NLQuery.MINIMUM_KEYWORD) ? NLQuery.MINIMUM_KEYWORD : NLQuery.EXACTLY_KEYWORD;
+	}
+
+	/**
+	 * @param normalizedQuestionText The upper cased stops question.
+	 * @return The question's number of stops.
+	 */
+	private static int stops(String normalizedQuestionText) {
+		return Integer.parseInt(StringIO.substring(normalizedQuestionText, keyword(normalizedQuestionText), NLQuery.STOP_KEYWORD));
+	}
+}
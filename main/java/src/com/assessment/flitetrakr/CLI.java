@@ -1,6 +1,13 @@
 package com.assessment.flitetrakr;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
@@ -8,9 +15,24 @@ import java.io.FileInputStream;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.assessment.data.AdjacencyMatrix;
+import com.assessment.data.ContractionHierarchy;
+import com.assessment.data.FareStorage;
+import com.assessment.data.Timetable;
+import com.assessment.util.ChannelLineReader;
+import com.assessment.util.ChannelLineWriter;
 
 /** FliteTrakr's command line interface.
  * @author rsolano
@@ -18,6 +40,35 @@ import com.assessment.data.AdjacencyMatrix;
  */
 public class CLI {
 	
+	/**
+	 * <p>Name of the system property holding how many landmarks are precomputed for cheapest connection searches (0, the default, disables them).</p>
+	 */
+	public static final String LANDMARKS_PROPERTY = "com.assessment.flitetrakr.landmarks";
+	
+	/**
+	 * <p>Name of the system property holding the path of the contraction hierarchies index file. If the file holds an index of 
+	 * the same network it is loaded, otherwise the index is built and saved there for the next run.</p>
+	 */
+	public static final String INDEX_PROPERTY = "com.assessment.flitetrakr.index";
+	
+	/**
+	 * <p>Name of the system property holding how many regional shards the network is split into; with more than one shard the questions
+	 * are answered by worker processes through a <code>ShardCoordinator</code> (1, the default, answers them in this process).</p>
+	 */
+	public static final String SHARDS_PROPERTY = "com.assessment.flitetrakr.shards";
+	
+	/**
+	 * <p>Name of the system property holding how fares are stored: <code>DENSE</code> (the default), <code>OFF_HEAP</code> or <code>COMPRESSED</code> 
+	 * (see <code>com.assessment.data.FareStorage</code>).</p>
+	 */
+	public static final String STORAGE_PROPERTY = "com.assessment.flitetrakr.storage";
+	
+	/**
+	 * <p>Name of the system property holding how many questions are read before answering them together through a <code>BatchPlanner</code>; 
+	 * it defaults to 1 (each question is answered as soon as it is read) on the console and to <code>BatchPlanner.DEFAULT_WINDOW</code> otherwise.</p>
+	 */
+	public static final String BATCH_PROPERTY = "com.assessment.flitetrakr.batch";
+	
 	/**
 	 * Input stream through which the application receives connections data and questions. 
 	 */
@@ -28,11 +79,34 @@ public class CLI {
 	 */
 	PrintWriter output;
 	
+	/**
+	 * Channel through which the application receives connections data and questions, when it doesn't use <code>this.input</code>.
+	 */
+	ReadableByteChannel inputChannel;
+	
+	/**
+	 * Buffered writer of the answers, when they are not written to <code>this.output</code>.
+	 */
+	ChannelLineWriter channelOutput;
+	
 	/**
 	 * This value indicates what type of input is providing the data (CONSOLE, FILE, PIPE).
 	 */
 	CLIInputType cliType;
 	
+	/**
+	 * <p>Source of input lines; the same loop reads readers and channels.</p>
+	 */
+	@FunctionalInterface
+	private static interface LineInput {
+		
+		/**
+		 * @return The next line or <code>null</code> at the end of the input.
+		 * @throws IOException If the input is not available anymore.
+		 */
+		String readLine() throws IOException;
+	}
+	
 	/**
 	 * <p>Initializes instance fields whose names match parameters'.</p>
 	 * 
@@ -46,9 +120,24 @@ public class CLI {
 		this.output = output;
 	}
 	
+	/**
+	 * <p>Reads the input through a channel and large direct buffers (see <code>com.assessment.util.ChannelLineReader</code>), and 
+	 * writes answers in batches instead of flushing each one; meant for pipes and multi-GB replay files.</p>
+	 * 
+	 * @param cliType This value indicates what type of input is providing the data (FILE, PIPE).
+	 * @param input Channel through which the application receives connections data and questions.
+	 * @param output Channel receiving the answers; it is flushed, not closed, once the input ends. 
+	 */
+	public CLI(CLIInputType cliType, ReadableByteChannel input, WritableByteChannel output) {
+		this.cliType = cliType;
+		this.inputChannel = input;
+		this.channelOutput = new ChannelLineWriter(output);
+	}
+	
 	
 	/**
-	 * <p>Reads connections data and questions from <code>this.input</code> and the prints expected feedback.</p>
+	 * <p>Reads connections data and questions from <code>this.input</code> (or <code>this.inputChannel</code>) and the prints expected feedback.</p>
+	 * <p>Lines starting with <code>Flights:</code> add scheduled flights (see <code>com.assessment.data.Timetable</code>) instead of asking a question.</p>
 	 * 
 	 * <p>This method must be called after successful instantiation.</p>
 	 * @return How many question were accepted by the evaluator.
@@ -58,32 +147,75 @@ public class CLI {
 	 * @throws NoSuchMethodException 
 	 */
 	public int process() throws IOException, ParseException {
-		BufferedReader reader = new BufferedReader(this.input);
+		LineInput reader = inputChannel != null ? new ChannelLineReader(inputChannel)::readLine : new BufferedReader(this.input)::readLine;
+		
+		try {
+			return process(reader);
+		} finally {
+			if(channelOutput != null) {
+				channelOutput.flush();
+			}
+		}
+	}
+	
+	/**
+	 * <p>Reads connections data and questions from <code>reader</code> and the prints expected feedback.</p>
+	 * 
+	 * @param reader Input lines.
+	 * @return How many question were accepted by the evaluator.
+	 * @throws IOException If the input is not available anymore.
+	 * @throws ParseException If the 1st line in the input stream doesn't define a connections graph.
+	 */
+	private int process(LineInput reader) throws IOException, ParseException {
 		String line = reader.readLine();
-		AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(line);
+		int shards = Integer.getInteger(SHARDS_PROPERTY, 1);
+		
+		if(shards > 1) {
+			return process(reader, line, shards);
+		}
+		
+		AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(line, fareStorage());
+		
+		preprocess(adjacencyMatrix);
+		
 		Query query = new Query(adjacencyMatrix);
+		int window = Integer.getInteger(BATCH_PROPERTY, cliType == CLIInputType.CONSOLE ? 1 : BatchPlanner.DEFAULT_WINDOW);
+		List<String> pending = new ArrayList<String>();
 		int count = 1;
 		
 		
 		try {
+			BatchPlanner planner = new BatchPlanner(query);
 			NLQuery nlQuery = new NLQuery(query);
 			
 			while((line = reader.readLine()) != null) {
 				
-				try {
-					String result = nlQuery.evaluate(line);
-					output.println(String.format("%d: %s", count, line));
-					output.println(String.format("%d: %s", count, result));
-					output.println();
-					output.flush();
-					count++;
+				if(Timetable.isFlights(line)) { // Scheduled flights are data, not questions: the questions read before are answered without them.
+					count = answer(planner, pending, count);
 					
-				}catch(ParseException e) {
-					
-					System.out.println(String.format("WARN: %s Can't evaluate '%s'.", e.getMessage(), line));
+					try {
+						query.getTimetable().addFlights(line);
+					}catch(ParseException e) {
+						warn(String.format("WARN: %s Can't evaluate '%s'.", e.getMessage(), line));
+					}
+					continue;
+				}
+				
+				if(nlQuery.streams(line)) { // Listings may not fit in memory: they are written while they are merged, after the questions read before.
+					count = answer(planner, pending, count);
+					count = answer(nlQuery, count, line);
+					continue;
+				}
+				
+				pending.add(line);
+				
+				if(pending.size() >= window) {
+					count = answer(planner, pending, count);
 				}
 			}
 			
+			count = answer(planner, pending, count);
+			
 		} catch ( IllegalAccessException | IllegalArgumentException | InvocationTargetException | NoSuchMethodException e) {
 			
 			throw new IOException("FATAL: The NL evaluator is unable to accept more input", e);
@@ -92,35 +224,246 @@ public class CLI {
 		return count;
 		
 	}
+	
+	/**
+	 * <p>Answers the pending questions together and prints their answers, or warnings for the invalid ones, in order.</p>
+	 * 
+	 * @param planner Evaluator of the questions.
+	 * @param pending Questions read but not answered yet; it is emptied.
+	 * @param count Number of the next accepted question.
+	 * @return Number of the next accepted question, after these ones.
+	 * @throws IOException If the output channel can't be written.
+	 * @throws IllegalAccessException See <code>NLQuery.evaluate</code>.
+	 * @throws InvocationTargetException See <code>NLQuery.evaluate</code>.
+	 */
+	private int answer(BatchPlanner planner, List<String> pending, int count) throws IOException, IllegalAccessException, InvocationTargetException {
+		if(pending.isEmpty()) {
+			return count;
+		}
+		
+		List<BatchPlanner.Answer> answers = planner.evaluate(pending);
+		
+		for(int i = 0; i < answers.size(); i++) {
+			BatchPlanner.Answer answer = answers.get(i);
+			
+			if(answer.getError() != null) {
+				warn(String.format("WARN: %s Can't evaluate '%s'.", answer.getError().getMessage(), pending.get(i)));
+			} else {
+				answer(count, pending.get(i), answer.getResult());
+				count++;
+			}
+		}
+		
+		pending.clear();
+		return count;
+	}
+	
+	/**
+	 * <p>Prints a question and streams its answer (see <code>NLQuery.evaluate(String, Appendable)</code>).</p>
+	 * 
+	 * @param nlQuery Evaluator of the question.
+	 * @param count Number of the question.
+	 * @param line The question.
+	 * @return Number of the next accepted question.
+	 * @throws IOException If the output can't be written.
+	 * @throws IllegalAccessException See <code>NLQuery.evaluate</code>.
+	 * @throws InvocationTargetException See <code>NLQuery.evaluate</code>.
+	 */
+	private int answer(NLQuery nlQuery, int count, String line) throws IOException, IllegalAccessException, InvocationTargetException {
+		try {
+			if(channelOutput != null) {
+				channelOutput.append(count).append(": ").append(line).newLine();
+				channelOutput.append(count).append(": ");
+				nlQuery.evaluate(line, channelOutput);
+				channelOutput.newLine();
+				channelOutput.newLine();
+			} else {
+				output.println(String.format("%d: %s", count, line));
+				output.print(String.format("%d: ", count));
+				nlQuery.evaluate(line, output);
+				output.println();
+				output.println();
+				output.flush();
+			}
+		}catch(ParseException e) { // Not expected: the question matched before being evaluated.
+			warn(String.format("WARN: %s Can't evaluate '%s'.", e.getMessage(), line));
+			return count;
+		}
+		
+		return count + 1;
+	}
+	
+	/**
+	 * <p>Reads questions from <code>reader</code> and has them answered by the workers of a <code>ShardCoordinator</code>.</p>
+	 * 
+	 * @param reader Input stream, positioned after the connections line.
+	 * @param connections The connections line.
+	 * @param shards How many shards the network is split into.
+	 * @return How many question were accepted by the evaluator.
+	 * @throws IOException If <code>this.input</code> or a worker is not available anymore.
+	 * @throws ParseException If the connections line doesn't define a connections graph.
+	 */
+	private int process(LineInput reader, String connections, int shards) throws IOException, ParseException {
+		int count = 1;
+		String line;
+		
+		try(ShardCoordinator coordinator = new ShardCoordinator(connections, shards, true)) {
+			
+			while((line = reader.readLine()) != null) {
+				
+				try {
+					
+					if(Timetable.isFlights(line)) {
+						warn(String.format("WARN: Scheduled flights are not sharded. Can't evaluate '%s'.", line));
+						continue;
+					}
+					
+					answer(count, line, coordinator.evaluate(line));
+					count++;
+					
+				}catch(ParseException e) {
+					
+					warn(String.format("WARN: %s Can't evaluate '%s'.", e.getMessage(), line));
+				}
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * <p>Prints a question and its answer; channel output is buffered, other output is flushed right away.</p>
+	 * 
+	 * @param count Number of the question.
+	 * @param line The question.
+	 * @param result The answer.
+	 * @throws IOException If the output channel can't be written.
+	 */
+	private void answer(int count, String line, String result) throws IOException {
+		if(channelOutput != null) {
+			channelOutput.append(count).append(": ").append(line).newLine();
+			channelOutput.append(count).append(": ").append(result).newLine();
+			channelOutput.newLine();
+		} else {
+			output.println(String.format("%d: %s", count, line));
+			output.println(String.format("%d: %s", count, result));
+			output.println();
+			output.flush();
+		}
+	}
+	
+	/**
+	 * <p>Prints a warning on the standard output, after the answers buffered so far.</p>
+	 * 
+	 * @param message The warning.
+	 * @throws IOException If the output channel can't be written.
+	 */
+	private void warn(String message) throws IOException {
+		if(channelOutput != null) {
+			channelOutput.flush();
+		}
+		System.out.println(message);
+	}
+	
+	/**
+	 * @return How fares are stored, as requested via <code>STORAGE_PROPERTY</code>.
+	 * @throws IOException If the property doesn't name a <code>FareStorage</code>.
+	 */
+	private static FareStorage fareStorage() throws IOException {
+		try {
+			return FareStorage.valueOf(System.getProperty(STORAGE_PROPERTY, FareStorage.DENSE.name()).trim().toUpperCase().replace('-', '_'));
+		}catch(IllegalArgumentException e) {
+			throw new IOException(String.format("FATAL: Unknown fare storage '%s'", System.getProperty(STORAGE_PROPERTY)), e);
+		}
+	}
+	
+	/**
+	 * <p>Attaches the optional search indexes requested via system properties (<code>LANDMARKS_PROPERTY</code> and <code>INDEX_PROPERTY</code>).</p>
+	 * 
+	 * @param adjacencyMatrix The matrix the indexes are attached to.
+	 * @throws IOException If the contraction hierarchies index file can't be read or written.
+	 */
+	private void preprocess(AdjacencyMatrix adjacencyMatrix) throws IOException {
+		String indexPath = System.getProperty(INDEX_PROPERTY);
+		
+		adjacencyMatrix.preprocessLandmarks(Integer.getInteger(LANDMARKS_PROPERTY, 0));
+		
+		if(indexPath != null) {
+			File indexFile = new File(indexPath);
+			ContractionHierarchy index = null;
+			
+			if(indexFile.isFile()) {
+				try(InputStream stream = new BufferedInputStream(new FileInputStream(indexFile))) {
+					index = ContractionHierarchy.load(stream);
+				}catch(IOException e) { // A truncated, corrupted or outdated file is rebuilt like a missing one.
+					index = null;
+				}
+			}
+			
+			if(index == null || !index.matches(adjacencyMatrix)) {
+				index = new ContractionHierarchy(adjacencyMatrix);
+				save(index, indexFile);
+			}
+			
+			adjacencyMatrix.setContractionHierarchy(index);
+		}
+	}
+	
+	/**
+	 * <p>Saves a contraction hierarchies index to a temporary file next to <code><b>indexFile</b></code> and then moves it into 
+	 * place, so that an interrupted run never leaves a partial index behind.</p>
+	 * 
+	 * @param index The index being saved.
+	 * @param indexFile The contraction hierarchies index file.
+	 * @throws IOException If the index can't be written.
+	 */
+	private static void save(ContractionHierarchy index, File indexFile) throws IOException {
+		File temporary = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getAbsoluteFile().getParentFile());
+		
+		try {
+			try(OutputStream stream = new BufferedOutputStream(new FileOutputStream(temporary))) {
+				index.save(stream);
+			}
+			
+			try {
+				Files.move(temporary.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}catch(AtomicMoveNotSupportedException e) {
+				Files.move(temporary.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			temporary.delete();
+		}
+	}
+	
 	/**
 	 * 
 	 * @param args Command line arguments
 	 * @throws IOException When the input stream (stdin or file) can't be read.
 	 */
 	public static void main(String args[])  {
-		InputStream input = null;
+		Closeable input = null;
 		CLI instance;
-		CLIInputType inputType = CLIInputType.CONSOLE;
-		PrintWriter writer = new PrintWriter(System.out);;
-		Reader reader;
 		
 		try{
 			
 			if(args.length > 0){ //The input stream is a physical file.
-				input = new FileInputStream(args[0]);
-				reader = new InputStreamReader(input);
-				inputType = CLIInputType.FILE;
+				FileChannel channel = FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ);
+				
+				input = channel;
+				instance = new CLI(CLIInputType.FILE, channel, new FileOutputStream(FileDescriptor.out).getChannel());
+			}
+			else if(System.console() == null) { //The standard input is piped.
+				instance = new CLI(CLIInputType.PIPE, new FileInputStream(FileDescriptor.in).getChannel(), new FileOutputStream(FileDescriptor.out).getChannel());
 			}
 			else {
-				reader = new InputStreamReader(System.in);
+				instance = new CLI(CLIInputType.CONSOLE, new InputStreamReader(System.in), new PrintWriter(System.out));
 			}
 			
-			instance = new CLI(inputType, reader, writer);
 			instance.process();
 			
 		}catch(IOException | ParseException  e) {
 			
-			System.console().writer().println(String.format("ERROR: %s. Can't start interpreter", e.getMessage()));
+			System.err.println(String.format("ERROR: %s. Can't start interpreter", e.getMessage()));
 		}
 		finally {
 			
@@ -128,7 +471,7 @@ public class CLI {
 				try{
 					input.close();
 				}catch(IOException e) {
-					System.console().writer().println(String.format("ERROR: Can't close the input stream %s", e.getMessage()));
+					System.err.println(String.format("ERROR: Can't close the input stream %s", e.getMessage()));
 				}
 			}
 		}
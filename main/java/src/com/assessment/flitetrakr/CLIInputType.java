@@ -16,5 +16,10 @@ public enum CLIInputType {
 	/**
 	 * The user provided a physical file.
 	 */
-	FILE
+	FILE,
+	
+	/**
+	 * Another program pipes data through the standard input.
+	 */
+	PIPE
 }
@@ -0,0 +1,215 @@
+package com.assessment.flitetrakr;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.assessment.data.ExternalConnectionSort;
+import com.assessment.util.Flow;
+
+/**
+ * <p>Publishes the connections between two airports below a price, cheapest first, formatted like the items of
+ * <code><b>Query.connectionsBelowPrice</b></code>.</p>
+ * <p>Each subscriber gets its own stream. The search runs on the executor when the first item is requested; afterwards each
+ * connection is formatted only when the subscriber asks for it, so the whole answer is never held as one string. As in 
+ * <code><b>Query.connectionsBelowPrice(int, String, String, Appendable)</b></code>, at most <code><b>Query.spillLimit</b></code> 
+ * connections are held in memory; the rest wait in run files until the stream ends.</p>
+ * @author rsolano
+ *
+ */
+class ConnectionPublisher implements Flow.Publisher<String> {
+
+	/**
+	 * Query whose network is searched.
+	 */
+	Query query;
+
+	/**
+	 * Upper limit of the price range.
+	 */
+	int upperPrice;
+
+	/**
+	 * Departure airport's code.
+	 */
+	String sourceCode;
+
+	/**
+	 * Destination airport's code.
+	 */
+	String destinationCode;
+
+	/**
+	 * Executor searching and delivering items.
+	 */
+	Executor executor;
+
+	/**
+	 * @param query Query whose network is searched.
+	 * @param upperPrice Upper limit of the price range.
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @param executor Executor searching and delivering items.
+	 */
+	ConnectionPublisher(Query query, int upperPrice, String sourceCode, String destinationCode, Executor executor) {
+		this.query = query;
+		this.upperPrice = upperPrice;
+		this.sourceCode = sourceCode;
+		this.destinationCode = destinationCode;
+		this.executor = executor;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super String> subscriber) {
+		new ConnectionSubscription(subscriber).start();
+	}
+
+	/**
+	 * <p>Stream of one subscriber. Deliveries are serialized: a single drain loop runs at a time, and requests arriving meanwhile
+	 * only add demand.</p>
+	 */
+	class ConnectionSubscription implements Flow.Subscription, Runnable {
+
+		/**
+		 * Receiver of the items.
+		 */
+		Flow.Subscriber<? super String> subscriber;
+
+		/**
+		 * Requested items not delivered yet.
+		 */
+		AtomicLong demand = new AtomicLong();
+
+		/**
+		 * How many drain loops were asked for; only the one raising it from 0 runs.
+		 */
+		AtomicInteger pending = new AtomicInteger();
+
+		/**
+		 * Set once the stream ended, by the subscriber or by the publisher.
+		 */
+		volatile boolean done;
+
+		/**
+		 * <code><b>true</b></code> once the connections were searched.
+		 */
+		boolean searched;
+
+		/**
+		 * Connections found, cheapest first; <code><b>null</b></code> until the first request, if there is none, or once closed.
+		 */
+		ExternalConnectionSort.Cursor connections;
+
+		/**
+		 * Error to deliver instead of items (not positive requests).
+		 */
+		volatile Throwable error;
+
+		ConnectionSubscription(Flow.Subscriber<? super String> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		/**
+		 * Tells the subscriber its subscription.
+		 */
+		void start() {
+			subscriber.onSubscribe(this);
+		}
+
+		@Override
+		public void request(long n) {
+			if(n <= 0) {
+				error = new IllegalArgumentException(String.format("Requested %d items; requests must be positive", n));
+			} else {
+				demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+			}
+
+			if(pending.getAndIncrement() == 0) {
+				executor.execute(this);
+			}
+		}
+
+		@Override
+		public void cancel() {
+			done = true;
+
+			if(pending.getAndIncrement() == 0) { // The drain loop releases the connections.
+				executor.execute(this);
+			}
+		}
+
+		/**
+		 * Delivers as many items as requested.
+		 */
+		@Override
+		public void run() {
+			int missed = 1;
+
+			do {
+				drain();
+				missed = pending.addAndGet(-missed);
+			} while(missed != 0);
+		}
+
+		/**
+		 * One pass of the drain loop.
+		 */
+		private void drain() {
+			if(done) {
+				release();
+				return;
+			}
+
+			if(error != null) {
+				finish(error);
+				return;
+			}
+
+			try {
+				if(!searched) {
+					searched = true;
+					connections = query.openConnectionsBelowPrice(upperPrice, sourceCode, destinationCode);
+				}
+
+				while(!done && connections != null && connections.hasNext() && demand.get() > 0) {
+					StringBuilder buffer = new StringBuilder();
+
+					connections.next(buffer);
+					demand.decrementAndGet();
+					subscriber.onNext(buffer.toString());
+				}
+			}catch(IOException | RuntimeException e) {
+				finish(e);
+				return;
+			}
+
+			if(!done && (connections == null || !connections.hasNext())) {
+				done = true;
+				release();
+				subscriber.onComplete();
+			} else if(done) {
+				release();
+			}
+		}
+
+		/**
+		 * Ends the stream with an error.
+		 */
+		private void finish(Throwable failure) {
+			done = true;
+			release();
+			subscriber.onError(failure);
+		}
+
+		/**
+		 * Closes the connections, deleting their run files.
+		 */
+		private void release() {
+			if(connections != null) {
+				connections.close();
+				connections = null;
+			}
+		}
+	}
+}
\ No newline at end of file
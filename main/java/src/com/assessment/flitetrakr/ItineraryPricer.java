@@ -0,0 +1,153 @@
+package com.assessment.flitetrakr;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.text.ParseException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import com.assessment.data.AdjacencyMatrix;
+import com.assessment.util.StringIO;
+
+/**
+ * <p>Validates and prices itineraries by walking their legs directly.</p>
+ * <p>Pricing an itinerary with <i>k</i> legs costs <i>k</i> lookups in the direct flight fares
+ * (<code><b>AdjacencyMatrix.getLinkFare</b></code>), so price questions never build the fare table nor the directed graph. The bulk API
+ * (<code><b>priceAll</b></code>) prices a stream of itineraries in parallel while keeping the input order.</p>
+ * @author rsolano
+ *
+ */
+public class ItineraryPricer {
+
+	/**
+	 * How many itineraries <code><b>priceAll</b></code> reads and prices at once.
+	 */
+	public static final int CHUNK_SIZE = 8192;
+
+	/**
+	 * Adjacency matrix whose weights are the flight fares and its row/columns coordinates mapped to airport codes.
+	 */
+	AdjacencyMatrix adjacencyMatrix;
+
+	/**
+	 * @param adjacencyMatrix Adjacency matrix whose weights are the flight fares and its row/columns coordinates are mapped to airport codes.
+	 */
+	public ItineraryPricer(AdjacencyMatrix adjacencyMatrix) {
+		this.adjacencyMatrix = adjacencyMatrix;
+	}
+
+	/**
+	 * <p>Prices an itinerary.</p>
+	 *
+	 * @param codes An array of airport codes representing a connection; 1st element is the connection's source and last one is the connection's destination.
+	 * @return -1 if no connection having those codes exist, or a positive integer indicating the connection cost.
+	 */
+	public int price(String... codes) {
+		int last = codes.length - 1;
+		Set<String> visited = new HashSet<String>();
+		int price = 0;
+
+		if(last < 1) {
+			return -1;
+		}
+
+		for(int i = 0; i < last; i++) {
+			int fare = adjacencyMatrix.getLinkFare(codes[i], codes[i + 1]);
+
+			if(!visited.add(codes[i]) || fare == 0) {
+				return -1;
+			}
+			price += fare;
+		}
+
+		if(visited.contains(codes[last]) && !(last > 1 && codes[last].equals(codes[0]))) { // Only roundtrips may revisit an airport, and only the first one.
+			return -1;
+		}
+
+		return price;
+	}
+
+	/**
+	 * <p>Prices an itinerary written as <code><b>&lt;code&gt;-&lt;code&gt;-...</b></code> (e.g. <code><b>NUE-FRA-LHR</b></code>).</p>
+	 *
+	 * @param itinerary Airport codes separated by '-'. Whitespace is ignored.
+	 * @return A line like <code><b>NUE-FRA-LHR: 70</b></code> or <code><b>NUE-AMS-LHR: No such connection found!</b></code>.
+	 */
+	public String format(String itinerary) {
+		String trimmed = StringIO.removeSpaces(itinerary);
+		int price = price(trimmed.split("\\-"));
+
+		return trimmed + ": " + (price == -1 ? Query.CONNECTION_NOT_FOUND_ERROR : Integer.toString(price));
+	}
+
+	/**
+	 * <p>Prices every itinerary read from <code><b>input</b></code> (one per line, blank lines are skipped) and prints one
+	 * result line per itinerary to <code><b>output</b></code>, in the same order.</p>
+	 * <p>Lines are streamed in chunks of <code><b>CHUNK_SIZE</b></code>: each chunk is read, priced in parallel and written before
+	 * the next one is read, so at most one chunk is held in memory however long the input is.</p>
+	 *
+	 * @param input Itineraries, one per line.
+	 * @param output Where results are written.
+	 * @return How many itineraries were priced.
+	 * @throws IOException If <code><b>input</b></code> can't be read.
+	 */
+	public long priceAll(Reader input, PrintWriter output) throws IOException {
+		BufferedReader reader = new BufferedReader(input, 1 << 16);
+		String[] chunk = new String[CHUNK_SIZE];
+		long count = 0;
+		String line = null;
+
+		do {
+			int length = 0;
+
+			while(length < chunk.length && (line = reader.readLine()) != null) {
+				if(line.trim().length() > 0) {
+					chunk[length++] = line;
+				}
+			}
+
+			IntStream.range(0, length).parallel().forEach(i -> chunk[i] = format(chunk[i]));
+
+			for(int i = 0; i < length; i++) {
+				output.println(chunk[i]);
+			}
+			count += length;
+		} while(line != null);
+
+		output.flush();
+		return count;
+	}
+
+	/**
+	 * <p>Fare audit entry point.</p>
+	 *
+	 * @param args <code><b>args[0]</b></code> is a file whose first line is the connections table, <code><b>args[1]</b></code> is a file containing one itinerary per line.
+	 */
+	public static void main(String args[]) {
+
+		if(args.length < 2) {
+			System.err.println("USAGE: ItineraryPricer <connections-file> <itineraries-file>");
+			return;
+		}
+
+		try(
+			BufferedReader connections = new BufferedReader(new InputStreamReader(new FileInputStream(args[0])));
+			Reader itineraries = new InputStreamReader(new FileInputStream(args[1]))
+		) {
+			ItineraryPricer pricer = new ItineraryPricer(new AdjacencyMatrix(connections.readLine()));
+			PrintWriter output = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+
+			pricer.priceAll(itineraries, output);
+
+		}catch(IOException | ParseException e) {
+			System.err.println(String.format("ERROR: %s. Can't price itineraries", e.getMessage()));
+		}
+	}
+}
@@ -1,10 +1,13 @@
 package com.assessment.flitetrakr;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.text.ParseException;
 import java.util.regex.Pattern;
 
+import com.assessment.data.Timetable;
 import com.assessment.util.StringIO;
 
 
@@ -27,31 +30,31 @@ public class NLQuery {
 	 * <p>&quot;FROM&quot;</p>
 	 * <p>Convenience constant to avoid literal repetition everywhere.</p>
 	 */	
-	private static final String FROM_KEYWORD="FROM";
+	static final String FROM_KEYWORD="FROM";
 	
 	/**
 	 * <p>&quot;TO&quot;</p>
 	 * <p>Convenience constant to avoid literal repetition everywhere.</p>
 	 */	
-	private static final String TO_KEYWORD="TO";
+	static final String TO_KEYWORD="TO";
 	
 	/**
 	 * <p>&quot;BETWEEN&quot;</p>
 	 * <p>Convenience constant to avoid literal repetition everywhere.</p>
 	 */	
-	private static final String BETWEEN_KEYWORD="BETWEEN";
+	static final String BETWEEN_KEYWORD="BETWEEN";
 	
 	/**
 	 * <p>&quot;EXACTLY&quot;</p>
 	 * <p>Convenience constant to avoid literal repetition everywhere.</p>
 	 */		
-	private static final String EXACTLY_KEYWORD="EXACTLY";
+	static final String EXACTLY_KEYWORD="EXACTLY";
 	
 	/**
 	 * <p>&quot;AND&quot;</p>
 	 * <p>Convenience constant to avoid literal repetition everywhere.</p>
 	 */	
-	private static final String AND_KEYWORD="AND";
+	static final String AND_KEYWORD="AND";
 	
 	/**
 	 * <p>&quot;BELOW&quot;</p>
@@ -69,19 +72,90 @@ public class NLQuery {
 	 * <p>&quot;STOP&quot;</p>
 	 * <p>Convenience constant to avoid literal repetition everywhere.</p>
 	 */	
-	private static final String STOP_KEYWORD="STOP";
+	static final String STOP_KEYWORD="STOP";
 	
 	/**
 	 * <p>&quot;MINIMUM&quot;</p>
 	 * <p>Convenience constant to avoid literal repetition everywhere.</p>
 	 */		
-	private static final String MINIMUM_KEYWORD="MINIMUM";
+	static final String MINIMUM_KEYWORD="MINIMUM";
 	
 	/**
 	 * <p>&quot;MAXIMUM&quot;</p>
 	 * <p>Convenience constant to avoid literal repetition everywhere.</p>
 	 */	
-	private static final String MAXIMUM_KEYWORD="MAXIMUM";
+	static final String MAXIMUM_KEYWORD="MAXIMUM";
+	
+	/**
+	 * <p>&quot;DEPARTING&quot;</p>
+	 * <p>Convenience constant to avoid literal repetition everywhere.</p>
+	 */	
+	private static final String DEPARTING_KEYWORD="DEPARTING";
+	
+	/**
+	 * <p>&quot;WITH&quot;</p>
+	 * <p>Convenience constant to avoid literal repetition everywhere.</p>
+	 */	
+	private static final String WITH_KEYWORD="WITH";
+	
+	/**
+	 * <p>This constant is used to extract the limit of stops of histogram questions.</p>
+	 */
+	private static final String UP_TO_KEYWORD="UP TO";
+	
+	/**
+	 * <p>This constant is used to find where the airports of histogram questions end.</p>
+	 */
+	private static final String BY_KEYWORD="BY";
+	
+	/**
+	 * <p>Prefix of the questions whose plan is reported along with their answer (see <code><b>explain</b></code>).</p>
+	 */
+	static final String EXPLAIN_KEYWORD="EXPLAIN";
+	
+	/**
+	 * <p>Regular expression of the (upper cased) questions about the price of a connection.</p>
+	 */
+	public static final String PRICE_QUESTION="^(WHAT\\s+IS\\s+)?(THE\\s+)?PRICE\\s+(OF\\s+(THE\\s+)?)?CONNECTION\\s+\\w+(\\-\\w+)*\\s*\\??$";
+	
+	/**
+	 * <p>Regular expression of the (upper cased) questions about the cheapest connection between two airports.</p>
+	 */
+	public static final String CHEAPEST_CONNECTION_QUESTION="^(WHAT\\s+IS\\s+)?(THE\\s+)?CHEAPEST\\s+CONNECTION\\s+FROM\\s+\\w+\\s+TO\\s+\\w+\\s*\\??$";
+	
+	/**
+	 * <p>Regular expression of the (upper cased) questions about the cheapest connection between sets of airports, like 
+	 * <code>from NUE or FRA to LHR or LGW</code>.</p>
+	 */
+	public static final String CHEAPEST_CONNECTION_BETWEEN_SETS_QUESTION="^(WHAT\\s+IS\\s+)?(THE\\s+)?CHEAPEST\\s+CONNECTION\\s+FROM\\s+\\w+(\\s+OR\\s+\\w+)*\\s+TO\\s+\\w+(\\s+OR\\s+\\w+)*\\s*\\??$";
+	
+	/**
+	 * <p>Regular expression of the (upper cased) questions about the connections below a price, like 
+	 * <code>Find all connections from NUE to LHR below 170 Euros!</code>.</p>
+	 */
+	public static final String CONNECTIONS_BELOW_PRICE_QUESTION="^((FIND\\s+)?(ALL\\s+)?)?CONNECTIONS\\s+FROM\\s+\\w+\\s+TO\\s+\\w+\\s+BELOW\\s+\\d+\\s*EUROS?\\S??$";
+	
+	/**
+	 * <p>Regular expression of the (upper cased) questions about the airports reachable from another one within a budget, like 
+	 * <code>Find all airports reachable from NUE for under 200 Euros!</code>.</p>
+	 */
+	public static final String AIRPORTS_BELOW_PRICE_QUESTION="^((FIND\\s+)?(ALL\\s+)?)?(AIRPORTS|DESTINATIONS)\\s+(REACHABLE\\s+)?FROM\\s+\\w+\\s+(FOR\\s+)?(UNDER|BELOW)\\s+\\d+\\s*EUROS?\\S??$";
+	
+	/**
+	 * <p>Regular expression of the (upper cased) questions about how many connections between two airports have each number of stops, like 
+	 * <code>How many connections with up to 3 stops exist between NUE and LHR, by number of stops?</code>.</p>
+	 */
+	public static final String STOPS_HISTOGRAM_QUESTION="^(HOW\\s+MANY\\s+)?(DIFFERENT\\s+)?CONNECTIONS\\s+(WITH\\s+)?UP\\s+TO\\s+\\d+\\s+STOPS?\\s+(EXIST(S)?\\s+)?BETWEEN\\s+\\w+\\s+AND\\s+\\w+,?\\s+BY\\s+(NUMBER\\s+OF\\s+)?STOPS\\s*\\??$";
+	
+	/**
+	 * <p>Separator of the airports of a set.</p>
+	 */
+	private static final Pattern OR_SEPARATOR = Pattern.compile("\\s+OR\\s+", Pattern.CASE_INSENSITIVE);
+	
+	/**
+	 * <p>Regular expression of the (upper cased) questions about how many connections between two airports have a number of stops.</p>
+	 */
+	public static final String STOPS_QUESTION="^(HOW\\s+MANY\\s+)?(DIFFERENT\\s+)?CONNECTIONS\\s+(WITH\\s+)?(MAXIMUM|MINIMUM|EXACTLY)\\s+\\d+\\s+(STOP(S)?\\s+)(EXIST(S)?\\s+)?BETWEEN\\s+\\w+\\s+AND\\s+\\w+\\s*\\??$";
 	
 	/**
 	 * <p>An array of <code><b>java.util.regex.Pattern</b></code> instances. Each pattern addresses all the variants of a single question.
@@ -93,6 +167,11 @@ public class NLQuery {
 	 */
 	private Method[] methods;
 	
+	/**
+	 * <p>Questions whose answers are streamed by <code><b>evaluate(String, Appendable)</b></code>.</p>
+	 */
+	private Pattern streamed = Pattern.compile(CONNECTIONS_BELOW_PRICE_QUESTION);
+	
 	/**
 	 * The <code><b>com.assessment.flitetrakr.Query</b></code> instance whose functions are called via this NL Interface.
 	 * 
@@ -109,17 +188,35 @@ public class NLQuery {
 	public NLQuery(Query query) throws NoSuchMethodException, SecurityException {
 		this.query = query;
 		this.questions = new Pattern[] {
-			Pattern.compile("^(WHAT\\s+IS\\s+)?(THE\\s+)?PRICE\\s+(OF\\s+(THE\\s+)?)?CONNECTION\\s+\\w+(\\-\\w+)*\\s*\\??$"),
-			Pattern.compile("^(WHAT\\s+IS\\s+)?(THE\\s+)?CHEAPEST\\s+CONNECTION\\s+FROM\\s+\\w+\\s+TO\\s+\\w+\\s*\\??$"),
-			Pattern.compile("^(HOW\\s+MANY\\s+)?(DIFFERENT\\s+)?CONNECTIONS\\s+(WITH\\s+)?(MAXIMUM|MINIMUM|EXACTLY)\\s+\\d+\\s+(STOP(S)?\\s+)(EXIST(S)?\\s+)?BETWEEN\\s+\\w+\\s+AND\\s+\\w+\\s*\\??$"),
-			Pattern.compile("^((FIND\\s+)?(ALL\\s+)?)?CONNECTIONS\\s+FROM\\s+\\w+\\s+TO\\s+\\w+\\s+BELOW\\s+\\d+\\s*EUROS?\\S??$")		
+			Pattern.compile(PRICE_QUESTION),
+			Pattern.compile(CHEAPEST_CONNECTION_QUESTION),
+			Pattern.compile(STOPS_QUESTION),
+			Pattern.compile(CONNECTIONS_BELOW_PRICE_QUESTION),
 							  //Find all connections from NUE to LHR below 170 Euros!
+			Pattern.compile("^(WHAT\\s+IS\\s+)?(THE\\s+)?EARLIEST\\s+ARRIVAL\\s+FROM\\s+\\w+\\s+TO\\s+\\w+\\s+DEPARTING\\s+(AFTER|AT)\\s+\\d{1,2}:\\d{2}\\s*\\??$"),
+							  //What is the earliest arrival from NUE to LHR departing after 09:00?
+			Pattern.compile("^(WHAT\\s+ARE\\s+)?(THE\\s+)?BEST\\s+CONNECTIONS\\s+FROM\\s+\\w+\\s+TO\\s+\\w+\\s*\\??$"),
+							  //What are the best connections from NUE to LHR?
+			Pattern.compile("^(WHAT\\s+IS\\s+)?(THE\\s+)?CHEAPEST\\s+CONNECTION\\s+FROM\\s+\\w+\\s+TO\\s+\\w+\\s+WITH\\s+(MAXIMUM|AT\\s+MOST)\\s+\\d+\\s+STOPS?\\s*\\??$"),
+							  //What is the cheapest connection from NUE to LHR with maximum 1 stop?
+			Pattern.compile(CHEAPEST_CONNECTION_BETWEEN_SETS_QUESTION),
+							  //What is the cheapest connection from NUE or FRA to LHR or LGW?
+			Pattern.compile(AIRPORTS_BELOW_PRICE_QUESTION),
+							  //Find all airports reachable from NUE for under 200 Euros!
+			Pattern.compile(STOPS_HISTOGRAM_QUESTION)
+							  //How many connections with up to 3 stops exist between NUE and LHR, by number of stops?
 		};
 		this.methods = new Method[] {
 			NLQuery.class.getMethod("connectionPrice", String.class, String.class),
 			NLQuery.class.getMethod("cheapestConnection", String.class, String.class),
 			NLQuery.class.getMethod("connectionsWithStops", String.class, String.class),
-			NLQuery.class.getMethod("connectionsBelowPrice", String.class, String.class)
+			NLQuery.class.getMethod("connectionsBelowPrice", String.class, String.class),
+			NLQuery.class.getMethod("earliestArrival", String.class, String.class),
+			NLQuery.class.getMethod("bestConnections", String.class, String.class),
+			NLQuery.class.getMethod("cheapestConnectionWithMaximumStops", String.class, String.class),
+			NLQuery.class.getMethod("cheapestConnectionBetweenSets", String.class, String.class),
+			NLQuery.class.getMethod("airportsBelowPrice", String.class, String.class),
+			NLQuery.class.getMethod("connectionsByStops", String.class, String.class)
 		};
 		
 	}
@@ -221,18 +318,204 @@ public class NLQuery {
 	 * @return A list of connections separated by comma.
 	 */	
 	public String connectionsBelowPrice(String trimmedQuestionText, String normalizedQuestionText) {
+		StringBuilder buffer = new StringBuilder();
+		
+		try {
+			connectionsBelowPrice(trimmedQuestionText, normalizedQuestionText, buffer);
+		}catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return buffer.toString();
+	}
+	
+	/**
+	 * <p>Streams the answer of a question matching <code><b>CONNECTIONS_BELOW_PRICE_QUESTION</b></code> (see 
+	 * <code><b>Query.connectionsBelowPrice(int, String, String, Appendable)</b></code>).</p>
+	 * 
+	 * @param trimmedQuestionText The question text without multiple whitespaces between words ('    ' --&lt;' ')
+	 * @param normalizedQuestionText A non null/empty string matching the specified regex.
+	 * @param output Receives the connections separated by comma, or <code><b>Query.CONNECTION_NOT_FOUND_ERROR</b></code>.
+	 * @throws IOException If <code><b>output</b></code> can't be written.
+	 */
+	private void connectionsBelowPrice(String trimmedQuestionText, String normalizedQuestionText, Appendable output) throws IOException {
 		String questionTextWithNoEuro = normalizedQuestionText.replaceAll("EURO\\S*", StringIO.EMPTY_STRING);
 		String terminalPoints[] = StringIO.mirrorSubString(trimmedQuestionText, questionTextWithNoEuro, FROM_KEYWORD, TO_KEYWORD);
 		int upperPrice = Integer.parseInt(StringIO.substring(normalizedQuestionText, BELOW_KEYWORD, EURO_KEYWORD));
 		
-		String connections = query.connectionsBelowPrice(upperPrice, terminalPoints[0].trim(), terminalPoints[1].trim());
+		if(query.connectionsBelowPrice(upperPrice, terminalPoints[0].trim(), terminalPoints[1].trim(), output) == 0) {
+			output.append(Query.CONNECTION_NOT_FOUND_ERROR);
+		}
+	}
+	
+	/**
+	 * <p>Process question matching the following regex:</p>
+	 * <p><code><b>&quot;^(WHAT\\s+IS\\s+)?(THE\\s+)?EARLIEST\\s+ARRIVAL\\s+FROM\\s+\\w+\\s+TO\\s+\\w+\\s+DEPARTING\\s+(AFTER|AT)\\s+\\d{1,2}:\\d{2}\\s*\\??$&quot;</b></code>.</p>
+	 * 
+	 * @param trimmedQuestionText The question text without multiple whitespaces between words ('    ' --&lt;' ')
+	 * @param normalizedQuestionText A non null/empty string matching the specified regex.
+	 * @return The journey followed by its arrival time.
+	 * @throws ParseException If the departure time is not valid.
+	 */
+	public String earliestArrival(String trimmedQuestionText, String normalizedQuestionText) throws ParseException {
+		int departing = normalizedQuestionText.lastIndexOf(DEPARTING_KEYWORD);
+		String terminalPoints[] = StringIO.mirrorSubString(trimmedQuestionText, normalizedQuestionText.substring(0, departing), FROM_KEYWORD, TO_KEYWORD);
+		String words[] = normalizedQuestionText.substring(0, StringIO.questionMarkPos(normalizedQuestionText)).trim().split(StringIO.SINGLE_WHITESPACE_STRING);
+		int departAfter = Timetable.parseTime(words[words.length - 1]);
+		
+		return query.earliestArrival(terminalPoints[0].trim(), terminalPoints[1].trim(), departAfter);
+	}
+	
+	/**
+	 * <p>Process question matching the following regex:</p>
+	 * <p><code><b>&quot;^(WHAT\\s+ARE\\s+)?(THE\\s+)?BEST\\s+CONNECTIONS\\s+FROM\\s+\\w+\\s+TO\\s+\\w+\\s*\\??$&quot;</b></code>.</p>
+	 * 
+	 * @param trimmedQuestionText The question text without multiple whitespaces between words ('    ' --&lt;' ')
+	 * @param normalizedQuestionText A non null/empty string matching the specified regex.
+	 * @return A list of connections separated by comma, from the cheapest to the one with fewest stops.
+	 */
+	public String bestConnections(String trimmedQuestionText, String normalizedQuestionText) {
+		String terminalPoints[] = StringIO.mirrorSubString(trimmedQuestionText, normalizedQuestionText, FROM_KEYWORD, TO_KEYWORD);
+		String connections = query.bestConnections(terminalPoints[0].trim(), terminalPoints[1].trim());
 		
-		if(connections.trim().length() == 0) {
+		if(connections.length() == 0) {
 			return Query.CONNECTION_NOT_FOUND_ERROR;
 		}
 		return connections;
 	}
 	
+	/**
+	 * <p>Process question matching the following regex:</p>
+	 * <p><code><b>&quot;^(WHAT\\s+IS\\s+)?(THE\\s+)?CHEAPEST\\s+CONNECTION\\s+FROM\\s+\\w+\\s+TO\\s+\\w+\\s+WITH\\s+(MAXIMUM|AT\\s+MOST)\\s+\\d+\\s+STOPS?\\s*\\??$&quot;</b></code>.</p>
+	 * 
+	 * @param trimmedQuestionText The question text without multiple whitespaces between words ('    ' --&lt;' ')
+	 * @param normalizedQuestionText A non null/empty string matching the specified regex.
+	 * @return A string containing the cheapest connection path.
+	 */
+	public String cheapestConnectionWithMaximumStops(String trimmedQuestionText, String normalizedQuestionText) {
+		int with = normalizedQuestionText.lastIndexOf(WITH_KEYWORD);
+		String terminalPoints[] = StringIO.mirrorSubString(trimmedQuestionText, normalizedQuestionText.substring(0, with), FROM_KEYWORD, TO_KEYWORD);
+		String limit = normalizedQuestionText.substring(with + WITH_KEYWORD.length()).replaceAll("\\D+", StringIO.SINGLE_WHITESPACE_STRING).trim();
+		
+		return query.cheapestConnectionWithMaximumStops(Integer.parseInt(limit), terminalPoints[0].trim(), terminalPoints[1].trim());
+	}
+	
+	/**
+	 * <p>Process question matching <code><b>CHEAPEST_CONNECTION_BETWEEN_SETS_QUESTION</b></code>.</p>
+	 * 
+	 * @param trimmedQuestionText The question text without multiple whitespaces between words ('    ' --&lt;' ')
+	 * @param normalizedQuestionText A non null/empty string matching the specified regex.
+	 * @return A string containing the cheapest connection path between any of the departure airports and any of the destination airports.
+	 */
+	public String cheapestConnectionBetweenSets(String trimmedQuestionText, String normalizedQuestionText) {
+		int from = normalizedQuestionText.indexOf(StringIO.SINGLE_WHITESPACE_STRING + FROM_KEYWORD + StringIO.SINGLE_WHITESPACE_STRING);
+		int to = normalizedQuestionText.lastIndexOf(StringIO.SINGLE_WHITESPACE_STRING + TO_KEYWORD + StringIO.SINGLE_WHITESPACE_STRING);
+		String sources = trimmedQuestionText.substring(from + FROM_KEYWORD.length() + 2, to).trim();
+		String destinations = trimmedQuestionText.substring(to + TO_KEYWORD.length() + 2, StringIO.questionMarkPos(normalizedQuestionText)).trim();
+		
+		return query.cheapestConnection(OR_SEPARATOR.split(sources), OR_SEPARATOR.split(destinations));
+	}
+	
+	/**
+	 * <p>Process question matching <code><b>AIRPORTS_BELOW_PRICE_QUESTION</b></code>.</p>
+	 * 
+	 * @param trimmedQuestionText The question text without multiple whitespaces between words ('    ' --&lt;' ')
+	 * @param normalizedQuestionText A non null/empty string matching the specified regex.
+	 * @return The reachable airports with their cheapest fares, cheapest first.
+	 */
+	public String airportsBelowPrice(String trimmedQuestionText, String normalizedQuestionText) {
+		int from = normalizedQuestionText.indexOf(FROM_KEYWORD + StringIO.SINGLE_WHITESPACE_STRING) + FROM_KEYWORD.length() + 1;
+		String source = trimmedQuestionText.substring(from).split(StringIO.SINGLE_WHITESPACE_STRING)[0];
+		String limit = normalizedQuestionText.substring(from + source.length()).replaceAll("\\D+", StringIO.SINGLE_WHITESPACE_STRING).trim();
+		String airports = query.airportsBelowPrice(Integer.parseInt(limit), source);
+		
+		if(airports.length() == 0) {
+			return Query.CONNECTION_NOT_FOUND_ERROR;
+		}
+		return airports;
+	}
+	
+	/**
+	 * <p>Process question matching <code><b>STOPS_HISTOGRAM_QUESTION</b></code>.</p>
+	 * 
+	 * @param trimmedQuestionText The question text without multiple whitespaces between words ('    ' --&lt;' ')
+	 * @param normalizedQuestionText A non null/empty string matching the specified regex.
+	 * @return How many connections have 0, 1, ... stops, separated by <code><b>StringIO.DEFAULT_LIST_SEPARATOR</b></code>; the list 
+	 * stops at the most stops a connection can have, even if more are asked (see <code><b>Query.connectionsByStops(int, String, String)</b></code>).
+	 */
+	public String connectionsByStops(String trimmedQuestionText, String normalizedQuestionText) {
+		int by = normalizedQuestionText.lastIndexOf(StringIO.SINGLE_WHITESPACE_STRING + BY_KEYWORD + StringIO.SINGLE_WHITESPACE_STRING);
+		String terminalPoints[] = StringIO.mirrorSubString(trimmedQuestionText, normalizedQuestionText.substring(0, by), BETWEEN_KEYWORD, AND_KEYWORD);
+		int stops = Integer.parseInt(StringIO.substring(normalizedQuestionText, UP_TO_KEYWORD, STOP_KEYWORD));
+		int[] histogram = query.connectionsByStops(stops, terminalPoints[0].trim(), terminalPoints[1].trim().replaceAll(",$", StringIO.EMPTY_STRING));
+		String[] counts = new String[histogram.length];
+		
+		for(int i = 0; i < counts.length; i++) {
+			counts[i] = Integer.toString(histogram[i]);
+		}
+		
+		return StringIO.join(counts, StringIO.DEFAULT_LIST_SEPARATOR);
+	}
+	
+	/**
+	 * <p>Evaluates a question and reports how it was answered: the engine chosen by <code><b>QueryPlanner</b></code>, the estimated 
+	 * and actual expansions, and the time spent planning and answering.</p>
+	 * 
+	 * @param questionText Any question text accepted by <code><b>evaluate</b></code>, without the <code><b>EXPLAIN</b></code> prefix.
+	 * @return The plan followed by the answer. Example <code><b>plan: DIJKSTRA, estimated: 4, expanded: 3, planning: 0.010 ms, 
+	 * execution: 0.120 ms; answer: NUE-FRA-AMS-60</b></code>.
+	 * @throws IllegalAccessException See <code><b>evaluate</b></code>.
+	 * @throws IllegalArgumentException See <code><b>evaluate</b></code>.
+	 * @throws InvocationTargetException See <code><b>evaluate</b></code>.
+	 * @throws ParseException See <code><b>evaluate</b></code>.
+	 */
+	public String explain(String questionText) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, ParseException {
+		QueryPlanner.Plan plan = query.startExplaining();
+		long start = System.nanoTime();
+		String answer;
+		
+		try {
+			answer = evaluate(questionText);
+		} finally {
+			query.stopExplaining();
+		}
+		
+		plan.executionNanos = Math.max(System.nanoTime() - start - plan.planningNanos, 0);
+		
+		return String.format("%s; answer: %s", plan, answer);
+	}
+	
+	/**
+	 * @param questionText Any question text.
+	 * @return <code><b>true</b></code> if the answer is streamed by <code><b>evaluate(String, Appendable)</b></code> instead of 
+	 * being built in memory: connections below a price, which may be millions.
+	 */
+	public boolean streams(String questionText) {
+		return streamed.matcher(questionText.trim().replaceAll(StringIO.CONTINUOUS_WHITESPACE_EXPR, StringIO.SINGLE_WHITESPACE_STRING).toUpperCase()).matches();
+	}
+	
+	/**
+	 * <p>Evaluates a question and writes its answer to <code><b>output</b></code>; connections below a price are streamed as they 
+	 * are merged (see <code><b>streams</b></code>), other answers are the ones of <code><b>evaluate(String)</b></code>.</p>
+	 * 
+	 * @param questionText Any question text accepted by <code><b>evaluate(String)</b></code>.
+	 * @param output Receives the answer.
+	 * @throws IOException If <code><b>output</b></code> can't be written.
+	 * @throws IllegalAccessException See <code><b>evaluate(String)</b></code>.
+	 * @throws IllegalArgumentException See <code><b>evaluate(String)</b></code>.
+	 * @throws InvocationTargetException See <code><b>evaluate(String)</b></code>.
+	 * @throws ParseException See <code><b>evaluate(String)</b></code>.
+	 */
+	public void evaluate(String questionText, Appendable output) throws IOException, IllegalAccessException, IllegalArgumentException, InvocationTargetException, ParseException {
+		String trimmed = questionText.trim().replaceAll(StringIO.CONTINUOUS_WHITESPACE_EXPR, StringIO.SINGLE_WHITESPACE_STRING);
+		String upperCased = trimmed.toUpperCase();
+		
+		if(streamed.matcher(upperCased).matches()) {
+			connectionsBelowPrice(trimmed, upperCased, output);
+		} else {
+			output.append(evaluate(questionText));
+		}
+	}
+	
 	/**
 	 * <p>Evaluates a question and returns results.</p>
 	 * @param questionText Any question text matching any of the regular expression specified in the constructor.
@@ -247,6 +530,10 @@ public class NLQuery {
 		String trimmed = questionText.trim().replaceAll(StringIO.CONTINUOUS_WHITESPACE_EXPR, StringIO.SINGLE_WHITESPACE_STRING);
 		String upperCased = trimmed.toUpperCase();
 		
+		if(upperCased.startsWith(EXPLAIN_KEYWORD + StringIO.SINGLE_WHITESPACE_STRING)) {
+			return explain(trimmed.substring(EXPLAIN_KEYWORD.length() + 1));
+		}
+		
 		int index = 0;
 		String result;
 		
@@ -255,7 +542,15 @@ public class NLQuery {
 			if(question.matcher(upperCased).matches()) {
 				Method method = methods[index];
 				
-				result = (String)method.invoke(this, trimmed, upperCased);
+				try {
+					result = (String)method.invoke(this, trimmed, upperCased);
+				}catch(InvocationTargetException e) {
+					
+					if(e.getCause() instanceof ParseException) {
+						throw (ParseException)e.getCause();
+					}
+					throw e;
+				}
 				return result;
 			}
 			
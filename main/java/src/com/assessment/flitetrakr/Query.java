@@ -1,14 +1,23 @@
 package com.assessment.flitetrakr;
 
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.stream.Collectors;
 
 import com.assessment.data.AdjacencyMatrix;
+import com.assessment.data.BidirectionalPathSearch;
+import com.assessment.data.BoundedPathSearch;
+import com.assessment.data.CheapestPathSearch;
+import com.assessment.data.ContractionHierarchy;
+import com.assessment.data.DirectedGraph;
+import com.assessment.data.ExternalConnectionSort;
+import com.assessment.data.ParetoSearch;
+import com.assessment.data.PathTrie;
+import com.assessment.data.PricedPath;
+import com.assessment.data.Timetable;
 import com.assessment.util.StringIO;
 
 /**
@@ -23,17 +32,126 @@ public class Query {
 	 */
 	public static final String CONNECTION_NOT_FOUND_ERROR= "No such connection found!";
 	
+	/**
+	 * <p>Name of the system property holding how many connections below a price are sorted in memory; beyond it, sorted runs are 
+	 * spilled to temporary files and merged (see <b><code>com.assessment.data.ExternalConnectionSort</code></b>). It defaults to 
+	 * <b><code>DEFAULT_SPILL_LIMIT</code></b>.</p>
+	 */
+	public static final String SPILL_PROPERTY = "com.assessment.flitetrakr.spill";
+	
+	/**
+	 * <p>How many connections below a price are sorted in memory, unless told otherwise.</p>
+	 */
+	public static final int DEFAULT_SPILL_LIMIT = 1 << 20;
+	
 	/**
 	 * Adjacency matrix whose weights are the flight fares and its row/columns coordinates mapped to airport codes.
 	 */
 	AdjacencyMatrix adjacencyMatrix;
 	
+	/**
+	 * Validates and prices connections leg by leg.
+	 */
+	ItineraryPricer itineraryPricer;
+	
+	/**
+	 * Scheduled flights used to answer earliest arrival questions; empty unless flights lines are loaded.
+	 */
+	Timetable timetable;
+	
+	/**
+	 * Chooses the engine answering each question.
+	 */
+	QueryPlanner planner;
+	
+	/**
+	 * Whether connections may end with a roundtrip from the destination, as read once from the system property (see <b><code>processMultipleStops</code></b>).
+	 */
+	boolean multipleStops;
+	
+	/**
+	 * How many connections below a price are sorted in memory, as read once from <b><code>SPILL_PROPERTY</code></b>.
+	 */
+	int spillLimit;
+	
+	/**
+	 * Plan of the question being explained by the current thread, if any (see <b><code>startExplaining</code></b>).
+	 */
+	ThreadLocal<QueryPlanner.Plan> explained = new ThreadLocal<QueryPlanner.Plan>();
 		
 	/**
 	 * @param adjacencyMatrix Adjacency matrix whose weights are the flight fares and its row/columns coordinates are mapped to airport codes.
 	 */
 	public Query(AdjacencyMatrix adjacencyMatrix) {
 		this.adjacencyMatrix = adjacencyMatrix;
+		this.itineraryPricer = new ItineraryPricer(adjacencyMatrix);
+		this.timetable = new Timetable();
+		this.planner = new QueryPlanner(adjacencyMatrix);
+		this.multipleStops = processMultipleStops();
+		this.spillLimit = Math.max(Integer.getInteger(SPILL_PROPERTY, DEFAULT_SPILL_LIMIT), 1);
+	}
+	
+	/**
+	 * 
+	 * @return Chooses the engine answering each question.
+	 */
+	public QueryPlanner getPlanner() {
+		return planner;
+	}
+	
+	/**
+	 * <p>Starts recording, for the current thread, the plan of the next questions (the last one wins) and the expansions of its engine.</p>
+	 * 
+	 * @return The plan being recorded; its engine is <code><b>null</b></code> until a question is planned.
+	 */
+	QueryPlanner.Plan startExplaining() {
+		QueryPlanner.Plan plan = planner.plan(null, -1);
+		
+		explained.set(plan);
+		return plan;
+	}
+	
+	/**
+	 * <p>Stops recording the plans of the current thread.</p>
+	 */
+	void stopExplaining() {
+		explained.remove();
+	}
+	
+	/**
+	 * <p>Records the plan of a question, if the current thread is explaining it.</p>
+	 * 
+	 * @param plan The plan chosen.
+	 * @return <code><b>plan</b></code>.
+	 */
+	private QueryPlanner.Plan explain(QueryPlanner.Plan plan) {
+		QueryPlanner.Plan recorded = explained.get();
+		
+		if(recorded != null) {
+			recorded.update(plan);
+		}
+		return plan;
+	}
+	
+	/**
+	 * <p>Records the expansions of the engine, if the current thread is explaining a question.</p>
+	 * 
+	 * @param count Expansions done by the engine.
+	 */
+	private void expanded(long count) {
+		QueryPlanner.Plan recorded = explained.get();
+		
+		if(recorded != null) {
+			recorded.expanded(count);
+		}
+	}
+	
+	/**
+	 * 
+	 * @return Scheduled flights used to answer earliest arrival questions.
+	 */
+	public Timetable getTimetable() {
+		return timetable;
 	}
 
 	/**
@@ -47,7 +165,7 @@ public class Query {
 	 * 
 	 * @return Returns <code><b>true</b></code> if <code><b>System.getProperty("com.assessment.flitetrakr.multiple")</b></code> is not null and equals to <code><b>&quot;true&quot;</b></code>.
 	 */
-	private boolean processMultipleStops() {
+	private static boolean processMultipleStops() {
 		String multiple = System.getProperty("com.assessment.flitetrakr.multiple");
 		
 		if(multiple == null){
@@ -58,24 +176,27 @@ public class Query {
 	}
 	
 	/**
-	 * <p>Retrieves all connections between two airports.</p>
+	 * <p>Tells in O(1), using the transitive closure of the network (see <b><code>AdjacencyMatrix.getReachabilityIndex</code></b>), 
+	 * whether any connection exists between two airports, so that queries can reject the others before searching.</p>
 	 * 
 	 * @param sourceCode Departure airport's code.
-	 * @param destinationCode Destination airport's code.
-	 * @return A linked list containing all connections between the two airports..
+	 * @param destinationCode Destination airport's code; if it equals <code><b>sourceCode</b></code>, roundtrips are sought.
+	 * @return <code><b>false</b></code> if no connection exists or any of the airports is unknown.
 	 */
-	private List<LinkedList<String>> connections(String sourceCode, String destinationCode) {
-		if(processMultipleStops()) {
-			return  this.adjacencyMatrix.
-					getDirectedGraph().
-					depthFirstAll(sourceCode, destinationCode);
-		}
-		
+	private boolean reachable(String sourceCode, String destinationCode) {
+		explain(planner.plan(QueryPlanner.Engine.REACHABILITY_INDEX, 0));
+		expanded(0);
 		
-		return  this.adjacencyMatrix.
-				getDirectedGraph().
-				depthFirst(sourceCode, destinationCode);
+		try {
+			return adjacencyMatrix.getReachabilityIndex().reachable(
+				adjacencyMatrix.getIndex(sourceCode), 
+				adjacencyMatrix.getIndex(destinationCode)
+			);
+		}catch(ArrayIndexOutOfBoundsException e) {
+			return false;
+		}
 	}
+	
 	/**
 	 * <p>This function finds all connections from <b><code>sourceCode</code></b> to <b><code>destinationCode</code></b> below a specified price.</p>
 	 * 
@@ -85,31 +206,140 @@ public class Query {
 	 * @return How many connections exist below the specified price ( connection price &lt; <b><code>upperPrice</code></b>).
 	 */
 	public String connectionsBelowPrice(int upperPrice, String sourceCode, String destinationCode) {		
-		List<LinkedList<String>> connections = this.adjacencyMatrix.
-				getDirectedGraph().
-				depthFirstAll(sourceCode, destinationCode);
-		
-		String[] sorted = formatConnections(
-			connections.stream().filter(
-				c -> calculateTotalDistance(c) < upperPrice).collect(Collectors.toList()
-			)
-		);
-		
-		Arrays.sort(
-			sorted,
-			new Comparator<String>() {				
-				public int compare(String o1, String o2) {
-					int pos1 = o1.lastIndexOf('-');
-					int pos2 = o2.lastIndexOf('-');
-					int price1 = Integer.parseInt(o1.substring(pos1 + 1));					
-					int price2 = Integer.parseInt(o2.substring(pos2 + 1));		
-					
-					return price1 - price2;
+		StringBuilder buffer = new StringBuilder();
+		
+		try {
+			connectionsBelowPrice(upperPrice, sourceCode, destinationCode, buffer);
+		}catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		return buffer.toString();
+	}
+	
+	/**
+	 * <p>Streams the connections from <b><code>sourceCode</code></b> to <b><code>destinationCode</code></b> below a specified price, 
+	 * cheapest first, formatted and separated like those of <b><code>connectionsBelowPrice(int, String, String)</code></b>.</p>
+	 * <p>At most <b><code>spillLimit</code></b> connections are held in memory: beyond it, they are sorted into runs on disk and 
+	 * merged while they are written (see <b><code>com.assessment.data.ExternalConnectionSort</code></b>). The plan reports 
+	 * <b><code>EXTERNAL_SORT</code></b> once a run has been spilled.</p>
+	 * 
+	 * @param upperPrice Upper limit of the price range.
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @param output Receives the connections; nothing is written if there is none.
+	 * @return How many connections were written.
+	 * @throws IOException If <b><code>output</code></b> or a run file can't be written.
+	 */
+	public long connectionsBelowPrice(int upperPrice, String sourceCode, String destinationCode, Appendable output) throws IOException {
+		long count = 0;
+		
+		try(ExternalConnectionSort.Cursor cursor = openConnectionsBelowPrice(upperPrice, sourceCode, destinationCode)) {
+			while(cursor != null && cursor.hasNext()) {
+				if(count++ > 0) {
+					output.append(StringIO.DEFAULT_LIST_SEPARATOR);
 				}
+				cursor.next(output);
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * <p>Searches the connections from <b><code>sourceCode</code></b> to <b><code>destinationCode</code></b> below a specified price, 
+	 * spilling them to disk beyond <b><code>spillLimit</code></b> like <b><code>connectionsBelowPrice(int, String, String, Appendable)</code></b>, 
+	 * and opens them for reading, cheapest first.</p>
+	 * 
+	 * @param upperPrice Upper limit of the price range.
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @return The connections found, which the caller closes, or <code><b>null</b></code> if the airports are unknown or not connected.
+	 * @throws IOException If a run file can't be written.
+	 */
+	ExternalConnectionSort.Cursor openConnectionsBelowPrice(int upperPrice, String sourceCode, String destinationCode) throws IOException {
+		if(!reachable(sourceCode, destinationCode)) {
+			return null;
+		}
+		
+		int source;
+		int destination;
+		
+		try {
+			source = adjacencyMatrix.getIndex(sourceCode);
+			destination = adjacencyMatrix.getIndex(destinationCode);
+		}catch(ArrayIndexOutOfBoundsException e) {
+			return null;
+		}
+		
+		QueryPlanner.Plan plan = explain(planner.planBelowPrice(source, upperPrice));
+		ExternalConnectionSort sort = new ExternalConnectionSort(adjacencyMatrix, null);
+		
+		try {
+			PathTrie connections = PathTrie.depthFirstAll(adjacencyMatrix, source, destination, upperPrice, spillLimit, sort);
+			
+			if(sort.getRunCount() > 0) {
+				explain(planner.plan(QueryPlanner.Engine.EXTERNAL_SORT, plan.getEstimated()));
 			}
-		);
+			expanded(sort.getSpilledNodeCount() + connections.nodeCount());
+			
+			return sort.open(connections);
+		}catch(UncheckedIOException e) {
+			sort.close();
+			throw e.getCause();
+		}catch(IOException | RuntimeException e) {
+			sort.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * <p>This function addresses the question of which airports can be reached from <b><code>???</code></b> for under <b><code>???</code></b> 
+	 * euros, with one Dijkstra search that stops at the budget (see <b><code>CheapestPathSearch.searchAll(int, int)</code></b>).</p>
+	 * 
+	 * @param upperPrice Upper limit of the price range.
+	 * @param sourceCode Departure airport's code.
+	 * @return The airports whose cheapest fare is below <b><code>upperPrice</code></b> (the departure airport excluded), cheapest first, 
+	 * each one formatted as <code><b>"&lt;code-of-arrival-airport&gt;-&lt;price-in-euro&gt;"</b></code> and separated by 
+	 * <code><b>StringIO.DEFAULT_LIST_SEPARATOR</b></code>; an empty string if there is none or the airport is unknown.
+	 */
+	public String airportsBelowPrice(int upperPrice, String sourceCode) {
+		StringBuilder buffer = new StringBuilder();
+		CheapestPathSearch search = new CheapestPathSearch(adjacencyMatrix);
+		int source;
+		
+		try {
+			source = adjacencyMatrix.getIndex(sourceCode);
+		}catch(ArrayIndexOutOfBoundsException e) {
+			return "";
+		}
+		
+		explain(planner.planSearch(QueryPlanner.Engine.BOUNDED_DIJKSTRA, source));
+		search.searchAll(source, upperPrice);
+		expanded(search.getSettledCount());
+		
+		long[] keys = new long[search.getSettledCount()];
+		int length = 0;
+		
+		for(int i = 0; i < search.getSettledCount(); i++) { // Only the settled airports are below the budget.
+			int v = search.getSettled(i);
+			int fare = search.getFare(v);
+			
+			if(v != source && fare < upperPrice) {
+				keys[length++] = ((long)fare << 32) | v;
+			}
+		}
+		
+		Arrays.sort(keys, 0, length);
+		
+		for(int i = 0; i < length; i++) {
+			
+			if(buffer.length() > 0) {
+				buffer.append(StringIO.DEFAULT_LIST_SEPARATOR);
+			}
+			buffer.append(adjacencyMatrix.getCode((int)keys[i])).append('-').append(keys[i] >>> 32);
+		}
 		
-		return StringIO.join(sorted, StringIO.DEFAULT_LIST_SEPARATOR);
+		return buffer.toString();
 	}
 	
 	
@@ -123,15 +353,13 @@ public class Query {
 	 * @return How many connections comply with the aforementioned criteria.
 	 */
 	public int connectionsWithMinimumStops(int stops, String sourceCode, String destinationCode) {
-		List<LinkedList<String>> connections = connections(sourceCode, destinationCode);			
-		List<LinkedList<String>> selected = connections.stream().filter(c -> c.size()-2 >= stops).collect(Collectors.toList());
-		
-		/* *
-		for(String c: this.formatConnections(selected)) {
-			System.out.println(c);
+		if(!reachable(sourceCode, destinationCode)) {
+			return 0;
 		}
-		/* */		
-		return selected.size();
+		
+		int[] histogram = connectionsByStops(maximumStops(), sourceCode, destinationCode);
+		
+		return Arrays.stream(histogram, Math.min(Math.max(stops, 0), histogram.length), histogram.length).sum();
 	}
 	
 	
@@ -144,10 +372,15 @@ public class Query {
 	 * @return How many connections comply with the aforementioned criteria.
 	 */
 	public int connectionsWithMaximumStops(int stops, String sourceCode, String destinationCode) {
-		List<LinkedList<String>> connections = connections(sourceCode, destinationCode);			
-		List<LinkedList<String>> selected = connections.stream().filter(c -> c.size()-2 <= stops).collect(Collectors.toList());
+		if(!reachable(sourceCode, destinationCode)) {
+			return 0;
+		}
+		
+		if(stops < 0) {
+			return 0;
+		}
 		
-		return selected.size();
+		return Arrays.stream(connectionsByStops(Math.min(stops, maximumStops()), sourceCode, destinationCode)).sum();
 	}
 	
 	/**
@@ -159,15 +392,39 @@ public class Query {
 	 * @return How many connections comply with the aforementioned criteria.
 	 */
 	public int connectionsWithExactStops(int stops, String sourceCode, String destinationCode) {
-		List<LinkedList<String>> connections = connections(sourceCode, destinationCode);		
-		List<LinkedList<String>> selected = connections.stream().filter(c -> c.size()-2 == stops).collect(Collectors.toList());	
+		if(!reachable(sourceCode, destinationCode)) {
+			return 0;
+		}
 		
-		/* *
-		for(String c: this.formatConnections(selected)) {
-			System.out.println(c);
+		if(stops < 0 || stops > maximumStops()) { // No connection has that many stops.
+			return 0;
+		}
+		
+		int legs = stops + 1; // stops <= maximumStops(), so it can't overflow.
+		QueryPlanner.Plan plan = planner.planStops(adjacencyMatrix.getIndex(sourceCode), legs, true, multipleStops);
+		
+		if(plan.getEngine() == QueryPlanner.Engine.COUNTING) {
+			return connectionsByStops(stops, sourceCode, destinationCode)[stops];
+		}
+		
+		explain(plan);
+		
+		BidirectionalPathSearch search = new BidirectionalPathSearch(this.adjacencyMatrix.getDirectedGraph());
+		int result = search.count(sourceCode, destinationCode, legs);
+		
+		if(multipleStops) { // Connections followed by one roundtrip from the destination (see DirectedGraph.depthFirstAll).
+			
+			for(int departureLegs = 1; departureLegs < legs; departureLegs++) {
+				int departures = search.count(sourceCode, destinationCode, departureLegs);
+				
+				if(departures > 0) {
+					result += departures * search.count(destinationCode, destinationCode, legs - departureLegs);
+				}
+			}
 		}
-		/* */
-		return selected.size();
+		
+		expanded(search.getExpandedCount());
+		return result;
 	}	
 	
 	/**
@@ -177,21 +434,10 @@ public class Query {
 	 * @return -1 if no connection having those codes exist, or a positive integer indicating the connection cost. 
 	 */
 	public int connectionPrice(String[] codes) {
-		if(!this.adjacencyMatrix.getDirectedGraph().connectionExists(codes)) {
-			return -1;
-		}
-				
-		String sourceCode = codes[0];
-		String destinationCode = codes[1];
-		int price = this.adjacencyMatrix.get(sourceCode, destinationCode);
-		
-		for(int i = 2; i < codes.length ; i++) {
-			sourceCode = destinationCode;
-			destinationCode = codes[i];
-			price += this.adjacencyMatrix.get(sourceCode, destinationCode);
-		}
+		explain(planner.plan(QueryPlanner.Engine.ITINERARY_PRICING, codes.length));
+		expanded(codes.length);
 		
-		return price;
+		return itineraryPricer.price(codes);
 	}
 	
 	/**
@@ -211,6 +457,8 @@ public class Query {
 	/**
 	 * <p>Calculates the shortest path between two airports.</p>
 	 * <p>This function addresses the question of what is the cheapest connection from <b><code>???</code></b> to <b><code>???</code></b> </p>
+	 * <p>If the adjacency matrix has a contraction hierarchies index, it answers the question (except for roundtrips). Otherwise the search 
+	 * is an A* guided by the landmarks of the adjacency matrix, if any (see <b><code>AdjacencyMatrix.preprocessLandmarks</code></b>).</p>
 	 * 
 	 * @param sourceCode Departure airport's code.
 	 * @param destinationCode Destination airport's code.
@@ -222,18 +470,28 @@ public class Query {
 		
 		String result;
 		
+		if(!reachable(sourceCode, destinationCode)) {
+			return CONNECTION_NOT_FOUND_ERROR;
+		}
+		
 		try {
-			adjacencyMatrix.getIndex(sourceCode);
-			adjacencyMatrix.getIndex(destinationCode);
-			
-			List<LinkedList<String>> connections = this.adjacencyMatrix.
-					getDirectedGraph().
-					depthFirstAll(sourceCode, destinationCode);
+			int source = adjacencyMatrix.getIndex(sourceCode);
+			int destination = adjacencyMatrix.getIndex(destinationCode);
+			ContractionHierarchy contractionHierarchy = adjacencyMatrix.getContractionHierarchy();
+			PricedPath connection;
 			
-			if(connections.size() > 0) {
-				LinkedList<String> connection = this.cheapestConnection(connections);
+			if(explain(planner.planCheapest(source, source == destination)).getEngine() == QueryPlanner.Engine.CONTRACTION_HIERARCHY) {
+				connection = contractionHierarchy.search(source, destination);
+				expanded(contractionHierarchy.getSettledCount());
+			} else {
+				CheapestPathSearch search = new CheapestPathSearch(adjacencyMatrix);
 				
-				result = this.formatConnection(connection);
+				connection = search.search(source, destination);
+				expanded(search.getSettledCount());
+			}
+			
+			if(connection != null) {
+				result = connection.format(adjacencyMatrix, new StringBuilder()).toString();
 			}else {
 				result = CONNECTION_NOT_FOUND_ERROR;
 			}
@@ -247,85 +505,277 @@ public class Query {
 	}
 	
 	/**
-	 * <p>Finds the cheapest connection the given connection list.</p>
+	 * <p>This function addresses the question of what is the cheapest connection from <b><code>???</code></b> or <b><code>???</code></b> 
+	 * to <b><code>???</code></b> or <b><code>???</code></b>, with one search over every pair of airports 
+	 * (see <b><code>CheapestPathSearch.search(int[], int[])</code></b>).</p>
+	 * <p>Unknown airports are ignored; an airport in both sets is only connected to itself by a roundtrip.</p>
 	 * 
-	 * @param connections A list whose elements are sublists. Each sublist represent a connection between two airports.
-	 * @return The shortest path in the given path list or null if the list is empty.
+	 * @param sourceCodes Departure airports' codes.
+	 * @param destinationCodes Destination airports' codes.
+	 * @return The cheapest connection between any of the departure airports and any of the destination airports, formatted like 
+	 * <b><code>cheapestConnection</code></b>'s.
 	 */
-	private LinkedList<String> cheapestConnection(List<LinkedList<String>> connections) {
-		ListIterator<LinkedList<String>> iterator = connections.listIterator();
-		LinkedList<String> shortestConnection = iterator.next();
-		int currentTotalDistance = calculateTotalDistance(shortestConnection);
+	public String cheapestConnection(String[] sourceCodes, String[] destinationCodes) {
+		int[] sources = indexes(sourceCodes);
+		int[] destinations = indexes(destinationCodes);
+		boolean reachable = false;
 		
+		for(String sourceCode: sourceCodes) {
+			for(String destinationCode: destinationCodes) {
+				reachable = reachable || reachable(sourceCode, destinationCode);
+			}
+		}
 		
-		while(iterator.hasNext()) {		
-			LinkedList<String> path = iterator.next();
-			int totalDistance = this.calculateTotalDistance(path);
+		if(!reachable) {
+			return CONNECTION_NOT_FOUND_ERROR;
+		}
+		
+		CheapestPathSearch search = new CheapestPathSearch(adjacencyMatrix);
+		
+		explain(planner.planSearch(sources));
+		
+		PricedPath connection = search.search(sources, destinations);
+		
+		expanded(search.getSettledCount());
+		
+		return connection == null ? CONNECTION_NOT_FOUND_ERROR : connection.format(adjacencyMatrix, new StringBuilder()).toString();
+	}
+	
+	/**
+	 * @param codes Airports' codes.
+	 * @return The row/column offsets of the known airports, without duplicates.
+	 */
+	private int[] indexes(String[] codes) {
+		int[] indexes = new int[codes.length];
+		int length = 0;
+		
+		for(String code: codes) {
+			try {
+				int index = adjacencyMatrix.getIndex(code);
+				
+				if(Arrays.stream(indexes, 0, length).noneMatch(i -> i == index)) {
+					indexes[length++] = index;
+				}
+			}catch(ArrayIndexOutOfBoundsException e) {
+				continue; // Unknown airport.
+			}
+		}
+		
+		return Arrays.copyOf(indexes, length);
+	}
+	
+	/**
+	 * <p>Answers several cheapest connection questions from the same airport with one shortest path tree 
+	 * (see <b><code>CheapestPathSearch.searchAll</code></b>).</p>
+	 * <p>Each answer equals what <b><code>cheapestConnection</code></b> returns; when the adjacency matrix has landmarks or a contraction 
+	 * hierarchies index, which may break ties differently, every question is answered by <b><code>cheapestConnection</code></b>.</p>
+	 * 
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCodes Destination airports' codes.
+	 * @return The answer to each destination, in the same order.
+	 */
+	public String[] cheapestConnections(String sourceCode, String[] destinationCodes) {
+		String[] results = new String[destinationCodes.length];
+		CheapestPathSearch search = null;
+		
+		for(int i = 0; i < destinationCodes.length; i++) {
 			
-			if(totalDistance < currentTotalDistance) {
-				shortestConnection = path;
-				currentTotalDistance = totalDistance;
+			if(adjacencyMatrix.getLandmarks() != null || adjacencyMatrix.getContractionHierarchy() != null) {
+				results[i] = cheapestConnection(sourceCode, destinationCodes[i]);
+				continue;
 			}
 			
+			results[i] = CONNECTION_NOT_FOUND_ERROR;
+			
+			if(!reachable(sourceCode, destinationCodes[i])) {
+				continue;
+			}
+			
+			if(search == null) {
+				search = new CheapestPathSearch(adjacencyMatrix);
+				explain(planner.planSearch(QueryPlanner.Engine.SHORTEST_PATH_TREE, adjacencyMatrix.getIndex(sourceCode)));
+				search.searchAll(adjacencyMatrix.getIndex(sourceCode));
+				expanded(search.getSettledCount());
+			}
+			
+			PricedPath connection = search.getPath(adjacencyMatrix.getIndex(destinationCodes[i]));
+			
+			if(connection != null) {
+				results[i] = connection.format(adjacencyMatrix, new StringBuilder()).toString();
+			}
 		}
-		return shortestConnection; 
-	}	
+		
+		return results;
+	}
 	
 	/**
-	 * <p>Formats linked list of string representing a connection.</p>
-	 * <p>The resulting string will match the pattern <code><b>"&lt;code-of-departure-airport&gt;-&lt;code-of-arrival-airport&gt;-&lt;price-in-euro&gt;,.."</b></code></p>
+	 * <p>Counts the connections between two airports by number of stops, such that every stops question about the same airports is 
+	 * answered from it (see <b><code>connectionsByStops(int, String, String)</code></b>).</p>
 	 * 
-	 * @param connection A non null linked list of strings
-	 * @return A string compliant to the aforementioned requirement.
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @return Element <i>k</i> is how many connections (as counted by <b><code>connectionsWithExactStops</code></b>) have <i>k</i> stops; 
+	 * the array is empty if there is none.
 	 */
-	private String formatConnection(LinkedList<String> connection) {
-		int totalDistance = calculateTotalDistance(connection); //TODO: This step is suboptimal.
-		StringBuilder buffer = new StringBuilder();
+	public int[] connectionsByStops(String sourceCode, String destinationCode) {
+		int[] histogram = connectionsByStops(maximumStops(), sourceCode, destinationCode);
+		int length = histogram.length;
 		
-		for(String code: connection) {
-			buffer.append(code);
-			buffer.append('-');
+		while(length > 0 && histogram[length - 1] == 0) {
+			length--;
 		}
-		buffer.append(totalDistance);
 		
-		return buffer.toString();
+		return Arrays.copyOf(histogram, length);
 	}
 	
 	/**
+	 * <p>This function addresses the question of how many connections between <b><code>???</code></b> and <b><code>???</code></b> 
+	 * have each number of stops, up to <b><code>???</code></b> stops.</p>
+	 * <p>Connections are counted by number of legs in one traversal (see <b><code>DirectedGraph.countByLegs</code></b>), without being 
+	 * enumerated. When connections may end with a roundtrip from the destination (see <b><code>processMultipleStops</code></b>), 
+	 * the roundtrips are counted in a second traversal and combined with the connections by number of legs.</p>
 	 * 
-	 * @param connections Creates a array of strings where each element is list of airport codes separated by '-'.
-	 * @return An array of strings where each element is a formatted connection.
+	 * @param maxStops Most stops counted; no connection has more than <b><code>maximumStops()</code></b>, so larger limits are 
+	 * lowered to it.
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @return Element <i>k</i> is how many connections have <i>k</i> stops; its length is <b><code>min(maxStops, maximumStops()) + 1</code></b> 
+	 * and the counts beyond it are zeros.
 	 */
-	private String[] formatConnections(List<LinkedList<String>> connections) {
-		String[] result = new String[connections.size()];
-		int index = 0;
+	public int[] connectionsByStops(int maxStops, String sourceCode, String destinationCode) {
+		int stops = Math.min(maxStops, maximumStops());
+		int[] histogram = new int[Math.max(stops, -1) + 1];
 		
-		for(LinkedList<String> connection: connections) {
-			result[index++] = formatConnection(connection);
+		if(stops < 0 || !reachable(sourceCode, destinationCode)) {
+			return histogram;
 		}
 		
-		return result;
+		DirectedGraph graph = adjacencyMatrix.getDirectedGraph();
+		int maxLegs = stops + 1;
+		int[] connections = new int[maxLegs + 1];
+		int[] roundTrips = multipleStops ? new int[maxLegs + 1] : null;
+		
+		explain(planner.planStops(adjacencyMatrix.getIndex(sourceCode), maxLegs, false, multipleStops));
+		expanded(graph.countByLegs(sourceCode, destinationCode, connections));
+		
+		if(roundTrips != null) {
+			expanded(graph.countByLegs(destinationCode, destinationCode, roundTrips));
+		}
+		
+		for(int legs = 1; legs <= maxLegs; legs++) {
+			histogram[legs - 1] = connections[legs];
+			
+			for(int departureLegs = 1; roundTrips != null && departureLegs < legs; departureLegs++) {
+				histogram[legs - 1] += connections[departureLegs] * roundTrips[legs - departureLegs];
+			}
+		}
+		
+		return histogram;
+	}
+	
+	/**
+	 * @return More stops than any connection counted by <b><code>connectionsByStops</code></b> can have: a connection repeats no airport, 
+	 * except for the roundtrip that may follow it.
+	 */
+	private int maximumStops() {
+		return 2 * adjacencyMatrix.length();
+	}
+	
+	/**
+	 * <p>This function addresses the question of what is the cheapest connection from <b><code>???</code></b> to <b><code>???</code></b> 
+	 * with maximum <b><code>???</code></b> stops (see <b><code>com.assessment.data.BoundedPathSearch</code></b>).</p>
+	 * 
+	 * @param stops Maximum number of stops. A stop is a landing in an intermediary city.
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @return The cheapest connection complying with the stops limit, like <code><b>cheapestConnection</b></code> does.
+	 */
+	public String cheapestConnectionWithMaximumStops(int stops, String sourceCode, String destinationCode) {
+		
+		if(!reachable(sourceCode, destinationCode)) {
+			return CONNECTION_NOT_FOUND_ERROR;
+		}
+		
+		int legs = (int)Math.min((long)stops + 1, Integer.MAX_VALUE);
+		
+		explain(planner.planBoundedSearch(legs));
+		
+		try {
+			BoundedPathSearch search = new BoundedPathSearch(adjacencyMatrix);
+			PricedPath connection = search.search(
+				adjacencyMatrix.getIndex(sourceCode), 
+				adjacencyMatrix.getIndex(destinationCode), 
+				legs
+			);
+			
+			expanded(search.getRelaxedCount());
+			
+			return connection == null ? CONNECTION_NOT_FOUND_ERROR : connection.format(adjacencyMatrix, new StringBuilder()).toString();
+		}catch(ArrayIndexOutOfBoundsException e) {
+			return CONNECTION_NOT_FOUND_ERROR;
+		}
 	}
 	
 	/**
-	 * <p>Calculates the total distance between path's starting and ending node.</p>
+	 * <p>This function addresses the question of what are the best connections from <b><code>???</code></b> to <b><code>???</code></b>, 
+	 * i.e. the connections for which no other connection is both cheaper and with fewer stops (see <b><code>com.assessment.data.ParetoSearch</code></b>).</p>
 	 * 
-	 * @param connection A list of string representing airport codes.
-	 * @return An non-negative integer.
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @return The connections, cheapest first and separated by <code><b>StringIO.DEFAULT_LIST_SEPARATOR</b></code>. 
+	 * Example <code><b>NUE-FRA-LHR-70, NUE-LHR-90</b></code>; an empty string if there is none.
 	 */
-	private int calculateTotalDistance(LinkedList<String> connection) {
-		ListIterator<String> iterator = connection.listIterator();
-		String sourceCode = iterator.next();
-		String destinationCode = iterator.next();
+	public String bestConnections(String sourceCode, String destinationCode) {
+		List<PricedPath> connections;
+		StringBuilder buffer = new StringBuilder();
 		
-		int totalDistance = adjacencyMatrix.get(sourceCode, destinationCode);
+		if(!reachable(sourceCode, destinationCode)) {
+			return "";
+		}
 		
-		while(iterator.hasNext()) {
-			sourceCode = destinationCode;
-			destinationCode = iterator.next();
-			totalDistance += adjacencyMatrix.get(sourceCode, destinationCode);
+		try {
+			ParetoSearch search = new ParetoSearch(adjacencyMatrix);
+			
+			explain(planner.planSearch(QueryPlanner.Engine.PARETO, adjacencyMatrix.getIndex(sourceCode)));
+			connections = search.search(
+				adjacencyMatrix.getIndex(sourceCode), 
+				adjacencyMatrix.getIndex(destinationCode)
+			);
+			expanded(search.getLabelCount());
+		}catch(ArrayIndexOutOfBoundsException e) {
+			return "";
 		}
-		return totalDistance;
 		
+		for(PricedPath connection: connections) {
+			
+			if(buffer.length() > 0) {
+				buffer.append(StringIO.DEFAULT_LIST_SEPARATOR);
+			}
+			connection.format(adjacencyMatrix, buffer);
+		}
+		
+		return buffer.toString();
+	}	
+	/**
+	 * <p>This function addresses the question of what is the earliest arrival from <b><code>???</code></b> to <b><code>???</code></b> departing after <b><code>??:??</code></b>.</p>
+	 * <p>The answer comes from the scheduled flights (see <b><code>com.assessment.data.Timetable</code></b>), not from the connections table.</p>
+	 * 
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @param departAfter Earliest departure time, in minutes after midnight.
+	 * @return The airports of the journey followed by the arrival time. Example <code><b>NUE-FRA-LHR-11:50</b></code>.
+	 */
+	public String earliestArrival(String sourceCode, String destinationCode, int departAfter) {
+		explain(planner.plan(QueryPlanner.Engine.TIMETABLE, timetable.size()));
+		
+		String journey = timetable.earliestArrival(sourceCode, destinationCode, departAfter);
+		
+		expanded(timetable.getScannedCount());
+		
+		if(journey == null) {
+			return CONNECTION_NOT_FOUND_ERROR;
+		}
+		return journey;
 	}
+	
 }
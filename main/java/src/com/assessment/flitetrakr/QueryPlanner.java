@@ -0,0 +1,441 @@
+package com.assessment.flitetrakr;
+
+import com.assessment.data.AdjacencyMatrix;
+import com.assessment.data.ReachabilityIndex;
+
+/**
+ * <p>Chooses the engine answering each question of a <code><b>Query</b></code>, and estimates how many airports (or partial
+ * connections) it will expand, from statistics of the network: how many airports and links it has, its average degree, its
+ * cheapest fare and the strongly connected components reachable from each airport.</p>
+ * <ul>
+ * <li>Stops questions are answered by the <code><b>COUNTING</b></code> traversal, unless the network is not tiny and an exact
+ * number of stops costs less to count with the <code><b>MEET_IN_THE_MIDDLE</b></code> search.</li>
+ * <li>Cheapest connections are answered by the contraction hierarchies index, by A* or by Dijkstra, according to the indexes
+ * of the adjacency matrix.</li>
+ * <li>Budget questions are answered by a Dijkstra search bounded by the budget; connections below a price are enumerated, and
+ * sorted on disk when more of them are expected than fit in memory.</li>
+ * </ul>
+ * <p>Statistics are computed the first time they are needed.</p>
+ * @author rsolano
+ *
+ */
+public class QueryPlanner {
+
+	/**
+	 * <p>Networks with at most this many airports are considered tiny: every stops question is counted exhaustively.</p>
+	 */
+	public static final int TINY_NETWORK = 16;
+
+	/**
+	 * <p>Engines answering questions.</p>
+	 */
+	public static enum Engine {
+		/**
+		 * No search: the transitive closure tells there is no connection.
+		 */
+		REACHABILITY_INDEX,
+		/**
+		 * Leg by leg pricing of a given connection.
+		 */
+		ITINERARY_PRICING,
+		/**
+		 * Depth first traversal counting connections by number of legs.
+		 */
+		COUNTING,
+		/**
+		 * Bidirectional enumeration of connections with an exact number of legs.
+		 */
+		MEET_IN_THE_MIDDLE,
+		/**
+		 * Dijkstra search between two airports.
+		 */
+		DIJKSTRA,
+		/**
+		 * Dijkstra search guided by landmarks.
+		 */
+		A_STAR,
+		/**
+		 * Bidirectional search over the contraction hierarchies index.
+		 */
+		CONTRACTION_HIERARCHY,
+		/**
+		 * One Dijkstra search from an airport to every other one.
+		 */
+		SHORTEST_PATH_TREE,
+		/**
+		 * One search from several departure airports to several arrival airports.
+		 */
+		MULTI_SOURCE_SEARCH,
+		/**
+		 * Dijkstra search stopping at a budget.
+		 */
+		BOUNDED_DIJKSTRA,
+		/**
+		 * Depth first enumeration of the connections below a price.
+		 */
+		PRICE_BOUNDED_ENUMERATION,
+		/**
+		 * Depth first enumeration of the connections below a price, spilling sorted runs to disk and merging them.
+		 */
+		EXTERNAL_SORT,
+		/**
+		 * Search of the cheapest connection with a limited number of legs.
+		 */
+		BOUNDED_SEARCH,
+		/**
+		 * Multi criteria search of the connections with the best fares and stops.
+		 */
+		PARETO,
+		/**
+		 * Earliest arrival search over the scheduled flights.
+		 */
+		TIMETABLE
+	}
+
+	/**
+	 * <p>The engine chosen for a question, with its estimated and actual cost.</p>
+	 */
+	public static class Plan {
+
+		/**
+		 * Engine answering the question.
+		 */
+		Engine engine;
+
+		/**
+		 * Estimated expansions; -1 if unknown.
+		 */
+		long estimated;
+
+		/**
+		 * Actual expansions; -1 if the engine doesn't report them.
+		 */
+		long expanded = -1;
+
+		/**
+		 * Time spent choosing the engine.
+		 */
+		long planningNanos;
+
+		/**
+		 * Time spent answering the question.
+		 */
+		long executionNanos;
+
+		/**
+		 * @param engine Engine answering the question.
+		 * @param estimated Estimated expansions; -1 if unknown.
+		 * @param planningNanos Time spent choosing the engine.
+		 */
+		Plan(Engine engine, long estimated, long planningNanos) {
+			this.engine = engine;
+			this.estimated = estimated;
+			this.planningNanos = planningNanos;
+		}
+
+		/**
+		 * <p>Replaces this plan's engine and estimate by <code><b>plan</b></code>'s; expansions are counted again.</p>
+		 *
+		 * @param plan The plan replacing this one.
+		 */
+		void update(Plan plan) {
+			this.engine = plan.engine;
+			this.estimated = plan.estimated;
+			this.expanded = -1;
+			this.planningNanos += plan.planningNanos;
+		}
+
+		/**
+		 * @param count Expansions done by the engine.
+		 */
+		void expanded(long count) {
+			expanded = Math.max(expanded, 0) + count;
+		}
+
+		/**
+		 *
+		 * @return Engine answering the question; <code><b>null</b></code> if no engine was needed.
+		 */
+		public Engine getEngine() {
+			return engine;
+		}
+
+		/**
+		 *
+		 * @return Estimated expansions; -1 if unknown.
+		 */
+		public long getEstimated() {
+			return estimated;
+		}
+
+		/**
+		 *
+		 * @return Actual expansions; -1 if the engine doesn't report them.
+		 */
+		public long getExpanded() {
+			return expanded;
+		}
+
+		/**
+		 *
+		 * @return Time spent choosing the engine, in nanoseconds.
+		 */
+		public long getPlanningNanos() {
+			return planningNanos;
+		}
+
+		/**
+		 *
+		 * @return Time spent answering the question, in nanoseconds.
+		 */
+		public long getExecutionNanos() {
+			return executionNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+				"plan: %s, estimated: %s, expanded: %s, planning: %.3f ms, execution: %.3f ms",
+				engine,
+				estimated < 0 ? "n/a" : Long.toString(estimated),
+				expanded < 0 ? "n/a" : Long.toString(expanded),
+				planningNanos / 1e6,
+				executionNanos / 1e6
+			);
+		}
+	}
+
+	/**
+	 * Adjacency matrix the questions are asked about.
+	 */
+	AdjacencyMatrix adjacencyMatrix;
+
+	/**
+	 * Average number of direct flights leaving an airport; negative until statistics are computed.
+	 */
+	volatile double averageDegree = -1;
+
+	/**
+	 * Cheapest fare of a direct flight.
+	 */
+	int minimumFare;
+
+	/**
+	 * Number of direct flights.
+	 */
+	long links;
+
+	/**
+	 * @param adjacencyMatrix Adjacency matrix the questions are asked about.
+	 */
+	public QueryPlanner(AdjacencyMatrix adjacencyMatrix) {
+		this.adjacencyMatrix = adjacencyMatrix;
+	}
+
+	/**
+	 * <p>Computes the statistics of the network the first time they are needed.</p>
+	 */
+	private void statistics() {
+		if(averageDegree >= 0) {
+			return;
+		}
+
+		synchronized(this) {
+			if(averageDegree >= 0) {
+				return;
+			}
+
+			long links = 0;
+			int cheapest = Integer.MAX_VALUE;
+
+			for(int v = 0; v < adjacencyMatrix.length(); v++) {
+				int degree = adjacencyMatrix.outDegree(v);
+
+				links += degree;
+
+				for(int i = 0; i < degree; i++) {
+					cheapest = Math.min(cheapest, adjacencyMatrix.get(v, adjacencyMatrix.successor(v, i)));
+				}
+			}
+
+			this.links = links;
+			minimumFare = Math.max(cheapest == Integer.MAX_VALUE ? 1 : cheapest, 1);
+			averageDegree = adjacencyMatrix.length() == 0 ? 0 : (double)links / adjacencyMatrix.length();
+		}
+	}
+
+	/**
+	 *
+	 * @return Average number of direct flights leaving an airport.
+	 */
+	public double getAverageDegree() {
+		statistics();
+		return averageDegree;
+	}
+
+	/**
+	 * @param source Row/column offset of the departure airport.
+	 * @return How many airports can be reached from <code><b>source</b></code>, itself included.
+	 */
+	public int reachableAirports(int source) {
+		ReachabilityIndex reachability = adjacencyMatrix.getReachabilityIndex();
+
+		return reachability.reachableAirports(source);
+	}
+
+	/**
+	 * <p>Estimates how many partial connections a depth first traversal expands: <i>d + d<sup>2</sup> + ... + d<sup>n</sup></i>,
+	 * where <i>d</i> is the average degree and <i>n</i> the number of legs, which can't exceed the airports reachable.</p>
+	 *
+	 * @param legs Longest partial connections.
+	 * @param airports Airports reachable.
+	 * @return The estimate, saturated at <code><b>Long.MAX_VALUE</b></code>.
+	 */
+	long traversalEstimate(int legs, int airports) {
+		double degree = getAverageDegree();
+		double term = 1;
+		double sum = 0;
+
+		for(int k = 1; k <= Math.min(legs, airports) && sum < Long.MAX_VALUE; k++) {
+			term *= degree;
+			sum += term;
+		}
+
+		return sum >= Long.MAX_VALUE ? Long.MAX_VALUE : (long)Math.ceil(sum);
+	}
+
+	/**
+	 * <p>Plans a stops question.</p>
+	 *
+	 * @param source Row/column offset of the departure airport.
+	 * @param legs Longest connections counted.
+	 * @param exact <code><b>true</b></code> if only the connections with exactly <code><b>legs</b></code> legs are counted.
+	 * @param multipleStops <code><b>true</b></code> if connections may end with a roundtrip from the destination.
+	 * @return <code><b>COUNTING</b></code> or, for exact questions, <code><b>MEET_IN_THE_MIDDLE</b></code> if cheaper.
+	 */
+	public Plan planStops(int source, int legs, boolean exact, boolean multipleStops) {
+		long start = System.nanoTime();
+		int airports = reachableAirports(source);
+		long counting = traversalEstimate(legs, airports);
+
+		if(multipleStops) { // The roundtrips from the destination are counted too.
+			counting = saturatedAdd(counting, counting);
+		}
+
+		if(!exact || adjacencyMatrix.length() <= TINY_NETWORK) {
+			return new Plan(Engine.COUNTING, counting, System.nanoTime() - start);
+		}
+
+		long half = saturatedAdd(traversalEstimate((legs + 1) / 2, airports), traversalEstimate(legs / 2, airports));
+		long meetInTheMiddle = half;
+
+		for(int departureLegs = 1; multipleStops && departureLegs < legs; departureLegs++) { // One count per split of the legs.
+			meetInTheMiddle = saturatedAdd(meetInTheMiddle, saturatedAdd(half, half));
+		}
+
+		return meetInTheMiddle < counting ?
+			new Plan(Engine.MEET_IN_THE_MIDDLE, meetInTheMiddle, System.nanoTime() - start) :
+			new Plan(Engine.COUNTING, counting, System.nanoTime() - start);
+	}
+
+	/**
+	 * <p>Plans a cheapest connection question.</p>
+	 *
+	 * @param source Row/column offset of the departure airport.
+	 * @param roundTrip <code><b>true</b></code> if the cheapest roundtrip is sought.
+	 * @return <code><b>CONTRACTION_HIERARCHY</b></code> if the adjacency matrix has that index (except for roundtrips),
+	 * <code><b>A_STAR</b></code> if it has landmarks, <code><b>DIJKSTRA</b></code> otherwise.
+	 */
+	public Plan planCheapest(int source, boolean roundTrip) {
+		long start = System.nanoTime();
+		Engine engine = adjacencyMatrix.getContractionHierarchy() != null && !roundTrip ? Engine.CONTRACTION_HIERARCHY
+			: adjacencyMatrix.getLandmarks() != null ? Engine.A_STAR : Engine.DIJKSTRA;
+
+		return new Plan(engine, reachableAirports(source), System.nanoTime() - start);
+	}
+
+	/**
+	 * <p>Plans a question answered by one search from an airport that may settle every airport it reaches.</p>
+	 *
+	 * @param engine <code><b>SHORTEST_PATH_TREE</b></code>, <code><b>BOUNDED_DIJKSTRA</b></code> or <code><b>PARETO</b></code>.
+	 * @param source Row/column offset of the departure airport.
+	 * @return The plan, estimating the airports reachable from <code><b>source</b></code>.
+	 */
+	public Plan planSearch(Engine engine, int source) {
+		long start = System.nanoTime();
+
+		return new Plan(engine, reachableAirports(source), System.nanoTime() - start);
+	}
+
+	/**
+	 * <p>Plans a search between sets of airports.</p>
+	 *
+	 * @param sources Row/column offsets of the departure airports.
+	 * @return <code><b>MULTI_SOURCE_SEARCH</b></code>, estimating the airports reachable from any departure airport.
+	 */
+	public Plan planSearch(int[] sources) {
+		long start = System.nanoTime();
+		long airports = 0;
+
+		for(int source: sources) {
+			airports += reachableAirports(source);
+		}
+
+		return new Plan(Engine.MULTI_SOURCE_SEARCH, Math.min(airports, adjacencyMatrix.length()), System.nanoTime() - start);
+	}
+
+	/**
+	 * <p>Plans a cheapest connection question limited in stops.</p>
+	 *
+	 * @param legs Maximum number of flights.
+	 * @return <code><b>BOUNDED_SEARCH</b></code>, estimating <i>K&middot;E</i> relaxations, where <i>K</i> is the number of rounds
+	 * (at most one per airport) and <i>E</i> the number of direct flights.
+	 */
+	public Plan planBoundedSearch(int legs) {
+		long start = System.nanoTime();
+
+		getAverageDegree();
+
+		long rounds = Math.max(Math.min(legs, adjacencyMatrix.length()), 0);
+		long relaxations = links == 0 || rounds <= Long.MAX_VALUE / links ? rounds * links : Long.MAX_VALUE;
+
+		return new Plan(Engine.BOUNDED_SEARCH, relaxations, System.nanoTime() - start);
+	}
+
+	/**
+	 * <p>Plans the enumeration of the connections below a price.</p>
+	 *
+	 * @param source Row/column offset of the departure airport.
+	 * @param upperPrice Upper limit of the price range.
+	 * @return <code><b>PRICE_BOUNDED_ENUMERATION</b></code>, whose connections have at most as many legs as cheapest fares fit
+	 * in the price.
+	 */
+	public Plan planBelowPrice(int source, int upperPrice) {
+		long start = System.nanoTime();
+		int airports = reachableAirports(source);
+
+		getAverageDegree();
+
+		int legs = (int)Math.min((long)Math.max(upperPrice - 1, 0) / minimumFare, 2L * airports);
+
+		return new Plan(Engine.PRICE_BOUNDED_ENUMERATION, traversalEstimate(legs, 2 * airports), System.nanoTime() - start);
+	}
+
+	/**
+	 * <p>Plans a question whose engine is fixed.</p>
+	 *
+	 * @param engine Engine answering the question.
+	 * @param estimated Estimated expansions; -1 if unknown.
+	 * @return The plan.
+	 */
+	public Plan plan(Engine engine, long estimated) {
+		return new Plan(engine, estimated, 0);
+	}
+
+	/**
+	 * @return <code><b>a + b</b></code>, saturated at <code><b>Long.MAX_VALUE</b></code>.
+	 */
+	private static long saturatedAdd(long a, long b) {
+		return a > Long.MAX_VALUE - b ? Long.MAX_VALUE : a + b;
+	}
+}
@@ -0,0 +1,651 @@
+package com.assessment.flitetrakr;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import com.assessment.data.AdjacencyMatrix;
+import com.assessment.data.LongHeap;
+import com.assessment.data.Partition;
+import com.assessment.data.ReachabilityIndex;
+import com.assessment.util.StringIO;
+
+/**
+ * <p>Answers questions over a network split into regional shards, each one served by a <code><b>ShardWorker</b></code>
+ * (a local process, or a thread for tests) through a loopback socket.</p>
+ * <p>Questions whose connections stay within one shard are routed, as they are, to that shard: every airport reachable from
+ * one airport of the question and reaching another one (every airport reachable, for budget questions) must belong to the shard,
+ * as told by the transitive closure of the network (see <code><b>ReachabilityIndex</b></code>). Cheapest connections are
+ * answered for any pair of airports: the coordinator keeps an overlay of the boundary airports (fares between boundary airports
+ * of the same shard, as computed by the shard, plus the flights between shards) and searches it from the fares between the
+ * departure airport and its shard's boundary to the fares between the destination's shard boundary and the destination. Prices of
+ * connections crossing shards are summed leg by leg. Any other question whose connections may leave a shard (stops, prices below
+ * a limit, ...) is answered with <code><b>CROSS_SHARD_ERROR</b></code>, since no shard sees all of them.</p>
+ * <p>Once the shards are loaded the coordinator only keeps the overlay and the transitive closure, not the whole network.</p>
+ * @author rsolano
+ *
+ */
+public class ShardCoordinator implements Closeable {
+
+	/**
+	 * <p>Answer to questions mentioning airports of several shards that can't be combined across shards.</p>
+	 */
+	public static final String CROSS_SHARD_ERROR = "This question involves several regions; only prices and cheapest connections span regions.";
+
+	/**
+	 * <p>Prefix of the worker responses to requests that can't be served.</p>
+	 */
+	public static final String WARNING_PREFIX = "WARN: ";
+
+	/**
+	 * <p>Prefix of the system properties forwarded to worker processes, so that they answer like this JVM would.</p>
+	 */
+	private static final String PROPERTY_PREFIX = "com.assessment.flitetrakr.";
+
+	/**
+	 * <p>How long <code><b>close</b></code> waits for a worker process to quit before killing it.</p>
+	 */
+	private static final long QUIT_TIMEOUT_SECONDS = 5;
+
+	/**
+	 * Questions about the cheapest connection between two airports.
+	 */
+	private static final Pattern CHEAPEST_CONNECTION = Pattern.compile(NLQuery.CHEAPEST_CONNECTION_QUESTION);
+
+	/**
+	 * Questions about the price of a connection.
+	 */
+	private static final Pattern PRICE = Pattern.compile(NLQuery.PRICE_QUESTION);
+
+	/**
+	 * Questions about the airports reachable within a budget.
+	 */
+	private static final Pattern AIRPORTS_BELOW_PRICE = Pattern.compile(NLQuery.AIRPORTS_BELOW_PRICE_QUESTION);
+
+	/**
+	 * Shard of each airport.
+	 */
+	Map<String, Integer> airportShards = new HashMap<String, Integer>();
+
+	/**
+	 * Row/column offset of each airport in the whole network.
+	 */
+	Map<String, Integer> airportIndexes = new HashMap<String, Integer>();
+
+	/**
+	 * Transitive closure of the whole network.
+	 */
+	ReachabilityIndex reachability;
+
+	/**
+	 * Shard of the airports of each strongly connected component; -1 if they belong to several shards.
+	 */
+	int[] componentShards;
+
+	/**
+	 * A shard having flights within it; -1 if none has.
+	 */
+	int flightsShard = -1;
+
+	/**
+	 * Shards without flights within them.
+	 */
+	Set<Integer> emptyShards = new LinkedHashSet<Integer>();
+
+	/**
+	 * Overlay of the boundary airports: fare of the cheapest connection within a shard, or of the flight between shards.
+	 */
+	Map<String, Map<String, Integer>> overlay = new HashMap<String, Map<String, Integer>>();
+
+	/**
+	 * Fares of the flights between shards.
+	 */
+	Map<String, Map<String, Integer>> crossLinks = new HashMap<String, Map<String, Integer>>();
+
+	/**
+	 * Readers of the connections to the workers, by shard.
+	 */
+	List<BufferedReader> readers = new ArrayList<BufferedReader>();
+
+	/**
+	 * Writers of the connections to the workers, by shard.
+	 */
+	List<PrintWriter> writers = new ArrayList<PrintWriter>();
+
+	/**
+	 * Sockets connected to the workers, by shard.
+	 */
+	List<Socket> sockets = new ArrayList<Socket>();
+
+	/**
+	 * Worker processes (none when workers are threads).
+	 */
+	List<Process> processes = new ArrayList<Process>();
+
+	/**
+	 * <p>Splits the network, starts one worker per shard and builds the overlay.</p>
+	 *
+	 * @param connections A string representing a price list, like the first line in the input stream.
+	 * @param shardCount How many shards are wanted.
+	 * @param processes <code><b>true</b></code> to run each worker in its own JVM; <code><b>false</b></code> to run them as threads of this one.
+	 * @throws ParseException If <code><b>connections</b></code> is not a valid connections table.
+	 * @throws IOException If a worker can't be started or reached.
+	 */
+	public ShardCoordinator(String connections, int shardCount, boolean processes) throws ParseException, IOException {
+		AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(connections);
+		Partition partition = new Partition(adjacencyMatrix, shardCount);
+		List<List<String>> boundaries = new ArrayList<List<String>>();
+
+		reachability = adjacencyMatrix.getReachabilityIndex();
+		componentShards = new int[reachability.getComponentCount()];
+		Arrays.fill(componentShards, -2); // No airport seen yet.
+
+		for(int v = 0; v < adjacencyMatrix.length(); v++) {
+			int component = reachability.getComponent(v);
+			int shard = partition.getShard(v);
+
+			airportShards.put(adjacencyMatrix.getCode(v), shard);
+			airportIndexes.put(adjacencyMatrix.getCode(v), v);
+			componentShards[component] = componentShards[component] == -2 || componentShards[component] == shard ? shard : -1;
+		}
+
+		for(String[] link: partition.getCrossLinks()) {
+			link(crossLinks, link[0], link[1], Integer.parseInt(link[2]));
+			link(overlay, link[0], link[1], Integer.parseInt(link[2]));
+		}
+
+		try {
+			for(int shard = 0; shard < partition.getShardCount(); shard++) {
+				String shardConnections = partition.getConnections(shard);
+				List<String> boundary = partition.getBoundary(shard);
+
+				connect(processes ? startProcess() : startThread());
+				request(shard, ShardWorker.SHARD_CONNECTIONS + (shardConnections == null ? StringIO.EMPTY_STRING : shardConnections));
+
+				if(shardConnections == null) {
+					emptyShards.add(shard);
+				} else if(flightsShard == -1) {
+					flightsShard = shard;
+				}
+				request(shard, ShardWorker.SHARD_BOUNDARY + String.join(",", boundary));
+				boundaries.add(boundary);
+			}
+
+			for(int shard = 0; shard < boundaries.size(); shard++) {
+				for(String code: boundaries.get(shard)) {
+					for(Map.Entry<String, Integer> fare: fares(shard, "FROM", code).entrySet()) {
+						if(!fare.getKey().equals(code)) {
+							link(overlay, code, fare.getKey(), fare.getValue());
+						}
+					}
+				}
+			}
+		}catch(IOException | RuntimeException e) { // Workers already started would otherwise outlive the coordinator.
+			try {
+				close();
+			}catch(IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Adds a link to a fares map, keeping the cheapest fare.
+	 */
+	private static void link(Map<String, Map<String, Integer>> links, String from, String to, int fare) {
+		Map<String, Integer> fares = links.get(from);
+
+		if(fares == null) {
+			fares = new HashMap<String, Integer>();
+			links.put(from, fares);
+		}
+
+		Integer previous = fares.get(to);
+
+		if(previous == null || fare < previous) {
+			fares.put(to, fare);
+		}
+	}
+
+	/**
+	 * @return Port of a new worker thread.
+	 */
+	private int startThread() throws IOException {
+		ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		Thread thread = new Thread(new ShardWorker(serverSocket), "shard-worker-" + sockets.size());
+
+		thread.setDaemon(true);
+		thread.start();
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @return Port of a new worker process, running with the class path and the <code><b>com.assessment.flitetrakr.*</b></code> 
+	 * system properties of this JVM.
+	 */
+	private int startProcess() throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		List<String> command = new ArrayList<String>();
+
+		command.add(java);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+
+		for(String name: System.getProperties().stringPropertyNames()) {
+			if(name.startsWith(PROPERTY_PREFIX)) {
+				command.add("-D" + name + "=" + System.getProperty(name));
+			}
+		}
+		command.add(ShardWorker.class.getName());
+
+		ProcessBuilder builder = new ProcessBuilder(command);
+		Process process = builder.redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+		processes.add(process);
+
+		BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+		String line = output.readLine();
+
+		if(line == null || !line.startsWith(ShardWorker.PORT_PREFIX)) {
+			throw new IOException("FATAL: A shard worker didn't start");
+		}
+		return Integer.parseInt(line.substring(ShardWorker.PORT_PREFIX.length()).trim());
+	}
+
+	/**
+	 * Connects to a worker.
+	 */
+	private void connect(int port) throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+
+		sockets.add(socket);
+		readers.add(new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)));
+		writers.add(new PrintWriter(socket.getOutputStream()));
+	}
+
+	/**
+	 * <p>Sends a request to a worker and waits for its response.</p>
+	 *
+	 * @return The response line.
+	 * @throws IOException If the worker is not reachable anymore.
+	 */
+	private synchronized String request(int shard, String request) throws IOException {
+		PrintWriter writer = writers.get(shard);
+		String response;
+
+		writer.println(request);
+		writer.flush();
+
+		if((response = readers.get(shard).readLine()) == null) {
+			throw new IOException(String.format("FATAL: Shard %d closed the connection", shard));
+		}
+		return response;
+	}
+
+	/**
+	 * @return The fares returned by a <code><b>FROM</b></code> or <code><b>TO</b></code> request, by boundary airport.
+	 */
+	private Map<String, Integer> fares(int shard, String command, String code) throws IOException {
+		Map<String, Integer> fares = new HashMap<String, Integer>();
+
+		for(String item: request(shard, command + " " + code).split(",")) {
+			int equals = item.indexOf('=');
+
+			if(equals > 0) {
+				fares.put(item.substring(0, equals), Integer.parseInt(item.substring(equals + 1)));
+			}
+		}
+		return fares;
+	}
+
+	/**
+	 * <p>Evaluates a question, like <code><b>NLQuery.evaluate</b></code> does on a single network.</p>
+	 *
+	 * @param questionText Any question text accepted by <code><b>NLQuery</b></code>.
+	 * @return The answer.
+	 * @throws ParseException If the question is not valid.
+	 * @throws IOException If a worker is not reachable anymore.
+	 */
+	public String evaluate(String questionText) throws ParseException, IOException {
+		String trimmed = questionText.trim().replaceAll(StringIO.CONTINUOUS_WHITESPACE_EXPR, StringIO.SINGLE_WHITESPACE_STRING);
+		String upperCased = trimmed.toUpperCase();
+		Set<Integer> shards = new LinkedHashSet<Integer>();
+		String answer;
+
+		for(String word: trimmed.split("[^\\w]+")) {
+			Integer shard = airportShards.get(word);
+
+			if(shard != null) {
+				shards.add(shard);
+			}
+		}
+
+		if(CHEAPEST_CONNECTION.matcher(upperCased).matches()) {
+			String terminalPoints[] = StringIO.mirrorSubString(trimmed, upperCased, "FROM", "TO");
+
+			answer = cheapestConnection(terminalPoints[0].trim(), terminalPoints[1].trim());
+		} else if(shards.size() > 1 && PRICE.matcher(upperCased).matches()) {
+			String connection = trimmed.substring(upperCased.lastIndexOf("CONNECTION") + "CONNECTION".length(), StringIO.questionMarkPos(trimmed)).trim();
+			int price = connectionPrice(connection.split("\\-"));
+
+			answer = price == -1 ? Query.CONNECTION_NOT_FOUND_ERROR : Integer.toString(price);
+		} else if(shards.size() > 1 || (!shards.isEmpty() && !PRICE.matcher(upperCased).matches() && !local(trimmed, shards.iterator().next(), AIRPORTS_BELOW_PRICE.matcher(upperCased).matches()))) {
+			answer = CROSS_SHARD_ERROR;
+		} else {
+			answer = request(shard(shards), "ASK " + trimmed);
+		}
+
+		if(answer.startsWith(WARNING_PREFIX)) {
+			throw new ParseException(answer.substring(WARNING_PREFIX.length()), 0);
+		}
+		return answer;
+	}
+
+	/**
+	 * @param shards Shards of the airports of a question answered by one shard.
+	 * @return The shard answering it. A shard without flights within it has no network to answer from: its airports have no 
+	 * connection at all there, so the question is sent to a shard having flights, which answers it like for unknown airports.
+	 */
+	private int shard(Set<Integer> shards) {
+		int shard = shards.isEmpty() ? 0 : shards.iterator().next();
+
+		return emptyShards.contains(shard) && flightsShard != -1 ? flightsShard : shard;
+	}
+
+	/**
+	 * <p>Tells whether the connections a question is about stay within one shard, so that the shard alone can answer it.</p>
+	 *
+	 * @param trimmedQuestionText The question text, whose airport codes are checked.
+	 * @param shard The shard of those airports.
+	 * @param reachableOnly <code><b>true</b></code> if every airport reachable from the question's airports may be in the answer;
+	 * otherwise only the airports reachable from one of them and reaching another one can be.
+	 * @return <code><b>true</b></code> if all of those airports belong to <code><b>shard</b></code>.
+	 */
+	private boolean local(String trimmedQuestionText, int shard, boolean reachableOnly) {
+		Set<Integer> components = new LinkedHashSet<Integer>();
+
+		for(String word: trimmedQuestionText.split("[^\\w]+")) {
+			Integer airport = airportIndexes.get(word);
+
+			if(airport != null) {
+				components.add(reachability.getComponent(airport));
+			}
+		}
+
+		for(int component = 0; component < componentShards.length; component++) {
+			if(componentShards[component] == shard) {
+				continue;
+			}
+
+			for(int from: components) {
+				if(!reachability.componentReaches(from, component)) {
+					continue;
+				}
+
+				if(reachableOnly) {
+					return false;
+				}
+
+				for(int to: components) {
+					if(reachability.componentReaches(component, to)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * <p>Finds the cheapest connection between two airports, within their shard or across the boundary overlay.</p>
+	 *
+	 * @param sourceCode Departure airport's code.
+	 * @param destinationCode Destination airport's code.
+	 * @return The cheapest connection like <code><b>Query.cheapestConnection</b></code> returns it.
+	 * @throws IOException If a worker is not reachable anymore.
+	 */
+	public String cheapestConnection(String sourceCode, String destinationCode) throws IOException {
+		Integer sourceShard = airportShards.get(sourceCode);
+		Integer destinationShard = airportShards.get(destinationCode);
+		String local = Query.CONNECTION_NOT_FOUND_ERROR;
+		int localFare = Integer.MAX_VALUE;
+
+		if(sourceShard == null || destinationShard == null) {
+			return Query.CONNECTION_NOT_FOUND_ERROR;
+		}
+
+		if(sourceShard.equals(destinationShard)) {
+			local = request(sourceShard, "PATH " + sourceCode + " " + destinationCode);
+
+			if(!local.equals(Query.CONNECTION_NOT_FOUND_ERROR)) {
+				localFare = Integer.parseInt(local.substring(local.lastIndexOf('-') + 1));
+			}
+		}
+
+		Map<String, Integer> departures = fares(sourceShard, "FROM", sourceCode);
+		Map<String, Integer> arrivals = fares(destinationShard, "TO", destinationCode);
+		Map<String, Integer> fares = new HashMap<String, Integer>();
+		Map<String, String> parents = new HashMap<String, String>();
+		Map<String, Integer> ids = new HashMap<String, Integer>();
+		List<String> codes = new ArrayList<String>();
+		Set<String> settled = new LinkedHashSet<String>();
+		LongHeap heap = new LongHeap(16);
+		String best = null;
+		String bestLast = null;
+		int bestFare = localFare;
+		boolean roundtrip = sourceCode.equals(destinationCode);
+
+		for(Map.Entry<String, Integer> departure: departures.entrySet()) { // Connections leave the source's shard through these.
+			fares.put(departure.getKey(), departure.getValue());
+			heap.push(LongHeap.key(departure.getValue(), id(departure.getKey(), ids, codes)));
+		}
+
+		while(!heap.isEmpty()) {
+			long key = heap.pop();
+			String code = codes.get(LongHeap.value(key));
+			int fare = LongHeap.priority(key);
+
+			if(fare >= bestFare) {
+				break;
+			}
+			if(!settled.add(code)) {
+				continue;
+			}
+
+			Integer arrival = arrivals.get(code);
+
+			if(arrival != null && fare + arrival < bestFare && (fare + arrival > 0 || !roundtrip)) { // Roundtrips take at least one flight.
+				bestFare = fare + arrival;
+				best = code;
+				bestLast = null;
+			}
+
+			for(Map.Entry<String, Integer> link: overlay.getOrDefault(code, new HashMap<String, Integer>()).entrySet()) {
+				int candidate = fare + link.getValue();
+				Integer known = fares.get(link.getKey());
+				Integer linkArrival = arrivals.get(link.getKey());
+
+				if(linkArrival != null && candidate + linkArrival < bestFare) { // Settled airports (the source of a roundtrip) are arrived at too.
+					bestFare = candidate + linkArrival;
+					best = code;
+					bestLast = link.getKey();
+				}
+
+				if(!settled.contains(link.getKey()) && (known == null || candidate < known)) {
+					fares.put(link.getKey(), candidate);
+					parents.put(link.getKey(), code);
+					heap.push(LongHeap.key(candidate, id(link.getKey(), ids, codes)));
+				}
+			}
+		}
+
+		if(best == null) {
+			return local;
+		}
+
+		LinkedList<String> waypoints = new LinkedList<String>();
+
+		waypoints.addFirst(destinationCode);
+		if(bestLast != null) {
+			waypoints.addFirst(bestLast);
+		}
+		for(String code = best; code != null; code = parents.get(code)) {
+			waypoints.addFirst(code);
+		}
+		waypoints.addFirst(sourceCode);
+
+		return unpack(waypoints, bestFare);
+	}
+
+	/**
+	 * @return Dense id of an overlay airport, used as heap value.
+	 */
+	private static int id(String code, Map<String, Integer> ids, List<String> codes) {
+		Integer id = ids.get(code);
+
+		if(id == null) {
+			id = codes.size();
+			ids.put(code, id);
+			codes.add(code);
+		}
+		return id;
+	}
+
+	/**
+	 * <p>Replaces each pair of consecutive waypoints by the flight between shards linking them or by the cheapest connection
+	 * between them within their shard.</p>
+	 *
+	 * @return The connection followed by its fare.
+	 */
+	private String unpack(List<String> waypoints, int fare) throws IOException {
+		StringBuilder buffer = new StringBuilder(waypoints.get(0));
+		String previous = waypoints.get(0);
+
+		for(String code: waypoints.subList(1, waypoints.size())) {
+			if(code.equals(previous)) {
+				continue;
+			}
+
+			Map<String, Integer> flights = crossLinks.get(previous);
+
+			if(flights != null && flights.containsKey(code) && !airportShards.get(previous).equals(airportShards.get(code))) {
+				buffer.append('-').append(code);
+			} else {
+				String segment = request(airportShards.get(previous), "PATH " + previous + " " + code);
+
+				buffer.append(segment.substring(previous.length(), segment.lastIndexOf('-')));
+			}
+			previous = code;
+		}
+
+		return buffer.append('-').append(fare).toString();
+	}
+
+	/**
+	 * <p>Prices a connection whose legs may cross shards: each run of airports of the same shard is priced by that shard and
+	 * each flight between shards by the overlay.</p>
+	 *
+	 * @param codes Airport codes of the connection.
+	 * @return -1 if the connection doesn't exist, otherwise its price.
+	 * @throws IOException If a worker is not reachable anymore.
+	 */
+	public int connectionPrice(String[] codes) throws IOException {
+		Set<String> visited = new LinkedHashSet<String>();
+		int price = 0;
+		int start = 0;
+
+		for(int i = 0; i < codes.length; i++) {
+			codes[i] = codes[i].trim();
+
+			if(!airportShards.containsKey(codes[i]) || (!visited.add(codes[i]) && !(i == codes.length - 1 && i > 1 && codes[i].equals(codes[0])))) {
+				return -1;
+			}
+		}
+
+		for(int i = 1; i <= codes.length; i++) {
+			if(i < codes.length && airportShards.get(codes[i]).equals(airportShards.get(codes[i - 1]))) {
+				continue;
+			}
+
+			if(i - start > 1) { // A run of airports within one shard.
+				String run = String.join("-", Arrays.asList(codes).subList(start, i));
+				int runPrice = Integer.parseInt(request(airportShards.get(codes[start]), "PRICE " + run));
+
+				if(runPrice == -1) {
+					return -1;
+				}
+				price += runPrice;
+			}
+
+			if(i < codes.length) { // A flight between shards.
+				Integer fare = crossLinks.getOrDefault(codes[i - 1], new HashMap<String, Integer>()).get(codes[i]);
+
+				if(fare == null) {
+					return -1;
+				}
+				price += fare;
+			}
+			start = i;
+		}
+
+		return codes.length < 2 ? -1 : price;
+	}
+
+	/**
+	 * <p>Stops the workers; worker processes still running <code><b>QUIT_TIMEOUT_SECONDS</b></code> after being told to quit are killed.</p>
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+
+		for(int shard = 0; shard < sockets.size(); shard++) {
+			if(shard < writers.size()) {
+				writers.get(shard).println("QUIT");
+				writers.get(shard).flush();
+			}
+
+			try {
+				sockets.get(shard).close();
+			}catch(IOException e) {
+				if(failure == null) {
+					failure = e;
+				} else {
+					failure.addSuppressed(e);
+				}
+			}
+		}
+		for(Process process: processes) { // Workers that don't quit in time, or never connected, are killed.
+			try {
+				if(!process.waitFor(QUIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+					process.destroyForcibly();
+				}
+			}catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				process.destroyForcibly();
+			}
+		}
+
+		if(failure != null) {
+			throw failure;
+		}
+	}
+}
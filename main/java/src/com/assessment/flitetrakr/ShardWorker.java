@@ -0,0 +1,218 @@
+package com.assessment.flitetrakr;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.assessment.data.AdjacencyMatrix;
+import com.assessment.data.Landmarks;
+import com.assessment.util.StringIO;
+
+/**
+ * <p>Serves the questions about one regional shard of the network (see <code><b>com.assessment.data.Partition</b></code>) to a
+ * <code><b>ShardCoordinator</b></code> over a loopback socket.</p>
+ * <p>The coordinator sends the shard's connections table and boundary airports first (<code><b>SHARD_CONNECTIONS</b></code>
+ * and <code><b>SHARD_BOUNDARY</b></code> lines), then one request per line; every request gets a one line response:</p>
+ * <ul>
+ * <li><code><b>ASK &lt;question&gt;</b></code>: the answer of <code><b>NLQuery.evaluate</b></code>.</li>
+ * <li><code><b>FROM &lt;code&gt;</b></code>: cheapest fares from the airport to each boundary airport (<code><b>CODE=fare</b></code> items).</li>
+ * <li><code><b>TO &lt;code&gt;</b></code>: cheapest fares from each boundary airport to the airport.</li>
+ * <li><code><b>PATH &lt;code&gt; &lt;code&gt;</b></code>: the cheapest connection within the shard, like <code><b>Query.cheapestConnection</b></code>.</li>
+ * <li><code><b>PRICE &lt;code-code-...&gt;</b></code>: the price of a connection within the shard, -1 if it doesn't exist.</li>
+ * <li><code><b>QUIT</b></code>: closes the connection.</li>
+ * <li>Requests that can't be served get <code><b>ShardCoordinator.WARNING_PREFIX</b></code> followed by the reason.</li>
+ * </ul>
+ * @author rsolano
+ *
+ */
+public class ShardWorker implements Runnable {
+
+	/**
+	 * Prefix of the line carrying the shard's connections table; it is empty if the shard has no flights.
+	 */
+	public static final String SHARD_CONNECTIONS = "SHARD ";
+
+	/**
+	 * Prefix of the line carrying the shard's boundary airports, separated by commas.
+	 */
+	public static final String SHARD_BOUNDARY = "BOUNDARY ";
+
+	/**
+	 * Prefix of the line through which a worker process tells its port.
+	 */
+	public static final String PORT_PREFIX = "PORT ";
+
+	/**
+	 * Socket on which the coordinator connects.
+	 */
+	ServerSocket serverSocket;
+
+	/**
+	 * Flights within the shard; <code><b>null</b></code> if there is none.
+	 */
+	AdjacencyMatrix adjacencyMatrix;
+
+	/**
+	 * Queries about the shard.
+	 */
+	Query query;
+
+	/**
+	 * Natural language interface to <code><b>query</b></code>.
+	 */
+	NLQuery nlQuery;
+
+	/**
+	 * Codes of the boundary airports.
+	 */
+	List<String> boundary = new ArrayList<String>();
+
+	/**
+	 * @param serverSocket Socket on which the coordinator connects; it is closed once the coordinator quits.
+	 */
+	public ShardWorker(ServerSocket serverSocket) {
+		this.serverSocket = serverSocket;
+	}
+
+	/**
+	 * <p>Accepts the coordinator and serves its requests until it quits or disconnects.</p>
+	 */
+	@Override
+	public void run() {
+		try(ServerSocket server = serverSocket;
+			Socket socket = server.accept();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			PrintWriter writer = new PrintWriter(socket.getOutputStream())) {
+
+			String line;
+
+			while((line = reader.readLine()) != null && !line.equals("QUIT")) {
+				writer.println(serve(line));
+				writer.flush();
+			}
+
+		}catch(IOException e) {
+			System.err.println(String.format("ERROR: Shard worker stopped: %s", e.getMessage()));
+		}
+	}
+
+	/**
+	 * @param request A request line.
+	 * @return The response line.
+	 */
+	String serve(String request) {
+		int space = request.indexOf(' ');
+		String command = space == -1 ? request : request.substring(0, space);
+		String argument = space == -1 ? StringIO.EMPTY_STRING : request.substring(space + 1).trim();
+
+		try {
+			switch(command) {
+				case "SHARD":
+					load(argument);
+					return "OK";
+				case "BOUNDARY":
+					boundary.clear();
+					for(String code: argument.split(",")) {
+						if(code.trim().length() > 0) {
+							boundary.add(code.trim());
+						}
+					}
+					return "OK";
+				case "ASK":
+					return nlQuery == null ? Query.CONNECTION_NOT_FOUND_ERROR : nlQuery.evaluate(argument);
+				case "FROM":
+					return fares(argument, false);
+				case "TO":
+					return fares(argument, true);
+				case "PATH":
+					String[] codes = argument.split(StringIO.CONTINUOUS_WHITESPACE_EXPR);
+					return query == null ? Query.CONNECTION_NOT_FOUND_ERROR : query.cheapestConnection(codes[0], codes[1]);
+				case "PRICE":
+					return query == null ? "-1" : Integer.toString(query.connectionPrice(argument.split("\\-")));
+				default:
+					return ShardCoordinator.WARNING_PREFIX + String.format("Unknown request '%s'", request);
+			}
+		}catch(ParseException | IllegalAccessException | InvocationTargetException | NoSuchMethodException | RuntimeException e) {
+			return ShardCoordinator.WARNING_PREFIX + e.getMessage();
+		}
+	}
+
+	/**
+	 * Builds the shard's network.
+	 */
+	private void load(String connections) throws ParseException, NoSuchMethodException {
+		if(connections.length() == 0) {
+			adjacencyMatrix = null;
+			query = null;
+			nlQuery = null;
+		} else {
+			adjacencyMatrix = new AdjacencyMatrix(connections);
+			query = new Query(adjacencyMatrix);
+			nlQuery = new NLQuery(query);
+		}
+	}
+
+	/**
+	 * @return Cheapest fares between an airport and the boundary airports, as comma separated <code><b>CODE=fare</b></code> items.
+	 */
+	private String fares(String code, boolean backward) {
+		StringBuilder buffer = new StringBuilder();
+		String alone = boundary.contains(code) ? code + "=0" : StringIO.EMPTY_STRING; // Airports without flights in the shard.
+		int[] fares;
+
+		if(adjacencyMatrix == null) {
+			return alone;
+		}
+
+		try {
+			fares = adjacencyMatrix.cheapestFares(adjacencyMatrix.getIndex(code), backward);
+		}catch(ArrayIndexOutOfBoundsException e) {
+			return alone;
+		}
+
+		for(String other: boundary) {
+			try {
+				int fare = fares[adjacencyMatrix.getIndex(other)];
+
+				if(fare != Landmarks.UNREACHABLE) {
+					if(buffer.length() > 0) {
+						buffer.append(',');
+					}
+					buffer.append(other).append('=').append(fare);
+				}
+			}catch(ArrayIndexOutOfBoundsException e) {
+				// The boundary airport has no flights within the shard.
+			}
+		}
+
+		return buffer.toString();
+	}
+
+	/**
+	 * <p>Runs a worker process: it listens on a free loopback port, prints <code><b>PORT_PREFIX</b></code> and the port on the
+	 * standard output, and serves one coordinator.</p>
+	 *
+	 * @param args Unused.
+	 */
+	public static void main(String args[]) {
+		try {
+			ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+
+			System.out.println(PORT_PREFIX + serverSocket.getLocalPort());
+			System.out.flush();
+			new ShardWorker(serverSocket).run();
+
+		}catch(IOException e) {
+			System.err.println(String.format("ERROR: %s. Can't start shard worker", e.getMessage()));
+		}
+	}
+}
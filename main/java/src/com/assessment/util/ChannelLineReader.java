@@ -0,0 +1,121 @@
+package com.assessment.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>Reads text lines from a byte channel (a file or a pipe) through one large direct buffer.</p>
+ * <p>Bytes are copied from the buffer straight into a reusable line array, so each line costs one <code><b>String</b></code> and
+ * no intermediate decoding buffers; ASCII lines, the usual case, skip charset decoding altogether. Lines end with
+ * <code><b>'\n'</b></code>, optionally preceded by <code><b>'\r'</b></code>.</p>
+ * @author rsolano
+ *
+ */
+public class ChannelLineReader implements Closeable {
+
+	/**
+	 * Default size of the read buffer.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Channel being read.
+	 */
+	ReadableByteChannel channel;
+
+	/**
+	 * Bytes read from the channel and not consumed yet.
+	 */
+	ByteBuffer buffer;
+
+	/**
+	 * Bytes of the line being read.
+	 */
+	byte[] line = new byte[256];
+
+	/**
+	 * Set once the channel reached its end.
+	 */
+	boolean eof;
+
+	/**
+	 * @param channel Channel being read.
+	 * @param bufferSize Size of the read buffer.
+	 */
+	public ChannelLineReader(ReadableByteChannel channel, int bufferSize) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.buffer.flip();
+	}
+
+	/**
+	 * @param channel Channel being read.
+	 */
+	public ChannelLineReader(ReadableByteChannel channel) {
+		this(channel, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @return The next line, without its terminator, or <code><b>null</b></code> at the end of the channel.
+	 * @throws IOException If the channel can't be read.
+	 */
+	public String readLine() throws IOException {
+		int length = 0;
+		boolean ascii = true;
+
+		while(true) {
+			if(!buffer.hasRemaining() && (eof || !fill())) {
+				return length == 0 ? null : decode(length, ascii);
+			}
+
+			byte b = buffer.get();
+
+			if(b == '\n') {
+				return decode(length, ascii);
+			}
+
+			if(length == line.length) {
+				line = Arrays.copyOf(line, length * 2);
+			}
+			line[length++] = b;
+			ascii &= b >= 0;
+		}
+	}
+
+	/**
+	 * Reads more bytes from the channel.
+	 *
+	 * @return <code><b>false</b></code> at the end of the channel.
+	 */
+	private boolean fill() throws IOException {
+		int read;
+
+		buffer.clear();
+		do {
+			read = channel.read(buffer);
+		} while(read == 0);
+		buffer.flip();
+
+		eof = read == -1;
+		return !eof;
+	}
+
+	/**
+	 * @return The line held by <code><b>line</b></code>.
+	 */
+	private String decode(int length, boolean ascii) {
+		if(length > 0 && line[length - 1] == '\r') {
+			length--;
+		}
+		return new String(line, 0, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
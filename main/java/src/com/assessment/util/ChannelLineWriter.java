@@ -0,0 +1,157 @@
+package com.assessment.util;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Writes text to a byte channel through one large direct buffer, which is written out only when it is full or flushed, so
+ * many answers share a single system call.</p>
+ * <p>ASCII characters are stored as they are; other text is encoded as UTF-8. Being an <code><b>Appendable</b></code>, it can
+ * receive answers streamed piece by piece.</p>
+ * @author rsolano
+ *
+ */
+public class ChannelLineWriter implements Appendable, Closeable, Flushable {
+
+	/**
+	 * Default size of the write buffer.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Line terminator.
+	 */
+	static final String LINE_SEPARATOR = System.lineSeparator();
+
+	/**
+	 * Channel being written.
+	 */
+	WritableByteChannel channel;
+
+	/**
+	 * Bytes not written to the channel yet.
+	 */
+	ByteBuffer buffer;
+
+	/**
+	 * @param channel Channel being written.
+	 * @param bufferSize Size of the write buffer.
+	 */
+	public ChannelLineWriter(WritableByteChannel channel, int bufferSize) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/**
+	 * @param channel Channel being written.
+	 */
+	public ChannelLineWriter(WritableByteChannel channel) {
+		this(channel, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param text Text being written.
+	 * @return This writer.
+	 * @throws IOException If the channel can't be written.
+	 */
+	@Override
+	public ChannelLineWriter append(CharSequence text) throws IOException {
+		if(text == null) {
+			text = "null";
+		}
+
+		int length = text.length();
+
+		for(int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+
+			if(c >= 0x80) { // Not ASCII.
+				put(StandardCharsets.UTF_8.encode(text.subSequence(i, length).toString()));
+				return this;
+			}
+			if(!buffer.hasRemaining()) {
+				flushBuffer();
+			}
+			buffer.put((byte)c);
+		}
+		return this;
+	}
+
+	@Override
+	public ChannelLineWriter append(CharSequence text, int start, int end) throws IOException {
+		return append(text == null ? "null" : text.subSequence(start, end));
+	}
+
+	@Override
+	public ChannelLineWriter append(char c) throws IOException {
+		if(c >= 0x80) {
+			return append(String.valueOf(c));
+		}
+		if(!buffer.hasRemaining()) {
+			flushBuffer();
+		}
+		buffer.put((byte)c);
+		return this;
+	}
+
+	/**
+	 * @param value Number being written in decimal.
+	 * @return This writer.
+	 * @throws IOException If the channel can't be written.
+	 */
+	public ChannelLineWriter append(int value) throws IOException {
+		return append(Integer.toString(value));
+	}
+
+	/**
+	 * @return This writer, after writing a line terminator.
+	 * @throws IOException If the channel can't be written.
+	 */
+	public ChannelLineWriter newLine() throws IOException {
+		return append(LINE_SEPARATOR);
+	}
+
+	/**
+	 * Copies encoded bytes to the buffer.
+	 */
+	private void put(ByteBuffer bytes) throws IOException {
+		while(bytes.hasRemaining()) {
+			if(!buffer.hasRemaining()) {
+				flushBuffer();
+			}
+
+			int count = Math.min(buffer.remaining(), bytes.remaining());
+			ByteBuffer slice = bytes.duplicate();
+
+			slice.limit(slice.position() + count);
+			buffer.put(slice);
+			bytes.position(bytes.position() + count);
+		}
+	}
+
+	/**
+	 * Writes the buffer to the channel.
+	 */
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flushBuffer();
+		channel.close();
+	}
+}
@@ -0,0 +1,75 @@
+package com.assessment.util;
+
+/**
+ * <p>Interfaces of demand driven (backpressured) streams, with the same members and contract as
+ * <code><b>java.util.concurrent.Flow</b></code>, which is not available at the Java 8 source level this project builds with.</p>
+ * <p>A <code><b>Publisher</b></code> emits items to a <code><b>Subscriber</b></code> only as long as the subscriber has requested
+ * them through its <code><b>Subscription</b></code>.</p>
+ * @author rsolano
+ *
+ */
+public final class Flow {
+
+	private Flow() {
+	}
+
+	/**
+	 * <p>Producer of items received by subscribers.</p>
+	 *
+	 * @param <T> Type of the published items.
+	 */
+	@FunctionalInterface
+	public static interface Publisher<T> {
+
+		/**
+		 * <p>Adds a subscriber, which is told its subscription through <code><b>onSubscribe</b></code>.</p>
+		 *
+		 * @param subscriber The subscriber.
+		 */
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	/**
+	 * <p>Receiver of the items of a publisher.</p>
+	 *
+	 * @param <T> Type of the received items.
+	 */
+	public static interface Subscriber<T> {
+
+		/**
+		 * @param subscription Link to the publisher, through which items are requested.
+		 */
+		void onSubscribe(Subscription subscription);
+
+		/**
+		 * @param item The next item.
+		 */
+		void onNext(T item);
+
+		/**
+		 * @param throwable The error that ended the stream.
+		 */
+		void onError(Throwable throwable);
+
+		/**
+		 * The stream ended normally.
+		 */
+		void onComplete();
+	}
+
+	/**
+	 * <p>Link between a publisher and a subscriber.</p>
+	 */
+	public static interface Subscription {
+
+		/**
+		 * @param n How many more items the subscriber is ready to receive; not positive values end the stream with an error.
+		 */
+		void request(long n);
+
+		/**
+		 * Stops the stream; items may still arrive for a while.
+		 */
+		void cancel();
+	}
+}
@@ -1,11 +1,19 @@
 package com.assessment.flitetrakr;
 
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.assessment.data.AdjacencyMatrix;
+import com.assessment.data.DirectedGraph;
+import com.assessment.data.FareStorage;
 
 public class AdjacencyMatrixTest {
 	
@@ -59,4 +67,107 @@ public class AdjacencyMatrixTest {
 		}
 	}	
 	
+	/**
+	 * <p>This method verifies that fares stored off the heap match the dense table, including repeated and self links.</p>
+	 * @throws ParseException
+	 */
+	@Test
+	public void testOffHeapFareTable() throws ParseException {
+		String[] tables = {
+			connections[0],
+			"Connections: A-B-1, B-A-2, B-C-3, C-A-1, A-C-4, C-D-2, D-B-1, D-A-3, D-E-2, E-C-1, E-E-5, A-B-7"
+		};
+		
+		System.out.println(String.format("DataSetTest.testOffHeapFareTable"));
+		
+		for(String connection: tables) {
+			AdjacencyMatrix dense = new AdjacencyMatrix(connection);
+			AdjacencyMatrix offHeap = new AdjacencyMatrix(connection, FareStorage.OFF_HEAP);
+			
+			Assert.assertEquals(dense.length(), offHeap.length());
+			Assert.assertNull(offHeap.getConnectionsTable());
+			
+			for(int x = 0; x < dense.length(); x++) {
+				for(int y = 0; y < dense.length(); y++) {
+					Assert.assertEquals(dense.get(x, y), offHeap.get(x, y));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * <p>This method verifies that compressed fares match the dense table, on rows spanning several blocks too.</p>
+	 * @throws ParseException
+	 */
+	@Test
+	public void testCompressedFareTable() throws ParseException {
+		Random random = new Random(41);
+		StringBuilder buffer = new StringBuilder("Connections: ");
+		
+		System.out.println(String.format("DataSetTest.testCompressedFareTable"));
+		
+		for(int i = 0; i < 400; i++) {
+			buffer.append(i == 0 ? "" : ", ").append(String.format("A%d-A%d-%d", random.nextInt(40), random.nextInt(40), 1 + random.nextInt(i % 2 == 0 ? 100 : 100000)));
+		}
+		
+		for(String connection: new String[] {connections[0], buffer.toString()}) {
+			AdjacencyMatrix dense = new AdjacencyMatrix(connection);
+			AdjacencyMatrix compressed = new AdjacencyMatrix(connection, FareStorage.COMPRESSED);
+			
+			Assert.assertEquals(dense.length(), compressed.length());
+			
+			for(int x = 0; x < dense.length(); x++) {
+				for(int y = 0; y < dense.length(); y++) {
+					Assert.assertEquals(dense.get(x, y), compressed.get(x, y));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * <p>This method verifies that structures built on first use by concurrent threads are built once and match the fares, and that 
+	 * direct flight fares agree with the fare table.</p>
+	 * @throws Exception
+	 */
+	@Test
+	public void testLazyStructures() throws Exception {
+		String connection = "Connections: A-B-1, B-A-2, B-C-3, C-A-1, A-C-4, C-D-2, D-B-1, D-A-3, D-E-2, E-C-1, E-E-5";
+		AdjacencyMatrix reference = new AdjacencyMatrix(connection);
+		AdjacencyMatrix lazy = new AdjacencyMatrix(connection);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<DirectedGraph>> graphs = new ArrayList<Future<DirectedGraph>>();
+		
+		System.out.println(String.format("DataSetTest.testLazyStructures"));
+		
+		for(int i = 0; i < 32; i++) {
+			graphs.add(executor.submit(() -> {
+				for(int x = 0; x < lazy.length(); x++) {
+					Assert.assertEquals(reference.getCode(x), lazy.getCode(x));
+					Assert.assertEquals(reference.outDegree(x), lazy.outDegree(x));
+					Assert.assertEquals(reference.inDegree(x), lazy.inDegree(x));
+					
+					for(int y = 0; y < lazy.length(); y++) {
+						Assert.assertEquals(reference.get(x, y), lazy.get(x, y));
+					}
+				}
+				return lazy.getDirectedGraph();
+			}));
+		}
+		
+		for(Future<DirectedGraph> graph: graphs) {
+			Assert.assertSame(graphs.get(0).get(), graph.get());
+		}
+		executor.shutdown();
+		
+		for(int x = 0; x < reference.length(); x++) {
+			for(int y = 0; y < reference.length(); y++) {
+				String a = reference.getCode(x);
+				String b = reference.getCode(y);
+				
+				Assert.assertEquals(reference.getDirectedGraph().isConnected(a, b) ? reference.get(x, y) : 0, reference.getLinkFare(a, b));
+			}
+		}
+		Assert.assertEquals(0, reference.getLinkFare("A", "Z"));
+	}
+	
 }
@@ -1,16 +1,28 @@
 package com.assessment.flitetrakr;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.assessment.data.ContractionHierarchy;
+import com.assessment.util.ChannelLineReader;
+
 /**
  * <p>Ensures quality of <b><code>com.assessment.flitetrakr.CLI</code></b>'s methods.</p>
  * @author rsolano
@@ -41,4 +53,75 @@ public class CLITest {
 
 		
 	}
+	
+	/**
+	 * <p>Ensures that reading and writing through channels prints the same feedback as readers and writers do.</p>
+	 * @throws IOException
+	 * @throws ParseException 
+	 */
+	@Test
+	public void testCLIWithChannels() throws IOException, ParseException {
+		String dataFilePath = dataDir + File.separatorChar + "connections-2.txt";
+		StringWriter expected = new StringWriter();
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		
+		System.out.println(String.format("testCLIWithChannels('%s')", dataFilePath));
+		
+		try(InputStreamReader reader = new InputStreamReader(new FileInputStream(dataFilePath));
+			FileChannel channel = FileChannel.open(Paths.get(dataFilePath), StandardOpenOption.READ)) {
+			
+			Assert.assertEquals(10, new CLI(CLIInputType.FILE, reader, new PrintWriter(expected)).process());
+			Assert.assertEquals(10, new CLI(CLIInputType.FILE, channel, Channels.newChannel(actual)).process());
+		}
+		
+		Assert.assertEquals(expected.toString(), new String(actual.toByteArray(), StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * <p>Ensures that lines spanning several buffer fills, CRLF terminators, non ASCII text and a last line without terminator are read.</p>
+	 * @throws IOException
+	 */
+	@Test
+	public void testChannelLineReader() throws IOException {
+		String text = "Connections: NUE-FRA-43\r\n\nWhat is the price of the connection NUE-FRA?\nQu\u00e9 pasa\nlast";
+		ChannelLineReader reader = new ChannelLineReader(Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))), 7);
+		
+		System.out.println(String.format("testChannelLineReader"));
+		
+		Assert.assertEquals("Connections: NUE-FRA-43", reader.readLine());
+		Assert.assertEquals("", reader.readLine());
+		Assert.assertEquals("What is the price of the connection NUE-FRA?", reader.readLine());
+		Assert.assertEquals("Qu\u00e9 pasa", reader.readLine());
+		Assert.assertEquals("last", reader.readLine());
+		Assert.assertNull(reader.readLine());
+	}
+	
+	/**
+	 * <p>Ensures that a corrupted contraction hierarchies index file is rebuilt instead of failing the run.</p>
+	 * @throws IOException
+	 * @throws ParseException 
+	 */
+	@Test
+	public void testCorruptedIndexIsRebuilt() throws IOException, ParseException {
+		String dataFilePath = dataDir + File.separatorChar + "connections-2.txt";
+		File indexFile = File.createTempFile("flitetrakr-index", ".bin");
+		
+		System.out.println(String.format("testCorruptedIndexIsRebuilt('%s')", indexFile));
+		
+		try {
+			Files.write(indexFile.toPath(), new byte[] {(byte)0xAC, (byte)0xED, 0, 5, 's', 'r'});
+			System.setProperty(CLI.INDEX_PROPERTY, indexFile.getPath());
+			
+			try(InputStreamReader reader = new InputStreamReader(new FileInputStream(dataFilePath))) {
+				Assert.assertEquals(10, new CLI(CLIInputType.FILE, reader, new PrintWriter(new StringWriter())).process());
+			}
+			
+			try(InputStream stream = new FileInputStream(indexFile)) {
+				Assert.assertNotNull(ContractionHierarchy.load(stream));
+			}
+		} finally {
+			System.clearProperty(CLI.INDEX_PROPERTY);
+			indexFile.delete();
+		}
+	}
 }
@@ -0,0 +1,88 @@
+package com.assessment.flitetrakr;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.assessment.data.DirectedGraph;
+
+/**
+ * <p>This test case validates that <b><code>com.assessment.data.DirectedGraph</code></b>'s searches are working properly.</p>
+ * @author rsolano
+ *
+ */
+public class DirectedGraphTest {
+
+	/**
+	 * Data used in this test class
+	 */
+	final static String[][] links = {
+		{"A", "B"}, {"B", "A"}, {"B", "C"}, {"C", "A"}, {"A", "C"}, {"C", "D"}, {"D", "D"}
+	};
+
+	/**
+	 * @return A directed graph built from <code><b>links</b></code>.
+	 */
+	private DirectedGraph createGraph() {
+		DirectedGraph graph = new DirectedGraph();
+
+		for(String[] link: links) {
+			graph.addUnidirectionalLink(link[0], link[1]);
+		}
+		return graph;
+	}
+
+	/**
+	 * This method ensures that every elementary roundtrip is found exactly once and self links are ignored.
+	 */
+	@Test
+	public void testRoundTrips() {
+		DirectedGraph graph = createGraph();
+		List<LinkedList<String>> roundTrips = graph.depthFirst("A", "A");
+		Set<String> distinct = new HashSet<String>();
+
+		System.out.println(String.format("DirectedGraphTest.testRoundTrips"));
+
+		for(LinkedList<String> roundTrip: roundTrips) {
+			Assert.assertTrue(distinct.add(String.join("-", roundTrip)));
+		}
+
+		Assert.assertEquals(3, roundTrips.size());
+		Assert.assertEquals(3, distinct.size());
+		Assert.assertTrue(distinct.contains("A-B-A"));
+		Assert.assertTrue(distinct.contains("A-B-C-A"));
+		Assert.assertTrue(distinct.contains("A-C-A"));
+		Assert.assertEquals(0, graph.depthFirst("D", "D").size());
+	}
+
+	/**
+	 * This method ensures that searches skip regions that can't reach the destination, and that the strongly connected
+	 * components are recomputed when links are added.
+	 */
+	@Test
+	public void testComponentPruning() {
+		DirectedGraph graph = createGraph();
+		
+		System.out.println(String.format("DirectedGraphTest.testComponentPruning"));
+		
+		for(int i = 0; i < 12; i++) { // A dead end region reachable from A: X0 -> X1 -> ... <- every Xi also links back to X0.
+			graph.addUnidirectionalLink(i == 0 ? "A" : "X" + (i - 1), "X" + i);
+			graph.addUnidirectionalLink("X" + i, "X0");
+		}
+		
+		Assert.assertEquals(2, graph.depthFirst("A", "D").size());
+		Assert.assertEquals(3, graph.depthFirst("A", "A").size());
+		Assert.assertEquals(0, graph.depthFirst("D", "A").size());
+		Assert.assertEquals(0, graph.depthFirst("X0", "A").size());
+		
+		graph.addUnidirectionalLink("X11", "A");
+		
+		Assert.assertEquals(1, graph.depthFirst("X0", "A").size());
+		Assert.assertEquals(4, graph.depthFirst("A", "A").size());
+		Assert.assertEquals(0, graph.depthFirst("D", "A").size());
+	}
+}
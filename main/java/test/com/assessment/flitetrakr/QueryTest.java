@@ -1,12 +1,35 @@
 package com.assessment.flitetrakr;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.assessment.data.AdjacencyMatrix;
+import com.assessment.data.ContractionHierarchy;
+import com.assessment.data.DirectedGraph;
+import com.assessment.data.ExternalConnectionSort;
+import com.assessment.data.ParetoSearch;
+import com.assessment.data.PathTrie;
+import com.assessment.data.PricedPath;
+import com.assessment.data.ReachabilityIndex;
+import com.assessment.data.Timetable;
+import com.assessment.util.Flow;
 import com.assessment.util.StringIO;
 
 /**
@@ -25,7 +48,8 @@ public class QueryTest {
 	 */
 	final static String[] connections = {
 		"Connections: NUE-FRA-43, NUE-AMS-67, FRA-AMS-17, FRA-LHR-27, LHR-NUE-23",
-		"Connections: a-x-3, a-b-1, a-c-2, b-d-2, c-d-3, d-e-1, x-b-1, x-c-5, c-z-3, e-z-1, c-y-3, y-d-1, z-y-2"
+		"Connections: a-x-3, a-b-1, a-c-2, b-d-2, c-d-3, d-e-1, x-b-1, x-c-5, c-z-3, e-z-1, c-y-3, y-d-1, z-y-2",
+		"Connections: A-B-1, B-A-2, B-C-3, C-A-1, A-C-4, C-D-2, D-B-1, D-A-3, D-E-2, E-C-1"
 	};
 
 	
@@ -60,6 +84,41 @@ public class QueryTest {
 	}
 	
 	
+	/**
+	 * This method ensures that itineraries are validated leg by leg and that the bulk API keeps the input order.
+	 * @throws ParseException 
+	 * @throws IOException 
+	 */
+	@Test
+	public void testItineraryPricer() throws ParseException, IOException {
+		ItineraryPricer pricer = new ItineraryPricer(new AdjacencyMatrix(connections[0]));
+		StringWriter output = new StringWriter();
+		
+		System.out.println(String.format("QueryTest.testItineraryPricer"));
+		Assert.assertEquals(-1, pricer.price("NUE", "FRA", "LHR", "NUE", "FRA"));
+		Assert.assertEquals(-1, pricer.price("NUE", "XXX"));
+		Assert.assertEquals(-1, pricer.price("NUE"));
+		Assert.assertEquals(2, pricer.priceAll(new StringReader("NUE-FRA-LHR\n\nNUE-AMS-LHR\n"), new PrintWriter(output)));
+		Assert.assertEquals(
+			"NUE-FRA-LHR: 70" + System.lineSeparator() + "NUE-AMS-LHR: " + CONNECTION_NOT_FOUND_ERR + System.lineSeparator(),
+			output.toString()
+		);
+		
+		StringBuilder itineraries = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		
+		for(int i = 0; i < 2 * ItineraryPricer.CHUNK_SIZE + 3; i++) { // Several chunks, in order.
+			String itinerary = i % 2 == 0 ? "NUE-FRA-LHR" : "FRA-AMS";
+			
+			itineraries.append(itinerary).append(i % 5 == 0 ? "\n\n" : "\n");
+			expected.append(pricer.format(itinerary)).append(System.lineSeparator());
+		}
+		
+		output = new StringWriter();
+		Assert.assertEquals(2 * ItineraryPricer.CHUNK_SIZE + 3, pricer.priceAll(new StringReader(itineraries.toString()), new PrintWriter(output)));
+		Assert.assertEquals(expected.toString(), output.toString());
+	}
+	
 	/**
 	 * This method ensures that Query class is able to find shortest distances for valid connections..
 	 * @throws ParseException 
@@ -80,6 +139,95 @@ public class QueryTest {
 		Assert.assertEquals("x-b-d-e-4", query2.cheapestConnection("x", "e"));
 		
 	}
+	
+	/**
+	 * This method ensures that A* (with and without landmarks) finds the same fares as a full enumeration of connections.
+	 * @throws ParseException 
+	 */
+	@Test
+	public void testCheapestConnectionWithLandmarks() throws ParseException {
+		System.out.println(String.format("QueryTest.testCheapestConnectionWithLandmarks"));
+		
+		for(String connection: connections) {
+			AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(connection);
+			DirectedGraph graph = adjacencyMatrix.getDirectedGraph();
+			Query query = new Query(adjacencyMatrix);
+			
+			for(int landmarks = 0; landmarks < 3; landmarks++) {
+				adjacencyMatrix.preprocessLandmarks(landmarks);
+				
+				for(String sourceCode: graph.getAirportCodes()) {
+					for(String destinationCode: graph.getAirportCodes()) {
+						String expected = CONNECTION_NOT_FOUND_ERR;
+						String cheapest = query.cheapestConnection(sourceCode, destinationCode);
+						
+						for(LinkedList<String> path: graph.depthFirstAll(sourceCode, destinationCode)) {
+							int price = 0;
+							
+							for(int i = 1; i < path.size(); i++) {
+								price += adjacencyMatrix.get(path.get(i - 1), path.get(i));
+							}
+							
+							if(expected.equals(CONNECTION_NOT_FOUND_ERR) || price < Integer.parseInt(expected)) {
+								expected = Integer.toString(price);
+							}
+						}
+						
+						Assert.assertEquals(expected, cheapest.substring(cheapest.lastIndexOf('-') + 1));
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This method ensures that a (saved and reloaded) contraction hierarchies index finds the same connections as A*.
+	 * @throws ParseException 
+	 * @throws IOException 
+	 */
+	@Test
+	public void testCheapestConnectionWithContractionHierarchy() throws ParseException, IOException {
+		System.out.println(String.format("QueryTest.testCheapestConnectionWithContractionHierarchy"));
+		
+		for(String connection: connections) {
+			AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(connection);
+			DirectedGraph graph = adjacencyMatrix.getDirectedGraph();
+			Query query = new Query(adjacencyMatrix);
+			ByteArrayOutputStream saved = new ByteArrayOutputStream();
+			
+			new ContractionHierarchy(adjacencyMatrix).save(saved);
+			
+			for(byte[] corrupted: new byte[][] {Arrays.copyOf(saved.toByteArray(), saved.size() - 1), new byte[] {(byte)0xAC, (byte)0xED, 0, 5}}) {
+				try {
+					ContractionHierarchy.load(new ByteArrayInputStream(corrupted));
+					Assert.fail("A corrupted index was loaded");
+				}catch(IOException e) {
+					// Expected.
+				}
+			}
+			
+			for(String sourceCode: graph.getAirportCodes()) {
+				for(String destinationCode: graph.getAirportCodes()) {
+					String expected;
+					
+					adjacencyMatrix.setContractionHierarchy(null);
+					expected = query.cheapestConnection(sourceCode, destinationCode);
+					adjacencyMatrix.setContractionHierarchy(ContractionHierarchy.load(new ByteArrayInputStream(saved.toByteArray())));
+					
+					String cheapest = query.cheapestConnection(sourceCode, destinationCode);
+					
+					Assert.assertEquals(expected.substring(expected.lastIndexOf('-') + 1), cheapest.substring(cheapest.lastIndexOf('-') + 1));
+					
+					if(!cheapest.equals(CONNECTION_NOT_FOUND_ERR)) {
+						Assert.assertEquals(
+							Integer.parseInt(cheapest.substring(cheapest.lastIndexOf('-') + 1)), 
+							query.connectionPrice(cheapest.substring(0, cheapest.lastIndexOf('-')).split("-"))
+						);
+					}
+				}
+			}
+		}
+	}
 		
 	@Test
 	public void testConnectionsWithMaximumStops() throws ParseException { //What is the price of the connection ...? 
@@ -113,6 +261,286 @@ public class QueryTest {
 		Assert.assertEquals(3, query2.connectionsWithExactStops(2, "a", "d"));
 	}
 	
+	/**
+	 * This method ensures that the bidirectional search agrees with a full enumeration of connections.
+	 * @throws ParseException 
+	 */
+	@Test
+	public void testConnectionsWithExactStopsMatchesEnumeration() throws ParseException {
+		System.out.println(String.format("QueryTest.testConnectionsWithExactStopsMatchesEnumeration"));
+		
+		for(String connection: connections) {
+			AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(connection);
+			DirectedGraph graph = adjacencyMatrix.getDirectedGraph();
+			Query query = new Query(adjacencyMatrix);
+			
+			for(String sourceCode: graph.getAirportCodes()) {
+				for(String destinationCode: graph.getAirportCodes()) {
+					List<LinkedList<String>> all = graph.depthFirstAll(sourceCode, destinationCode);
+					
+					for(int stops = 0; stops < 8; stops++) {
+						final int legs = stops + 1;
+						
+						Assert.assertEquals(
+							sourceCode + "-" + destinationCode + "/" + stops,
+							all.stream().filter(c -> c.size() - 1 == legs).count(),
+							query.connectionsWithExactStops(stops, sourceCode, destinationCode)
+						);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This method ensures that earliest arrival questions are answered from the scheduled flights.
+	 * @throws Exception 
+	 */
+	@Test
+	public void testEarliestArrival() throws Exception {
+		Query query = new Query(new AdjacencyMatrix(connections[0]));
+		NLQuery nlQuery = new NLQuery(query);
+		
+		System.out.println(String.format("QueryTest.testEarliestArrival"));
+		query.getTimetable().addFlights("Flights: FRA-LHR-10:45-11:50, NUE-FRA-09:00-10:05, NUE-LHR-09:30-12:30");
+		query.getTimetable().addFlights("Flights: NUE-AMS-08:00-09:10, AMS-LHR-09:20-10:40, LHR-NUE-23:30-01:45");
+		
+		Assert.assertEquals(6, query.getTimetable().size());
+		Assert.assertEquals("NUE-AMS-LHR-10:40", query.earliestArrival("NUE", "LHR", Timetable.parseTime("07:00")));
+		Assert.assertEquals("NUE-FRA-LHR-11:50", query.earliestArrival("NUE", "LHR", Timetable.parseTime("09:00")));
+		Assert.assertEquals("NUE-LHR-12:30", query.earliestArrival("NUE", "LHR", Timetable.parseTime("09:01")));
+		Assert.assertEquals("LHR-NUE-01:45+1", query.earliestArrival("LHR", "NUE", Timetable.parseTime("20:00")));
+		Assert.assertEquals(CONNECTION_NOT_FOUND_ERR, query.earliestArrival("NUE", "LHR", Timetable.parseTime("13:00")));
+		Assert.assertEquals(CONNECTION_NOT_FOUND_ERR, query.earliestArrival("NUE", "XXX", 0));
+		Assert.assertEquals("NUE-FRA-LHR-11:50", nlQuery.evaluate("What is the earliest arrival from NUE to LHR departing after 09:00?"));
+		Assert.assertEquals("NUE-AMS-LHR-10:40", nlQuery.evaluate("earliest arrival from NUE to LHR departing at 8:00"));
+		Assert.assertTrue(nlQuery.evaluate("EXPLAIN What is the earliest arrival from NUE to LHR departing after 09:00?").matches(
+			"^plan: TIMETABLE, estimated: 6, expanded: 4, .*; answer: NUE-FRA-LHR-11:50$"
+		));
+	}
+	
+	/**
+	 * This method ensures that the (fare, stops) Pareto frontier matches the one derived from a full enumeration of connections.
+	 * @throws ParseException 
+	 */
+	@Test
+	public void testParetoSearchMatchesEnumeration() throws ParseException {
+		System.out.println(String.format("QueryTest.testParetoSearchMatchesEnumeration"));
+		
+		for(String connection: connections) {
+			AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(connection);
+			DirectedGraph graph = adjacencyMatrix.getDirectedGraph();
+			ParetoSearch search = new ParetoSearch(adjacencyMatrix);
+			
+			for(String sourceCode: graph.getAirportCodes()) {
+				for(String destinationCode: graph.getAirportCodes()) {
+					int[] cheapestByLegs = new int[adjacencyMatrix.length() + 1];
+					List<String> expected = new LinkedList<String>();
+					List<String> actual = new LinkedList<String>();
+					int bound = Integer.MAX_VALUE;
+					
+					Arrays.fill(cheapestByLegs, Integer.MAX_VALUE);
+					
+					for(LinkedList<String> path: graph.depthFirst(sourceCode, destinationCode)) {
+						int price = 0;
+						
+						for(int i = 1; i < path.size(); i++) {
+							price += adjacencyMatrix.get(path.get(i - 1), path.get(i));
+						}
+						cheapestByLegs[path.size() - 1] = Math.min(cheapestByLegs[path.size() - 1], price);
+					}
+					
+					for(int legs = 1; legs < cheapestByLegs.length; legs++) {
+						if(cheapestByLegs[legs] < bound) {
+							bound = cheapestByLegs[legs];
+							expected.add(0, legs + "/" + bound);
+						}
+					}
+					
+					for(PricedPath path: search.search(adjacencyMatrix.getIndex(sourceCode), adjacencyMatrix.getIndex(destinationCode))) {
+						int price = 0;
+						
+						for(int i = 1; i < path.getPath().length; i++) {
+							Assert.assertTrue(graph.isConnected(adjacencyMatrix.getCode(path.getPath()[i - 1]), adjacencyMatrix.getCode(path.getPath()[i])));
+							price += adjacencyMatrix.get(path.getPath()[i - 1], path.getPath()[i]);
+						}
+						Assert.assertEquals(price, path.getPrice());
+						actual.add((path.getPath().length - 1) + "/" + path.getPrice());
+					}
+					
+					Assert.assertEquals(sourceCode + "-" + destinationCode, expected, actual);
+				}
+			}
+		}
+		
+		Assert.assertEquals("NUE-FRA-LHR-70", new Query(new AdjacencyMatrix(connections[0])).bestConnections("NUE", "LHR"));
+	}
+	
+	/**
+	 * This method ensures that the bounded Bellman-Ford search finds the cheapest fare among the enumerated connections within the stops limit.
+	 * @throws Exception 
+	 */
+	@Test
+	public void testCheapestConnectionWithMaximumStops() throws Exception {
+		System.out.println(String.format("QueryTest.testCheapestConnectionWithMaximumStops"));
+		
+		for(String connection: connections) {
+			AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(connection);
+			DirectedGraph graph = adjacencyMatrix.getDirectedGraph();
+			Query query = new Query(adjacencyMatrix);
+			
+			for(String sourceCode: graph.getAirportCodes()) {
+				for(String destinationCode: graph.getAirportCodes()) {
+					List<LinkedList<String>> all = graph.depthFirst(sourceCode, destinationCode);
+					
+					for(int stops = 0; stops < 6; stops++) {
+						String result = query.cheapestConnectionWithMaximumStops(stops, sourceCode, destinationCode);
+						int expected = Integer.MAX_VALUE;
+						
+						for(LinkedList<String> path: all) {
+							if(path.size() - 2 <= stops) {
+								expected = Math.min(expected, query.connectionPrice(path));
+							}
+						}
+						
+						if(expected == Integer.MAX_VALUE) {
+							Assert.assertEquals(CONNECTION_NOT_FOUND_ERR, result);
+						} else {
+							String[] codes = result.split("\\-");
+							
+							Assert.assertEquals(result, Integer.toString(expected), codes[codes.length - 1]);
+							Assert.assertTrue(result, codes.length - 3 <= stops);
+							Assert.assertEquals(result, sourceCode, codes[0]);
+							Assert.assertEquals(result, destinationCode, codes[codes.length - 2]);
+							Assert.assertEquals(result, expected, query.connectionPrice(Arrays.copyOf(codes, codes.length - 1)));
+						}
+					}
+				}
+			}
+		}
+		
+		Assert.assertEquals("LHR-NUE-FRA-LHR-93", new NLQuery(new Query(new AdjacencyMatrix(connections[0]))).evaluate("What is the cheapest connection from LHR to LHR with at most 2 stops?"));
+		Assert.assertTrue(new NLQuery(new Query(new AdjacencyMatrix(connections[0]))).evaluate("EXPLAIN What is the cheapest connection from LHR to LHR with at most 2 stops?").matches(
+			"^plan: BOUNDED_SEARCH, estimated: [1-9]\\d*, expanded: [1-9]\\d*, .*; answer: LHR-NUE-FRA-LHR-93$"
+		));
+		
+		Query query = new Query(new AdjacencyMatrix(connections[0]));
+		
+		Assert.assertEquals(query.cheapestConnectionWithMaximumStops(10, "NUE", "AMS"), query.cheapestConnectionWithMaximumStops(1000000000, "NUE", "AMS"));
+		Assert.assertEquals(query.cheapestConnectionWithMaximumStops(10, "NUE", "AMS"), query.cheapestConnectionWithMaximumStops(Integer.MAX_VALUE, "NUE", "AMS"));
+		Assert.assertEquals(query.cheapestConnectionWithMaximumStops(10, "LHR", "LHR"), query.cheapestConnectionWithMaximumStops(Integer.MAX_VALUE, "LHR", "LHR"));
+		Assert.assertNotEquals(CONNECTION_NOT_FOUND_ERR, query.cheapestConnectionWithMaximumStops(Integer.MAX_VALUE, "NUE", "AMS"));
+	}
+	
+	/**
+	 * This method ensures that the reachability index agrees with a full enumeration of connections, and with a breadth first
+	 * search on a larger random network.
+	 * @throws ParseException 
+	 */
+	@Test
+	public void testReachabilityIndex() throws ParseException {
+		StringBuilder random = new StringBuilder("Connections: ");
+		Random generator = new Random(37);
+		
+		System.out.println(String.format("QueryTest.testReachabilityIndex"));
+		
+		for(String connection: connections) {
+			AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(connection);
+			DirectedGraph graph = adjacencyMatrix.getDirectedGraph();
+			ReachabilityIndex index = adjacencyMatrix.getReachabilityIndex();
+			
+			for(String sourceCode: graph.getAirportCodes()) {
+				for(String destinationCode: graph.getAirportCodes()) {
+					Assert.assertEquals(
+						sourceCode + "-" + destinationCode,
+						!graph.depthFirst(sourceCode, destinationCode).isEmpty(),
+						index.reachable(adjacencyMatrix.getIndex(sourceCode), adjacencyMatrix.getIndex(destinationCode))
+					);
+				}
+			}
+		}
+		
+		for(int i = 0; i < 300; i++) {
+			random.append(i == 0 ? "" : ",").append("A").append(generator.nextInt(200)).append("-A").append(generator.nextInt(200)).append("-1");
+		}
+		
+		AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(random.toString());
+		ReachabilityIndex index = adjacencyMatrix.getReachabilityIndex();
+		int size = adjacencyMatrix.length();
+		
+		for(int source = 0; source < size; source++) {
+			boolean[] reached = new boolean[size];
+			LinkedList<Integer> queue = new LinkedList<Integer>();
+			
+			queue.add(source);
+			
+			while(!queue.isEmpty()) {
+				int v = queue.poll();
+				
+				for(int i = 0; i < adjacencyMatrix.outDegree(v); i++) {
+					int w = adjacencyMatrix.successor(v, i);
+					
+					if(!reached[w]) {
+						reached[w] = true;
+						queue.add(w);
+					}
+				}
+			}
+			
+			for(int target = 0; target < size; target++) {
+				Assert.assertEquals(reached[target], index.reachable(source, target));
+			}
+		}
+		
+		Assert.assertEquals(CONNECTION_NOT_FOUND_ERR, new Query(adjacencyMatrix).cheapestConnection("A0", "XXX"));
+	}
+	
+	/**
+	 * This method ensures that the prefix trie holds the same connections, in the same order, as <code><b>DirectedGraph.depthFirstAll</b></code>.
+	 * @throws ParseException 
+	 */
+	@Test
+	public void testPathTrieMatchesEnumeration() throws ParseException {
+		System.out.println(String.format("QueryTest.testPathTrieMatchesEnumeration"));
+		
+		for(String connection: connections) {
+			AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(connection);
+			DirectedGraph graph = adjacencyMatrix.getDirectedGraph();
+			
+			for(String sourceCode: graph.getAirportCodes()) {
+				for(String destinationCode: graph.getAirportCodes()) {
+					List<LinkedList<String>> all = graph.depthFirstAll(sourceCode, destinationCode);
+					PathTrie trie = PathTrie.depthFirstAll(
+						adjacencyMatrix, 
+						adjacencyMatrix.getIndex(sourceCode), 
+						adjacencyMatrix.getIndex(destinationCode), 
+						Integer.MAX_VALUE
+					);
+					
+					Assert.assertEquals(all.size(), trie.size());
+					
+					for(int leaf = 0; leaf < trie.size(); leaf++) {
+						int[] path = trie.getPath(leaf);
+						int price = 0;
+						
+						Assert.assertEquals(all.get(leaf).size(), path.length);
+						
+						for(int i = 0; i < path.length; i++) {
+							Assert.assertEquals(all.get(leaf).get(i), adjacencyMatrix.getCode(path[i]));
+							
+							if(i > 0) {
+								price += adjacencyMatrix.get(path[i - 1], path[i]);
+							}
+						}
+						Assert.assertEquals(price, trie.getPrice(leaf));
+					}
+					
+					Assert.assertTrue(trie.size() == 0 || trie.nodeCount() <= 1 + all.stream().mapToInt(c -> c.size()).sum());
+				}
+			}
+		}
+	}
+	
 	@Test
 	public void testConnectionsWithMinimumStops() throws ParseException { //What is the price of the connection ...? 
 		AdjacencyMatrix adjacencyMatrix1 = new AdjacencyMatrix(connections[0]);
@@ -170,4 +598,526 @@ public class QueryTest {
 		/* */
 		
 	}	
+	
+	/**
+	 * This method ensures that questions answered by regional shard workers match those answered on the whole network.
+	 * @throws ParseException 
+	 * @throws IOException 
+	 */
+	@Test
+	public void testShardCoordinator() throws ParseException, IOException {
+		System.out.println(String.format("QueryTest.testShardCoordinator"));
+		
+		for(String line: connections) {
+			AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(line);
+			Query query = new Query(adjacencyMatrix);
+			
+			for(int shards = 2; shards <= 3; shards++) {
+				try(ShardCoordinator coordinator = new ShardCoordinator(line, shards, false)) {
+					for(int s = 0; s < adjacencyMatrix.length(); s++) {
+						for(int t = 0; t < adjacencyMatrix.length(); t++) {
+							String source = adjacencyMatrix.getCode(s);
+							String target = adjacencyMatrix.getCode(t);
+							String expected = query.cheapestConnection(source, target);
+							String actual = coordinator.cheapestConnection(source, target);
+							
+							if(expected.equals(CONNECTION_NOT_FOUND_ERR)) {
+								Assert.assertEquals(expected, actual);
+								continue;
+							}
+							
+							int fare = Integer.parseInt(actual.substring(actual.lastIndexOf('-') + 1));
+							String[] route = actual.substring(0, actual.lastIndexOf('-')).split("\\-");
+							
+							Assert.assertEquals(expected.substring(expected.lastIndexOf('-') + 1), Integer.toString(fare));
+							Assert.assertEquals(fare, query.connectionPrice(route));
+							Assert.assertEquals(fare, coordinator.connectionPrice(route));
+						}
+					}
+					
+					Assert.assertEquals(
+						new NLQuery(query).evaluate(String.format("What is the cheapest connection from %s to %s?", adjacencyMatrix.getCode(0), adjacencyMatrix.getCode(1))).replaceAll(".*-", ""),
+						coordinator.evaluate(String.format("What is the cheapest connection from %s to %s?", adjacencyMatrix.getCode(0), adjacencyMatrix.getCode(1))).replaceAll(".*-", "")
+					);
+				} catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+					Assert.fail(e.getMessage());
+				}
+			}
+		}
+		
+		try(ShardCoordinator coordinator = new ShardCoordinator(connections[0], 2, false)) {
+			Assert.assertEquals("70", coordinator.evaluate("What is the price of the connection NUE-FRA-LHR?"));
+			Assert.assertEquals(CONNECTION_NOT_FOUND_ERR, coordinator.evaluate("What is the price of the connection NUE-LHR?"));
+		}
+		
+		int local = 0;
+		
+		for(String line: connections) { // Enumeration questions are answered by one shard only if their connections stay within it.
+			AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(line);
+			
+			try(ShardCoordinator coordinator = new ShardCoordinator(line, 2, false)) {
+				NLQuery nlQuery = new NLQuery(new Query(adjacencyMatrix));
+				
+				for(int s = 0; s < adjacencyMatrix.length(); s++) {
+					for(int t = 0; t < adjacencyMatrix.length(); t++) {
+						String source = adjacencyMatrix.getCode(s);
+						String target = adjacencyMatrix.getCode(t);
+						
+						for(String question: new String[] {
+							String.format("How many different connections with maximum 4 stops exists between %s and %s?", source, target),
+							String.format("How many different connections with exactly 1 stop exists between %s and %s?", source, target),
+							String.format("Find all connections from %s to %s below 200 Euros!", source, target),
+							String.format("Find all airports reachable from %s for under 10 Euros!", source)
+						}) {
+							String actual = coordinator.evaluate(question);
+							
+							if(!actual.equals(ShardCoordinator.CROSS_SHARD_ERROR)) {
+								Assert.assertEquals(question, nlQuery.evaluate(question), actual);
+								local++;
+							}
+						}
+					}
+				}
+				
+				Assert.assertEquals(ShardCoordinator.CROSS_SHARD_ERROR, coordinator.evaluate(String.format("Find all airports reachable from %s for under 10 Euros!", adjacencyMatrix.getCode(0))));
+			} catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+				Assert.fail(e.getMessage());
+			}
+		}
+		
+		Assert.assertTrue(local > 0);
+		
+		try(ShardCoordinator coordinator = new ShardCoordinator(connections[1], 2, true)) { // Workers in their own JVM answer like this one.
+			NLQuery nlQuery = new NLQuery(new Query(new AdjacencyMatrix(connections[1])));
+			
+			for(String question: new String[] {
+				"How many different connections with maximum 4 stops exists between d and e?",
+				"Find all connections from d to e below 20 Euros!"
+			}) {
+				Assert.assertEquals(question, nlQuery.evaluate(question), coordinator.evaluate(question));
+			}
+			Assert.assertEquals(Boolean.getBoolean("com.assessment.flitetrakr.multiple") ? "2" : "1", coordinator.evaluate("How many different connections with maximum 4 stops exists between d and e?"));
+		} catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+			Assert.fail(e.getMessage());
+		}
+	}
+	
+	/**
+	 * This method ensures that the asynchronous facade answers like <b><code>Query</code></b> and honours subscribers' demand.
+	 * @throws Exception 
+	 */
+	@Test
+	public void testAsyncQuery() throws Exception {
+		AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(connections[1]);
+		Query query = new Query(adjacencyMatrix);
+		AsyncQuery asyncQuery = new AsyncQuery(query);
+		
+		System.out.println(String.format("QueryTest.testAsyncQuery"));
+		
+		Assert.assertEquals(query.cheapestConnection("a", "z"), asyncQuery.cheapestConnection("a", "z").get());
+		Assert.assertEquals(query.connectionsWithMaximumStops(3, "a", "e"), (int)asyncQuery.connectionsWithMaximumStops(3, "a", "e").get());
+		Assert.assertEquals("a-b-d-3", asyncQuery.evaluate("What is the cheapest connection from a to d?").get());
+		
+		try {
+			asyncQuery.evaluate("Hello").join();
+			Assert.fail();
+		}catch(CompletionException e) {
+			Assert.assertTrue(e.getCause() instanceof ParseException);
+		}
+		
+		for(int limit: new int[] {1, 3, 12}) {
+			List<String> items = subscribe(asyncQuery.connectionsBelowPrice(12, "c", "z"), limit);
+			
+			Assert.assertEquals(query.connectionsBelowPrice(12, "c", "z"), String.join(StringIO.DEFAULT_LIST_SEPARATOR, items));
+		}
+		
+		Assert.assertEquals(Arrays.asList("c-z-3", "c-d-e-z-5"), subscribe(asyncQuery.connectionsBelowPrice(12, "c", "z"), -2));
+		Assert.assertTrue(subscribe(asyncQuery.connectionsBelowPrice(12, "z", "x"), 1).isEmpty());
+		
+		String expected = query.connectionsBelowPrice(12, "c", "z");
+		
+		query.spillLimit = 1; // Items are merged from run files.
+		Assert.assertEquals(expected, String.join(StringIO.DEFAULT_LIST_SEPARATOR, subscribe(asyncQuery.connectionsBelowPrice(12, "c", "z"), 2)));
+		Assert.assertEquals(Arrays.asList("c-z-3", "c-d-e-z-5"), subscribe(asyncQuery.connectionsBelowPrice(12, "c", "z"), -2));
+	}
+	
+	/**
+	 * <p>Collects the items of a publisher.</p>
+	 * 
+	 * @param publisher Publisher of connections.
+	 * @param batch How many items are requested at a time; if negative, only <code>-batch</code> items are requested and the 
+	 * subscription is cancelled.
+	 * @return The items received once the stream ends.
+	 */
+	private static List<String> subscribe(Flow.Publisher<String> publisher, int batch) throws InterruptedException {
+		List<String> items = new CopyOnWriteArrayList<String>();
+		CountDownLatch latch = new CountDownLatch(1);
+		
+		publisher.subscribe(new Flow.Subscriber<String>() {
+			Flow.Subscription subscription;
+			int received;
+			
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				this.subscription = subscription;
+				subscription.request(Math.abs(batch));
+			}
+			
+			@Override
+			public void onNext(String item) {
+				items.add(item);
+				
+				if(++received % Math.abs(batch) == 0) {
+					if(batch < 0) {
+						subscription.cancel();
+						latch.countDown();
+					} else {
+						subscription.request(batch);
+					}
+				}
+			}
+			
+			@Override
+			public void onError(Throwable throwable) {
+				latch.countDown();
+			}
+			
+			@Override
+			public void onComplete() {
+				latch.countDown();
+			}
+		});
+		
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		return items;
+	}
+	
+	/**
+	 * This method ensures that the cheapest connection between sets of airports is the cheapest one among all their pairs.
+	 * @throws Exception 
+	 */
+	@Test
+	public void testCheapestConnectionBetweenSets() throws Exception {
+		System.out.println(String.format("QueryTest.testCheapestConnectionBetweenSets"));
+		Random random = new Random(17);
+		
+		for(String line: connections) {
+			for(int landmarks = 0; landmarks <= 2; landmarks += 2) {
+				AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(line);
+				
+				adjacencyMatrix.preprocessLandmarks(landmarks);
+				
+				Query query = new Query(adjacencyMatrix);
+				
+				for(int round = 0; round < 50; round++) {
+					List<String> sources = new LinkedList<String>();
+					List<String> destinations = new LinkedList<String>();
+					int expected = Integer.MAX_VALUE;
+					
+					for(int i = 0; i < adjacencyMatrix.length(); i++) {
+						if(random.nextInt(3) == 0) {
+							sources.add(adjacencyMatrix.getCode(i));
+						}
+						if(random.nextInt(3) == 0) {
+							destinations.add(adjacencyMatrix.getCode(i));
+						}
+					}
+					
+					for(String source: sources) {
+						for(String destination: destinations) {
+							String connection = query.cheapestConnection(source, destination);
+							
+							if(!connection.equals(CONNECTION_NOT_FOUND_ERR)) {
+								expected = Math.min(expected, Integer.parseInt(connection.substring(connection.lastIndexOf('-') + 1)));
+							}
+						}
+					}
+					
+					String actual = query.cheapestConnection(sources.toArray(new String[0]), destinations.toArray(new String[0]));
+					
+					if(expected == Integer.MAX_VALUE) {
+						Assert.assertEquals(CONNECTION_NOT_FOUND_ERR, actual);
+						continue;
+					}
+					
+					String[] route = actual.substring(0, actual.lastIndexOf('-')).split("\\-");
+					
+					Assert.assertEquals(Integer.toString(expected), actual.substring(actual.lastIndexOf('-') + 1));
+					Assert.assertEquals(expected, query.connectionPrice(route));
+					Assert.assertTrue(sources.contains(route[0]));
+					Assert.assertTrue(destinations.contains(route[route.length - 1]));
+				}
+			}
+		}
+		
+		NLQuery nlQuery = new NLQuery(new Query(new AdjacencyMatrix(connections[0])));
+		
+		Assert.assertEquals("FRA-AMS-17", nlQuery.evaluate("What is the cheapest connection from NUE or FRA to LHR or AMS?"));
+		Assert.assertEquals("LHR-NUE-23", nlQuery.evaluate("cheapest connection from LHR or XXX to NUE or LHR"));
+		Assert.assertEquals(CONNECTION_NOT_FOUND_ERR, nlQuery.evaluate("What is the cheapest connection from AMS or XXX to NUE or FRA?"));
+	}
+	
+	/**
+	 * This method ensures that the airports reachable within a budget are those whose cheapest connection is below it, cheapest first.
+	 * @throws Exception 
+	 */
+	@Test
+	public void testAirportsBelowPrice() throws Exception {
+		System.out.println(String.format("QueryTest.testAirportsBelowPrice"));
+		
+		for(String line: connections) {
+			AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(line);
+			Query query = new Query(adjacencyMatrix);
+			
+			for(int s = 0; s < adjacencyMatrix.length(); s++) {
+				for(int budget = 0; budget <= 20; budget++) {
+					String[] airports = query.airportsBelowPrice(budget, adjacencyMatrix.getCode(s)).split(StringIO.DEFAULT_LIST_SEPARATOR);
+					int count = 0;
+					int previous = 0;
+					
+					for(int t = 0; t < adjacencyMatrix.length(); t++) {
+						String connection = query.cheapestConnection(adjacencyMatrix.getCode(s), adjacencyMatrix.getCode(t));
+						
+						if(t != s && !connection.equals(CONNECTION_NOT_FOUND_ERR) && Integer.parseInt(connection.substring(connection.lastIndexOf('-') + 1)) < budget) {
+							count++;
+							Assert.assertTrue(Arrays.asList(airports).contains(String.format("%s-%s", adjacencyMatrix.getCode(t), connection.substring(connection.lastIndexOf('-') + 1))));
+						}
+					}
+					
+					Assert.assertEquals(count, airports[0].length() == 0 ? 0 : airports.length);
+					
+					for(int i = 0; i < count; i++) {
+						int fare = Integer.parseInt(airports[i].substring(airports[i].lastIndexOf('-') + 1));
+						
+						Assert.assertTrue(fare >= previous);
+						previous = fare;
+					}
+				}
+			}
+		}
+		
+		NLQuery nlQuery = new NLQuery(new Query(new AdjacencyMatrix(connections[0])));
+		
+		Assert.assertEquals("FRA-43, AMS-60", nlQuery.evaluate("Find all airports reachable from NUE for under 70 Euros!"));
+		Assert.assertEquals("FRA-43, AMS-60, LHR-70", nlQuery.evaluate("airports from NUE below 71 euro"));
+		Assert.assertEquals(CONNECTION_NOT_FOUND_ERR, nlQuery.evaluate("Find all airports reachable from AMS for under 500 Euros!"));
+	}
+	
+	/**
+	 * This method ensures that connections counted by number of stops match the enumerated ones, and answer the stops questions.
+	 * @throws Exception 
+	 */
+	@Test
+	public void testConnectionsByStops() throws Exception {
+		System.out.println(String.format("QueryTest.testConnectionsByStops"));
+		
+		for(String connection: connections) {
+			AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(connection);
+			DirectedGraph graph = adjacencyMatrix.getDirectedGraph();
+			Query query = new Query(adjacencyMatrix);
+			
+			for(String sourceCode: graph.getAirportCodes()) {
+				for(String destinationCode: graph.getAirportCodes()) {
+					List<LinkedList<String>> simple = graph.depthFirst(sourceCode, destinationCode);
+					List<LinkedList<String>> all = graph.depthFirstAll(sourceCode, destinationCode);
+					int[] legs = graph.countByLegs(sourceCode, destinationCode, 8);
+					int[] histogram = query.connectionsByStops(7, sourceCode, destinationCode);
+					
+					Assert.assertEquals(8, histogram.length);
+					Assert.assertEquals(all.size(), Arrays.stream(query.connectionsByStops(sourceCode, destinationCode)).sum());
+					
+					for(int stops = 0; stops < 8; stops++) {
+						final int k = stops + 1;
+						
+						Assert.assertEquals(simple.stream().filter(c -> c.size() - 1 == k).count(), legs[k]);
+						Assert.assertEquals(all.stream().filter(c -> c.size() - 1 == k).count(), histogram[stops]);
+						Assert.assertEquals(query.connectionsWithExactStops(stops, sourceCode, destinationCode), histogram[stops]);
+						Assert.assertEquals(all.stream().filter(c -> c.size() - 1 <= k).count(), query.connectionsWithMaximumStops(stops, sourceCode, destinationCode));
+						Assert.assertEquals(all.stream().filter(c -> c.size() - 1 >= k).count(), query.connectionsWithMinimumStops(stops, sourceCode, destinationCode));
+					}
+				}
+			}
+		}
+		
+		NLQuery nlQuery = new NLQuery(new Query(new AdjacencyMatrix(connections[0])));
+		
+		Assert.assertEquals("0, 1, 0, 0, 1", nlQuery.evaluate("How many connections with up to 4 stops exist between NUE and LHR, by number of stops?"));
+		Assert.assertEquals("0, 0", nlQuery.evaluate("connections up to 1 stop between AMS and NUE by stops"));
+		Assert.assertEquals(0, nlQuery.query.connectionsByStops(-1, "NUE", "LHR").length);
+		Assert.assertEquals(0, nlQuery.query.connectionsByStops(-3, "NUE", "LHR").length);
+		Assert.assertEquals(0, nlQuery.query.connectionsByStops(Integer.MIN_VALUE, "NUE", "LHR").length);
+		Assert.assertEquals(nlQuery.evaluate("How many connections with up to 10 stops exist between NUE and LHR, by number of stops?"), nlQuery.evaluate("How many connections with up to 1000000000 stops exist between NUE and LHR, by number of stops?"));
+		Assert.assertEquals(nlQuery.evaluate("How many connections with up to 10 stops exist between NUE and LHR, by number of stops?"), nlQuery.evaluate("How many connections with up to 2147483647 stops exist between NUE and LHR, by number of stops?"));
+		
+		List<BatchPlanner.Answer> answers = new BatchPlanner(nlQuery.query).evaluate(Arrays.asList(
+			"How many different connections with maximum 500000000 stops exists between NUE and FRA?",
+			"How many different connections with exactly 1 stop exists between NUE and FRA?",
+			"How many different connections with minimum 2147483647 stops exists between NUE and FRA?"
+		));
+		
+		Assert.assertEquals("2", answers.get(0).getResult());
+		Assert.assertEquals(nlQuery.evaluate("How many different connections with exactly 1 stop exists between NUE and FRA?"), answers.get(1).getResult());
+		Assert.assertEquals("0", answers.get(2).getResult());
+	}
+	
+	/**
+	 * This method ensures that the planner picks engines from the network statistics and that EXPLAIN reports them with the answer.
+	 * @throws Exception 
+	 */
+	@Test
+	public void testQueryPlanner() throws Exception {
+		System.out.println(String.format("QueryTest.testQueryPlanner"));
+		
+		NLQuery nlQuery = new NLQuery(new Query(new AdjacencyMatrix(connections[0])));
+		String plan = "^plan: %s, estimated: %s, expanded: %s, planning: \\d+\\.\\d{3} ms, execution: \\d+\\.\\d{3} ms; answer: %s$";
+		
+		Assert.assertTrue(nlQuery.evaluate("Explain what is the cheapest connection from NUE to AMS?").matches(String.format(plan, "DIJKSTRA", "4", "\\d+", "NUE-FRA-AMS-60")));
+		Assert.assertTrue(nlQuery.evaluate("EXPLAIN What is the cheapest connection from AMS to FRA?").matches(String.format(plan, "REACHABILITY_INDEX", "0", "0", CONNECTION_NOT_FOUND_ERR)));
+		Assert.assertTrue(nlQuery.evaluate("explain How many different connections with maximum 3 stops exist between NUE and FRA?").matches(String.format(plan, "COUNTING", "\\d+", "\\d+", "2")));
+		Assert.assertTrue(nlQuery.evaluate("EXPLAIN What is the price of the connection NUE-FRA-LHR?").matches(String.format(plan, "ITINERARY_PRICING", "3", "3", "70")));
+		Assert.assertTrue(nlQuery.evaluate("EXPLAIN Find all connections from NUE to LHR below 170 Euros!").matches(String.format(plan, "PRICE_BOUNDED_ENUMERATION", "\\d+", "\\d+", "NUE-FRA-LHR-70, NUE-FRA-LHR-NUE-FRA-LHR-163")));
+		Assert.assertEquals("70", nlQuery.evaluate("What is the price of the connection NUE-FRA-LHR?"));
+		Assert.assertEquals("0", nlQuery.evaluate("How many different connections with exactly 500000000 stops exists between NUE and FRA?"));
+		Assert.assertEquals("0", nlQuery.evaluate("How many different connections with exactly 2147483647 stops exists between NUE and FRA?"));
+		
+		StringBuilder random = new StringBuilder("Connections: ");
+		Random generator = new Random(41);
+		
+		for(int i = 0; i < 120; i++) {
+			random.append(i == 0 ? "" : ",").append("A").append(generator.nextInt(40)).append("-A").append(generator.nextInt(40)).append("-").append(1 + generator.nextInt(9));
+		}
+		
+		AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(random.toString());
+		Query query = new Query(adjacencyMatrix);
+		QueryPlanner planner = query.getPlanner();
+		
+		Assert.assertTrue(adjacencyMatrix.length() > QueryPlanner.TINY_NETWORK);
+		Assert.assertEquals(QueryPlanner.Engine.COUNTING, planner.planStops(0, 1, true, false).getEngine());
+		Assert.assertEquals(QueryPlanner.Engine.MEET_IN_THE_MIDDLE, planner.planStops(0, 12, true, false).getEngine());
+		Assert.assertEquals(QueryPlanner.Engine.COUNTING, planner.planStops(0, 12, false, false).getEngine());
+		
+		for(int s = 0; s < adjacencyMatrix.length(); s += 7) {
+			for(int t = 0; t < adjacencyMatrix.length(); t += 5) {
+				String source = adjacencyMatrix.getCode(s);
+				String target = adjacencyMatrix.getCode(t);
+				int[] histogram = query.connectionsByStops(5, source, target);
+				
+				for(int stops = 0; stops <= 5; stops++) {
+					Assert.assertEquals(histogram[stops], query.connectionsWithExactStops(stops, source, target));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This method ensures that a window of questions answered by <b><code>BatchPlanner</code></b> gets the answers of <b><code>NLQuery</code></b>.
+	 * @throws Exception 
+	 */
+	@Test
+	public void testBatchPlanner() throws Exception {
+		System.out.println(String.format("QueryTest.testBatchPlanner"));
+		
+		for(String line: connections) {
+			AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(line);
+			Query query = new Query(adjacencyMatrix);
+			NLQuery nlQuery = new NLQuery(query);
+			List<String> questions = new LinkedList<String>();
+			
+			for(int s = 0; s < adjacencyMatrix.length(); s++) {
+				for(int t = 0; t < adjacencyMatrix.length(); t++) {
+					String source = adjacencyMatrix.getCode(s);
+					String target = adjacencyMatrix.getCode(t);
+					
+					questions.add(String.format("What is the cheapest connection from %s to %s?", source, target));
+					
+					for(int stops = 0; stops <= 3; stops++) {
+						questions.add(String.format("How many different connections with maximum %d stops exist between %s and %s?", stops, source, target));
+						questions.add(String.format("How many different connections with minimum %d stops exist between %s and %s?", stops, source, target));
+						questions.add(String.format("How many different connections with exactly %d stops exist between %s and %s?", stops, source, target));
+					}
+				}
+			}
+			questions.add("What is the cheapest connection from NUE to XXX?");
+			questions.add("What is the meaning of life?");
+			questions.add(String.format("What is the price of the connection %s-%s?", adjacencyMatrix.getCode(0), adjacencyMatrix.getCode(1)));
+			
+			List<BatchPlanner.Answer> answers = new BatchPlanner(query).evaluate(questions);
+			
+			Assert.assertEquals(questions.size(), answers.size());
+			
+			for(int i = 0; i < answers.size(); i++) {
+				try {
+					Assert.assertEquals(questions.get(i), nlQuery.evaluate(questions.get(i)), answers.get(i).getResult());
+				}catch(ParseException e) {
+					Assert.assertNull(answers.get(i).getResult());
+					Assert.assertEquals(e.getMessage(), answers.get(i).getError().getMessage());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This method ensures that connections below a price spilled to disk and merged (see <b><code>ExternalConnectionSort</code></b>) 
+	 * equal those sorted in memory, and that the planner expects the spill.
+	 * @throws Exception 
+	 */
+	@Test
+	public void testSpillToDisk() throws Exception {
+		System.out.println(String.format("QueryTest.testSpillToDisk"));
+		
+		Query query = new Query(new AdjacencyMatrix(connections[0]));
+		StringBuilder streamed = new StringBuilder();
+		
+		query.spillLimit = 1;
+		Assert.assertEquals(2, query.connectionsBelowPrice(170, "NUE", "LHR", streamed));
+		Assert.assertEquals("NUE-FRA-LHR-70, NUE-FRA-LHR-NUE-FRA-LHR-163", streamed.toString());
+		Assert.assertEquals(0, query.connectionsBelowPrice(170, "LHR", "XXX", streamed));
+		
+		StringBuilder random = new StringBuilder("Connections: ");
+		Random generator = new Random(43);
+		
+		for(int i = 0; i < 90; i++) {
+			random.append(i == 0 ? "" : ",").append("A").append(generator.nextInt(20)).append("-A").append(generator.nextInt(20)).append("-").append(1 + generator.nextInt(9));
+		}
+		
+		AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(random.toString());
+		Query inMemory = new Query(adjacencyMatrix);
+		Query spilled = new Query(adjacencyMatrix);
+		NLQuery nlQuery = new NLQuery(spilled);
+		
+		inMemory.spillLimit = Integer.MAX_VALUE;
+		
+		for(int limit: new int[] {1, 7}) {
+			spilled.spillLimit = limit;
+			
+			for(int s = 0; s < adjacencyMatrix.length(); s += 6) {
+				for(int t = 0; t < adjacencyMatrix.length(); t += 8) {
+					String source = adjacencyMatrix.getCode(s);
+					String target = adjacencyMatrix.getCode(t);
+					
+					Assert.assertEquals(inMemory.connectionsBelowPrice(22, source, target), spilled.connectionsBelowPrice(22, source, target));
+				}
+			}
+		}
+		
+		String source = adjacencyMatrix.getCode(18);
+		String target = adjacencyMatrix.getCode(4);
+		StringBuilder answer = new StringBuilder();
+		String question = String.format("Find all connections from %s to %s below 22 Euros!", source, target);
+		
+		spilled.spillLimit = 1;
+		Assert.assertTrue(nlQuery.streams(question));
+		Assert.assertFalse(nlQuery.streams("What is the cheapest connection from NUE to AMS?"));
+		Assert.assertTrue(spilled.connectionsBelowPrice(22, source, target, answer) > ExternalConnectionSort.MAX_FAN_IN);
+		Assert.assertEquals(inMemory.connectionsBelowPrice(22, source, target), answer.toString());
+		Assert.assertTrue(nlQuery.evaluate("EXPLAIN " + question).startsWith("plan: EXTERNAL_SORT"));
+		
+		answer.setLength(0);
+		nlQuery.evaluate(question, answer);
+		Assert.assertEquals(nlQuery.evaluate(question), answer.toString());
+		
+		answer.setLength(0);
+		nlQuery.evaluate("What is the cheapest connection from NUE to AMS?", answer);
+		Assert.assertEquals(CONNECTION_NOT_FOUND_ERR, answer.toString());
+	}
 }